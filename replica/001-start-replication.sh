@@ -0,0 +1,18 @@
+#!/bin/bash
+# Makes this instance a replica of the db service: copies the source's data together with its GTID position, then
+# replicates everything after it. Runs once, when the replica's data volume is initialized.
+set -e
+
+until mysql -h db -uroot -p"$MYSQL_ROOT_PASSWORD" -e 'SELECT 1' > /dev/null 2>&1; do
+	echo 'Waiting for the source database'
+	sleep 1
+done
+
+docker_process_sql <<< 'RESET MASTER;'
+mysqldump -h db -uroot -p"$MYSQL_ROOT_PASSWORD" --single-transaction --set-gtid-purged=ON --databases "$MYSQL_DATABASE" \
+	| docker_process_sql
+docker_process_sql <<-EOSQL
+	CHANGE REPLICATION SOURCE TO SOURCE_HOST = 'db', SOURCE_USER = 'replicator', SOURCE_PASSWORD = 'password',
+		SOURCE_AUTO_POSITION = 1;
+	START REPLICA;
+EOSQL
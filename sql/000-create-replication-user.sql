@@ -0,0 +1,3 @@
+-- Lets the db-replica service in docker-compose.yml replicate from this instance.
+CREATE USER 'replicator'@'%' IDENTIFIED BY 'password';
+GRANT REPLICATION SLAVE ON *.* TO 'replicator'@'%';
@@ -0,0 +1,2 @@
+-- Lets the application read SHOW REPLICA STATUS to measure replica lag.
+GRANT REPLICATION CLIENT ON *.* TO 'user'@'%';
@@ -4,7 +4,11 @@ CREATE TABLE countries (
  country_code int NOT NULL,
  country VARCHAR(100) NOT NULL,
  city VARCHAR(100) NOT NULL,
- PRIMARY KEY(country_code)
+ updated_at TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6),
+ PRIMARY KEY(country_code),
+ INDEX idx_countries_country_city(country, city),
+ INDEX idx_countries_city(city),
+ INDEX idx_countries_updated_at(updated_at)
 );
 
 INSERT INTO countries (country_code, country, city) VALUES (44, 'United Kingdom', 'London');
@@ -0,0 +1,111 @@
+package com.example.country;
+
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.mybatis.spring.SqlSessionTemplate;
+
+import javax.sql.DataSource;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory H2 database in MySQL mode, created from sql/001-create-table-and-load-data.sql and filled with generated
+ * rows, standing in for MySQL in the benchmarks.
+ */
+class BenchmarkDatabase {
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private final DataSource dataSource;
+
+    private final SqlSessionFactory sqlSessionFactory;
+
+    BenchmarkDatabase(int rows) throws Exception {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:countries" + SEQUENCE.incrementAndGet()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;IGNORECASE=TRUE;DB_CLOSE_DELAY=-1");
+        this.dataSource = h2;
+        try (Connection connection = dataSource.getConnection()) {
+            createSchema(connection);
+            loadRows(connection, rows);
+        }
+        Configuration configuration = new Configuration(new Environment("benchmark", new JdbcTransactionFactory(), dataSource));
+        configuration.addMapper(CountryMapper.class);
+        this.sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+    }
+
+    static Country row(int i) {
+        return new Country(i, "Country " + i, "City " + i);
+    }
+
+    CountryMapper countryMapper() {
+        return new SqlSessionTemplate(sqlSessionFactory).getMapper(CountryMapper.class);
+    }
+
+    CountryStore countryStore() {
+        return new CountryMySqlStore(countryMapper(), sqlSessionFactory);
+    }
+
+    SqlSessionFactory sqlSessionFactory() {
+        return sqlSessionFactory;
+    }
+
+    DataSource dataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Frees the in-memory database, which DB_CLOSE_DELAY=-1 otherwise keeps for the life of the JVM.
+     */
+    void drop() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+    }
+
+    private static void createSchema(Connection connection) throws Exception {
+        try (Reader schema = new InputStreamReader(
+                BenchmarkDatabase.class.getResourceAsStream("/001-create-table-and-load-data.sql"), StandardCharsets.UTF_8)) {
+            ScriptRunner runner = new ScriptRunner(connection);
+            runner.setLogWriter(null);
+            runner.setErrorLogWriter(new PrintWriter(new StringWriter()));
+            runner.setStopOnError(true);
+            runner.runScript(schema);
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DELETE FROM countries");
+        }
+    }
+
+    private static void loadRows(Connection connection, int rows) throws SQLException {
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO countries (country_code, country, city) VALUES (?, ?, ?)")) {
+            for (int i = 1; i <= rows; i++) {
+                Country country = row(i);
+                insert.setInt(1, country.getCountryCode());
+                insert.setString(2, country.getCountry());
+                insert.setString(3, country.getCity());
+                insert.addBatch();
+                if (i % 10_000 == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.country;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CountryEqualsBenchmark {
+
+    Country country = new Country(44, "United Kingdom", "London");
+
+    Country same = new Country(44, "United Kingdom", "London");
+
+    Country different = new Country(44, "United Kingdom", "Manchester");
+
+    @Benchmark
+    public int hashCodeOf() {
+        return country.hashCode();
+    }
+
+    @Benchmark
+    public boolean equalsSame() {
+        return country.equals(same);
+    }
+
+    @Benchmark
+    public boolean equalsDifferent() {
+        return country.equals(different);
+    }
+}
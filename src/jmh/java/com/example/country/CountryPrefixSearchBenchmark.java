@@ -0,0 +1,60 @@
+package com.example.country;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LIKE prefix search through CountryMapper against the in-memory CountryPrefixIndex.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CountryPrefixSearchBenchmark {
+
+    @Param({"1000000"})
+    int rows;
+
+    @Param({"Country 12345", "City 99999"})
+    String prefix;
+
+    CountryMapper countryMapper;
+
+    CountryPrefixIndex countryPrefixIndex;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkDatabase database = new BenchmarkDatabase(rows);
+        countryMapper = database.countryMapper();
+        countryPrefixIndex = new CountryPrefixIndex(true, database.countryStore());
+        countryPrefixIndex.load();
+    }
+
+    @Benchmark
+    public List<Country> like() {
+        return prefix.startsWith("City")
+                ? countryMapper.findByCityStartingWith(prefix)
+                : countryMapper.findByCountryStartingWith(prefix);
+    }
+
+    @Benchmark
+    public List<Country> prefixIndex() {
+        return prefix.startsWith("City")
+                ? countryPrefixIndex.findByCityStartingWith(prefix)
+                : countryPrefixIndex.findByCountryStartingWith(prefix);
+    }
+}
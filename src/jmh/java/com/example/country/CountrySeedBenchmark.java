@@ -0,0 +1,172 @@
+package com.example.country;
+
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to seed an empty environment with {@code rows} countries: replaying one INSERT statement per row the way
+ * sql/001-create-table-and-load-data.sql is loaded today, against loading a snapshot block by block into the database
+ * (a JDBC batch and commit per block, what {@link CountryBulkWriter} does in its transaction) and into the embedded
+ * {@link CountryMappedFileStore} (one group commit per block). {@code export} is the time to write the snapshot from
+ * the mapper's rows as they are read. The database is H2 in MySQL mode, so the numbers compare the approaches rather
+ * than predict MySQL; the snapshot sizes are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CountrySeedBenchmark {
+
+    @Param({"1000000"})
+    int rows;
+
+    String insertScript;
+
+    byte[] snapshot;
+
+    byte[] uncompressedSnapshot;
+
+    BenchmarkDatabase source;
+
+    BenchmarkDatabase target;
+
+    Path storeDirectory;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() throws Exception {
+        StringBuilder script = new StringBuilder(rows * 96);
+        for (int i = 1; i <= rows; i++) {
+            Country country = BenchmarkDatabase.row(i);
+            script.append("INSERT INTO countries (country_code, country, city) VALUES (")
+                    .append(country.getCountryCode()).append(", '").append(country.getCountry()).append("', '")
+                    .append(country.getCity()).append("');\n");
+        }
+        insertScript = script.toString();
+        snapshot = snapshot(true);
+        uncompressedSnapshot = snapshot(false);
+        System.out.printf("%n# %d rows: INSERT script %d bytes, snapshot %d bytes, uncompressed snapshot %d bytes%n",
+                rows, insertScript.length(), snapshot.length, uncompressedSnapshot.length);
+        source = new BenchmarkDatabase(rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() throws Exception {
+        source.drop();
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() throws Exception {
+        target = new BenchmarkDatabase(0);
+        storeDirectory = Files.createTempDirectory("country-seed");
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation() throws Exception {
+        target.drop();
+        FileSystemUtils.deleteRecursively(storeDirectory);
+    }
+
+    @Benchmark
+    public void insertStatements() throws Exception {
+        try (Connection connection = target.dataSource().getConnection()) {
+            ScriptRunner runner = new ScriptRunner(connection);
+            runner.setAutoCommit(true);
+            runner.setLogWriter(null);
+            runner.setErrorLogWriter(new PrintWriter(new StringWriter()));
+            runner.setStopOnError(true);
+            runner.runScript(new StringReader(insertScript));
+        }
+    }
+
+    @Benchmark
+    public long snapshotToDatabase() throws Exception {
+        return loadIntoDatabase(snapshot);
+    }
+
+    @Benchmark
+    public long uncompressedSnapshotToDatabase() throws Exception {
+        return loadIntoDatabase(uncompressedSnapshot);
+    }
+
+    @Benchmark
+    public long snapshotToEmbeddedStore() throws Exception {
+        CountryMappedFileStore store = new CountryMappedFileStore(storeDirectory, true, 1024, DataSize.ofMegabytes(16));
+        store.open();
+        try (CountrySnapshotReader reader = new CountrySnapshotReader(new ByteArrayInputStream(snapshot))) {
+            List<Country> block;
+            while ((block = reader.nextBlock()) != null) {
+                store.writeAll(block.stream()
+                        .map(country -> new CountryBulkItem(CountryBulkItem.Operation.INSERT,
+                                country.getCountryCode(), country.getCountry(), country.getCity()))
+                        .toList());
+            }
+            return reader.getRead();
+        } finally {
+            store.close();
+        }
+    }
+
+    @Benchmark
+    public long export() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(snapshot.length);
+        // streamAll asks for MySQL's row-by-row streaming, which H2 rejects; a result handler streams the same way here
+        try (SqlSession session = source.sqlSessionFactory().openSession();
+             CountrySnapshotWriter writer = new CountrySnapshotWriter(output, true)) {
+            session.select(CountryMapper.class.getName() + ".findAll", context -> writer.accept((Country) context.getResultObject()));
+            return writer.getWritten();
+        }
+    }
+
+    private long loadIntoDatabase(byte[] snapshot) throws Exception {
+        try (CountrySnapshotReader reader = new CountrySnapshotReader(new ByteArrayInputStream(snapshot));
+             SqlSession session = target.sqlSessionFactory().openSession(ExecutorType.BATCH)) {
+            CountryMapper countryMapper = session.getMapper(CountryMapper.class);
+            List<Country> block;
+            while ((block = reader.nextBlock()) != null) {
+                block.forEach(countryMapper::insertIgnore);
+                session.flushStatements();
+                session.commit();
+            }
+            return reader.getRead();
+        }
+    }
+
+    private byte[] snapshot(boolean compressed) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (CountrySnapshotWriter writer = new CountrySnapshotWriter(output, compressed)) {
+            for (int i = 1; i <= rows; i++) {
+                writer.accept(BenchmarkDatabase.row(i));
+            }
+        }
+        return output.toByteArray();
+    }
+}
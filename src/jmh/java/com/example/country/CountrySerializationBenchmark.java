@@ -0,0 +1,71 @@
+package com.example.country;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Encode and decode time of a list of countries in each format the controller can negotiate. The encoded size of
+ * each list is printed during setup, since JMH has no column for it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CountrySerializationBenchmark {
+
+    @Param({"10", "1000"})
+    int rows;
+
+    @Param({"json", "cbor", "smile"})
+    String format;
+
+    ObjectMapper objectMapper;
+
+    JavaType listType;
+
+    List<Country> countries;
+
+    byte[] encoded;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = switch (format) {
+            case "json" -> Jackson2ObjectMapperBuilder.json().build();
+            case "cbor" -> Jackson2ObjectMapperBuilder.cbor().build();
+            case "smile" -> Jackson2ObjectMapperBuilder.smile().build();
+            default -> throw new IllegalArgumentException("Unknown format: " + format);
+        };
+        listType = objectMapper.getTypeFactory().constructCollectionType(List.class, Country.class);
+        countries = IntStream.rangeClosed(1, rows).mapToObj(BenchmarkDatabase::row).toList();
+        encoded = objectMapper.writeValueAsBytes(countries);
+        System.out.printf("%n%s, %d rows: %d bytes (%.1f bytes/row)%n", format, rows, encoded.length, (double) encoded.length / rows);
+    }
+
+    @Benchmark
+    public byte[] serializeList() throws Exception {
+        return objectMapper.writeValueAsBytes(countries);
+    }
+
+    @Benchmark
+    public List<Country> deserializeList() throws Exception {
+        return objectMapper.readValue(encoded, listType);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.country;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CountryServiceBenchmark {
+
+    @Param({"1000"})
+    int rows;
+
+    CountryStore countryStore;
+
+    CountryService countryService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkDatabase database = new BenchmarkDatabase(rows);
+        countryStore = database.countryStore();
+        CountryBulkWriter countryBulkWriter = new CountryBulkWriter(countryStore);
+        countryService = new CountryService(countryStore,
+                new CountryReplica(false, 99999, countryStore),
+                new CountryPrefixIndex(false, countryStore),
+                countryBulkWriter,
+                new CountryWriteBehindBuffer(false, 1, 1, Duration.ofSeconds(1), Duration.ofSeconds(1), countryBulkWriter, event -> { }),
+                new CountryChangeStream(1, 1, Duration.ofMinutes(1), Duration.ofMinutes(1), 1),
+                new CountrySingleFlight(false, new SimpleMeterRegistry(),
+                        new StaticListableBeanFactory().getBeanProvider(CountryRoutingDataSource.class)),
+                new CountryWriteLocks());
+    }
+
+    @Benchmark
+    public List<Country> getCountries() {
+        return countryService.getCountries("", "");
+    }
+
+    @Benchmark
+    public List<Country> getCountriesByCountryPrefix() {
+        return countryService.getCountries("Country 99", "");
+    }
+
+    @Benchmark
+    public List<Country> getCountriesByCountryAndCityPrefix() {
+        return countryService.getCountries("Country 9", "City 99");
+    }
+
+    @Benchmark
+    public Country findByCountryCode() {
+        return countryService.findByCountryCode(ThreadLocalRandom.current().nextInt(1, rows + 1));
+    }
+
+    @Benchmark
+    public List<Country> mapperFindAll() {
+        return countryStore.findAll();
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.country;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert and update as CountryService wrote them before they became single statements, a lookup by country_code
+ * followed by the write, against the write alone. H2 runs in process, so this only shows the cost of executing the
+ * extra statement; against MySQL each lookup also adds a network round trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CountryWriteBenchmark {
+
+    @Param({"100000"})
+    int rows;
+
+    CountryMapper countryMapper;
+
+    int nextCountryCode;
+
+    @Setup
+    public void setUp() throws Exception {
+        countryMapper = new BenchmarkDatabase(rows).countryMapper();
+        nextCountryCode = rows + 1;
+    }
+
+    @Benchmark
+    public Country insertAfterLookup() {
+        Country country = BenchmarkDatabase.row(nextCountryCode++);
+        if (countryMapper.findByCountryCode(country.getCountryCode()).isPresent()) {
+            throw new CountryDuplicatedException(country.getCountryCode());
+        }
+        countryMapper.insert(country);
+        return country;
+    }
+
+    @Benchmark
+    public Country insert() {
+        Country country = BenchmarkDatabase.row(nextCountryCode++);
+        countryMapper.insert(country);
+        return country;
+    }
+
+    @Benchmark
+    public Country updateAfterLookup() {
+        int countryCode = ThreadLocalRandom.current().nextInt(1, rows + 1);
+        Country country = countryMapper.findByCountryCode(countryCode)
+                .orElseThrow(() -> new CountryNotFoundException(countryCode));
+        country.setCity("Capital " + countryCode);
+        countryMapper.update(country);
+        return country;
+    }
+
+    @Benchmark
+    public Country update() {
+        int countryCode = ThreadLocalRandom.current().nextInt(1, rows + 1);
+        Country country = new Country(countryCode, "Country " + countryCode, "Capital " + countryCode);
+        if (countryMapper.update(country) == 0) {
+            throw new CountryNotFoundException(countryCode);
+        }
+        return country;
+    }
+}
@@ -0,0 +1,120 @@
+package loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Open-model load generator.
+ * <p>
+ * Requests are scheduled at fixed intervals derived from the target rate and sent without waiting for earlier responses.
+ * Latency is measured from the intended send time rather than the actual one, so a stalled server or a lagging sender
+ * shows up in the percentiles instead of silently lowering the offered load (coordinated omission).
+ */
+class CountryLoadGenerator {
+
+    record Endpoint(String name, int weight, Supplier<HttpRequest> request) {
+    }
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final HttpClient httpClient;
+
+    private final List<Endpoint> endpoints;
+
+    private final int totalWeight;
+
+    private final Map<String, Recorder> recorders = new LinkedHashMap<>();
+
+    private final Map<String, Map<Integer, AtomicLong>> statuses = new ConcurrentHashMap<>();
+
+    private final AtomicLong failures = new AtomicLong();
+
+    CountryLoadGenerator(HttpClient httpClient, List<Endpoint> endpoints) {
+        this.httpClient = httpClient;
+        this.endpoints = endpoints;
+        this.totalWeight = endpoints.stream().mapToInt(Endpoint::weight).sum();
+        endpoints.forEach(endpoint -> recorders.put(endpoint.name(), new Recorder(HIGHEST_TRACKABLE_NANOS, 3)));
+    }
+
+    /**
+     * Sends requests at {@code rate} per second for {@code durationSeconds} and returns the latency histogram of each
+     * endpoint, in nanoseconds.
+     */
+    Map<String, Histogram> run(int rate, int durationSeconds) {
+        recorders.values().forEach(Recorder::reset);
+        statuses.clear();
+        failures.set(0);
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long total = (long) rate * durationSeconds;
+        long start = System.nanoTime();
+        CompletableFuture<?>[] inFlight = new CompletableFuture<?>[(int) Math.min(total, 1 << 16)];
+        for (long i = 0; i < total; i++) {
+            long intendedStart = start + i * interval;
+            long wait = intendedStart - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Endpoint endpoint = pick();
+            int slot = (int) (i % inFlight.length);
+            if (inFlight[slot] != null) {
+                // a transport error was already counted by record(); it must not abort the run
+                inFlight[slot].exceptionally(error -> null).join();
+            }
+            inFlight[slot] = httpClient.sendAsync(endpoint.request().get(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> record(endpoint, intendedStart, response, error));
+        }
+        for (CompletableFuture<?> future : inFlight) {
+            if (future != null) {
+                future.exceptionally(error -> null).join();
+            }
+        }
+        Map<String, Histogram> histograms = new LinkedHashMap<>();
+        recorders.forEach((name, recorder) -> histograms.put(name, recorder.getIntervalHistogram()));
+        return histograms;
+    }
+
+    Map<String, Map<Integer, AtomicLong>> getStatuses() {
+        return statuses;
+    }
+
+    long getFailures() {
+        return failures.get();
+    }
+
+    private Endpoint pick() {
+        int point = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Endpoint endpoint : endpoints) {
+            point -= endpoint.weight();
+            if (point < 0) {
+                return endpoint;
+            }
+        }
+        return endpoints.get(endpoints.size() - 1);
+    }
+
+    private void record(Endpoint endpoint, long intendedStart, HttpResponse<?> response, Throwable error) {
+        long latency = Math.min(System.nanoTime() - intendedStart, HIGHEST_TRACKABLE_NANOS);
+        recorders.get(endpoint.name()).recordValue(latency);
+        if (error != null) {
+            failures.incrementAndGet();
+            return;
+        }
+        statuses.computeIfAbsent(endpoint.name(), name -> new ConcurrentHashMap<>())
+                .computeIfAbsent(response.statusCode(), status -> new AtomicLong())
+                .incrementAndGet();
+    }
+}
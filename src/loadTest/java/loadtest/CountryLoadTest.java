@@ -0,0 +1,183 @@
+package loadtest;
+
+import com.example.country.CountryApplication;
+import com.example.country.CountryBulkItem;
+import com.example.country.CountryService;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Starts the application on a random port against an in-memory H2 database in MySQL mode, or targets an already running
+ * instance with {@code loadtest.url}, and drives a weighted mix of the /countries or /v2/countries endpoints at a fixed
+ * rate.
+ * <p>
+ * Settings (system properties, passed through {@code ./gradlew loadTest -Dloadtest.rate=2000 ...}):
+ * <ul>
+ *     <li>{@code loadtest.rate} requests per second, default 1000</li>
+ *     <li>{@code loadtest.duration} measured seconds, default 30</li>
+ *     <li>{@code loadtest.warmup} unmeasured seconds before the run, default 10</li>
+ *     <li>{@code loadtest.rows} rows loaded before the run, default 10000</li>
+ *     <li>{@code loadtest.mix} endpoint weights, default {@code list=5,get=70,post=10,patch=10,delete=5}</li>
+ *     <li>{@code loadtest.api} {@code v1} for the blocking /countries endpoints, {@code v2} for the reactive
+ *     /v2/countries ones, default v1</li>
+ *     <li>{@code loadtest.profiles} Spring profiles of the embedded application, e.g. {@code virtual-threads}</li>
+ *     <li>{@code loadtest.url} base URL of an external instance instead of the embedded one</li>
+ * </ul>
+ * Percentiles are printed per endpoint and the full distributions are written to {@code build/reports/loadtest}.
+ * <p>
+ * The embedded H2 database answers in microseconds, so request threads hardly ever block on it. Comparing platform and
+ * virtual threads therefore needs an instance on Java 21 backed by MySQL, started with and without the
+ * {@code virtual-threads} profile and driven through {@code loadtest.url} at the same rates.
+ */
+public class CountryLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int rate = Integer.getInteger("loadtest.rate", 1000);
+        int duration = Integer.getInteger("loadtest.duration", 30);
+        int warmup = Integer.getInteger("loadtest.warmup", 10);
+        int rows = Integer.getInteger("loadtest.rows", 10000);
+        String mix = System.getProperty("loadtest.mix", "list=5,get=70,post=10,patch=10,delete=5");
+        String baseUrl = System.getProperty("loadtest.url");
+        String path = switch (System.getProperty("loadtest.api", "v1")) {
+            case "v1" -> "/countries";
+            case "v2" -> "/v2/countries";
+            default -> throw new IllegalArgumentException("Unknown loadtest.api: " + System.getProperty("loadtest.api"));
+        };
+
+        ConfigurableApplicationContext context = null;
+        if (baseUrl == null) {
+            context = startApplication(System.getProperty("loadtest.profiles", ""));
+            loadRows(context.getBean(CountryService.class), rows);
+            baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+        }
+
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .executor(executor)
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+            CountryLoadGenerator generator = new CountryLoadGenerator(httpClient, endpoints(URI.create(baseUrl), path, mix, rows));
+
+            System.out.printf("Warming up for %ds at %d req/s against %s%n", warmup, rate, baseUrl);
+            generator.run(rate, warmup);
+            System.out.printf("Measuring for %ds at %d req/s%n", duration, rate);
+            Map<String, Histogram> histograms = generator.run(rate, duration);
+            report(histograms, generator, Path.of("build", "reports", "loadtest"));
+        } finally {
+            executor.shutdownNow();
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startApplication(String profiles) {
+        SpringApplication application = new SpringApplication(CountryApplication.class);
+        if (!profiles.isBlank()) {
+            application.setAdditionalProfiles(profiles.split(","));
+        }
+        return application.run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:loadtest;MODE=MySQL;DATABASE_TO_LOWER=TRUE;IGNORECASE=TRUE;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--country.r2dbc.url=r2dbc:h2:mem:///loadtest;MODE=MySQL;DATABASE_TO_LOWER=TRUE;IGNORECASE=TRUE;DB_CLOSE_DELAY=-1",
+                "--country.r2dbc.username=sa",
+                "--country.r2dbc.password=",
+                "--spring.sql.init.mode=always",
+                "--spring.sql.init.schema-locations=classpath:001-create-table-and-load-data.sql",
+                "--mybatis.configuration.log-impl=org.apache.ibatis.logging.nologging.NoLoggingImpl");
+    }
+
+    private static void loadRows(CountryService countryService, int rows) {
+        List<CountryBulkItem> items = IntStream.rangeClosed(1000, 1000 + rows - 1)
+                .mapToObj(code -> new CountryBulkItem(CountryBulkItem.Operation.INSERT, code, "Country " + code, "City " + code))
+                .toList();
+        countryService.bulk(items);
+    }
+
+    private static List<CountryLoadGenerator.Endpoint> endpoints(URI baseUrl, String path, String mix, int rows) {
+        AtomicInteger nextCode = new AtomicInteger(1_000_000);
+        List<CountryLoadGenerator.Endpoint> endpoints = new ArrayList<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split("=");
+            String name = parts[0].trim();
+            int weight = Integer.parseInt(parts[1].trim());
+            endpoints.add(switch (name) {
+                case "list" -> new CountryLoadGenerator.Endpoint("GET " + path, weight, () ->
+                        HttpRequest.newBuilder(baseUrl.resolve(path + "?countryStartsWith=Country%20" + randomCode(rows) / 100)).build());
+                case "get" -> new CountryLoadGenerator.Endpoint("GET " + path + "/{country_code}", weight, () ->
+                        HttpRequest.newBuilder(baseUrl.resolve(path + "/" + randomCode(rows))).build());
+                case "post" -> new CountryLoadGenerator.Endpoint("POST " + path, weight, () -> {
+                    int code = nextCode.getAndIncrement();
+                    return json(baseUrl.resolve(path), "POST",
+                            "{\"countryCode\":" + code + ",\"country\":\"Country " + code + "\",\"city\":\"City " + code + "\"}");
+                });
+                case "patch" -> new CountryLoadGenerator.Endpoint("PATCH " + path + "/{country_code}", weight, () -> {
+                    int code = randomCode(rows);
+                    return json(baseUrl.resolve(path + "/" + code), "PATCH",
+                            "{\"country\":\"Country " + code + "\",\"city\":\"City " + ThreadLocalRandom.current().nextInt() + "\"}");
+                });
+                case "delete" -> new CountryLoadGenerator.Endpoint("DELETE " + path + "/{country_code}", weight, () -> {
+                    int code = Math.max(1_000_000, nextCode.get() - 1 - ThreadLocalRandom.current().nextInt(100));
+                    return HttpRequest.newBuilder(baseUrl.resolve(path + "/" + code)).DELETE().build();
+                });
+                default -> throw new IllegalArgumentException("Unknown endpoint in loadtest.mix: " + name);
+            });
+        }
+        return endpoints;
+    }
+
+    private static int randomCode(int rows) {
+        return 1000 + ThreadLocalRandom.current().nextInt(rows);
+    }
+
+    private static HttpRequest json(URI uri, String method, String body) {
+        return HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static void report(Map<String, Histogram> histograms, CountryLoadGenerator generator, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        System.out.printf("%-36s %10s %10s %10s %10s %10s  %s%n", "endpoint", "count", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "statuses");
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            Histogram histogram = entry.getValue();
+            System.out.printf("%-36s %10d %10.2f %10.2f %10.2f %10.2f  %s%n",
+                    entry.getKey(),
+                    histogram.getTotalCount(),
+                    histogram.getValueAtPercentile(50) / 1e6,
+                    histogram.getValueAtPercentile(99) / 1e6,
+                    histogram.getValueAtPercentile(99.9) / 1e6,
+                    histogram.getMaxValue() / 1e6,
+                    generator.getStatuses().getOrDefault(entry.getKey(), Map.of()));
+            String fileName = entry.getKey().replaceAll("[^A-Za-z]+", "-").replaceAll("^-|-$", "") + ".hgrm";
+            try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(fileName)))) {
+                histogram.outputPercentileDistribution(out, 1e6);
+            }
+        }
+        System.out.printf("Transport failures: %d%n", generator.getFailures());
+    }
+}
@@ -0,0 +1,154 @@
+package loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold-start benchmark. Launches the application from the startup jar built by {@code startupJar} once per run, each
+ * time in a fresh JVM against a fresh in-memory H2 database in MySQL mode, and measures the time from launching the
+ * process to the first successful {@code GET /countries/44}, and the resident set size right after that request.
+ * <p>
+ * Modes:
+ * <ul>
+ *     <li>{@code jvm} plain start</li>
+ *     <li>{@code cds} with a dynamic AppCDS archive, written by one training run that exits after the context refresh</li>
+ *     <li>{@code aot} with the Spring AOT initializers ({@code -Dspring.aot.enabled=true}), needs a build with -Paot</li>
+ *     <li>{@code aot-cds} both</li>
+ * </ul>
+ * Settings (system properties, passed through {@code ./gradlew startupBenchmark -Dstartup.runs=10 ...}):
+ * <ul>
+ *     <li>{@code startup.runs} measured starts per mode, default 5</li>
+ *     <li>{@code startup.modes} modes to run, default jvm,cds plus aot,aot-cds when built with -Paot</li>
+ *     <li>{@code startup.port} port of the started application, default 18080</li>
+ *     <li>{@code startup.jvmArgs} extra JVM options for the application, comma separated</li>
+ * </ul>
+ * RSS is read from /proc and reported only on Linux. Logs of every start are kept next to the jar.
+ */
+public class CountryStartupBenchmark {
+    private static final Duration START_TIMEOUT = Duration.ofMinutes(2);
+
+    public static void main(String[] args) throws Exception {
+        Path jar = Path.of(System.getProperty("startup.jar"));
+        Path schema = Path.of(System.getProperty("startup.schema"));
+        boolean aot = Boolean.getBoolean("startup.aot");
+        int runs = Integer.getInteger("startup.runs", 5);
+        int port = Integer.getInteger("startup.port", 18080);
+        String modes = System.getProperty("startup.modes", aot ? "jvm,cds,aot,aot-cds" : "jvm,cds");
+        List<String> extraJvmArgs = System.getProperty("startup.jvmArgs", "").isBlank()
+                ? List.of() : Arrays.asList(System.getProperty("startup.jvmArgs").split(","));
+
+        HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        System.out.printf("%-8s %6s %12s %12s %12s%n", "mode", "runs", "median ms", "min ms", "median RSS MB");
+        for (String mode : modes.split(",")) {
+            List<String> jvmArgs = new ArrayList<>(extraJvmArgs);
+            if (mode.startsWith("aot")) {
+                if (!aot) {
+                    throw new IllegalStateException("Mode " + mode + " needs the startup jar built with -Paot");
+                }
+                jvmArgs.add("-Dspring.aot.enabled=true");
+            }
+            if (mode.endsWith("cds")) {
+                Path archive = jar.resolveSibling(mode + ".jsa");
+                Files.deleteIfExists(archive);
+                List<String> training = new ArrayList<>(jvmArgs);
+                training.add("-XX:ArchiveClassesAtExit=" + archive);
+                training.add("-Dspring.context.exit=onRefresh");
+                Process process = launch(jar, schema, training, port, jar.resolveSibling(mode + "-training.log"));
+                if (process.waitFor() != 0 || !Files.exists(archive)) {
+                    throw new IllegalStateException("Training run for " + mode + " did not write " + archive);
+                }
+                jvmArgs.add("-XX:SharedArchiveFile=" + archive);
+            }
+
+            long[] millis = new long[runs];
+            long[] rss = new long[runs];
+            for (int run = 0; run < runs; run++) {
+                long start = System.nanoTime();
+                Process process = launch(jar, schema, jvmArgs, port, jar.resolveSibling(mode + "-" + run + ".log"));
+                try {
+                    awaitFirstRequest(httpClient, port, process);
+                    millis[run] = (System.nanoTime() - start) / 1_000_000;
+                    rss[run] = residentSetKilobytes(process.pid()).orElse(-1L);
+                } finally {
+                    stop(process);
+                }
+            }
+            Arrays.sort(millis);
+            Arrays.sort(rss);
+            System.out.printf("%-8s %6d %12d %12d %12s%n", mode, runs, millis[runs / 2], millis[0],
+                    rss[runs / 2] < 0 ? "n/a" : String.valueOf(rss[runs / 2] / 1024));
+        }
+    }
+
+    private static Process launch(Path jar, Path schema, List<String> jvmArgs, int port, Path log) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.addAll(jvmArgs);
+        command.addAll(List.of("-jar", jar.toString(),
+                "--server.port=" + port,
+                "--spring.datasource.url=jdbc:h2:mem:startup;MODE=MySQL;DATABASE_TO_LOWER=TRUE;IGNORECASE=TRUE;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--country.r2dbc.url=r2dbc:h2:mem:///startup;MODE=MySQL;DATABASE_TO_LOWER=TRUE;IGNORECASE=TRUE;DB_CLOSE_DELAY=-1",
+                "--country.r2dbc.username=sa",
+                "--country.r2dbc.password=",
+                "--spring.sql.init.mode=always",
+                "--spring.sql.init.schema-locations=file:" + schema));
+        return new ProcessBuilder(command)
+                .directory(jar.getParent().toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+    }
+
+    private static void awaitFirstRequest(HttpClient httpClient, int port, Process process) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/countries/44"))
+                .timeout(Duration.ofSeconds(5))
+                .build();
+        long deadline = System.nanoTime() + START_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Application exited with " + process.exitValue() + " before serving a request");
+            }
+            try {
+                if (httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(5);
+        }
+        throw new IllegalStateException("No successful request within " + START_TIMEOUT);
+    }
+
+    private static Optional<Long> residentSetKilobytes(long pid) throws IOException {
+        File status = new File("/proc/" + pid + "/status");
+        if (!status.exists()) {
+            return Optional.empty();
+        }
+        return Files.readAllLines(status.toPath()).stream()
+                .filter(line -> line.startsWith("VmRSS:"))
+                .map(line -> Long.parseLong(line.replaceAll("[^0-9]", "")))
+                .findFirst();
+    }
+
+    private static void stop(Process process) throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+}
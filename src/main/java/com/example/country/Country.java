@@ -3,6 +3,8 @@ package com.example.country;
 import java.util.Objects;
 
 public class Country {
+    // the country and city columns are VARCHAR(100) NOT NULL
+    static final int MAX_COLUMN_LENGTH = 100;
 
     private int countryCode;
 
@@ -40,6 +42,35 @@ public class Country {
         this.city = city;
     }
 
+    /**
+     * Describes why a country and city cannot be stored in the country and city columns, or returns null if they can.
+     */
+    static String columnError(String country, String city) {
+        String error = valueError("country", country);
+        return error != null ? error : valueError("city", city);
+    }
+
+    /**
+     * Rejects a country and city that cannot be stored, before anything is written, so both APIs answer 400 instead of
+     * passing the error on from the database.
+     */
+    static void validateColumns(String country, String city) {
+        String error = columnError(country, city);
+        if (error != null) {
+            throw new InvalidCountryException(error);
+        }
+    }
+
+    private static String valueError(String column, String value) {
+        if (value == null) {
+            return column + " is required";
+        }
+        if (value.codePointCount(0, value.length()) > MAX_COLUMN_LENGTH) {
+            return column + " must be at most " + MAX_COLUMN_LENGTH + " characters";
+        }
+        return null;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,181 @@
+package com.example.country;
+
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.logging.slf4j.Slf4jImpl;
+import org.apache.ibatis.scripting.defaults.RawLanguageDriver;
+import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
+import org.mybatis.spring.mapper.MapperFactoryBean;
+import org.mybatis.spring.mapper.MapperScannerConfigurer;
+import org.springframework.aot.AotDetector;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotContribution;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotProcessor;
+import org.springframework.beans.factory.aot.BeanRegistrationExcludeFilter;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.RegisteredBean;
+import org.springframework.beans.factory.support.MergedBeanDefinitionPostProcessor;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * Makes the MyBatis parts of the context usable after Spring AOT processing ({@code -Paot}).
+ * <p>
+ * The mapper scanner registers {@link CountryMapper} as a raw {@link MapperFactoryBean}, so the generated bean
+ * definition does not say which type it produces and autowiring {@code CountryMapper} has to instantiate the factory
+ * to find out. {@link #mapperFactoryBeanTypeResolver()} records the mapper interface as the factory's generic type,
+ * and as a {@code Class} constructor argument instead of the scanned class name, before the definitions are written
+ * out. The scanner itself is left out of the generated registrations, otherwise it
+ * would scan again at startup and collide with the mapper definition AOT already registered. The runtime hints cover
+ * what MyBatis reaches by reflection and JDK proxies, which only matters for the native image.
+ * <p>
+ * AOT also evaluates {@code @ConditionalOnProperty} once, at build time, so the properties in
+ * {@link #BUILD_TIME_PROPERTIES} cannot be changed by the configuration an AOT build is started with. Their build-time
+ * values are written to {@value #BUILD_TIME_PROPERTIES_RESOURCE}, and a start with {@code spring.aot.enabled} whose
+ * configuration disagrees with them fails instead of running the components of the other setting.
+ */
+@Configuration(proxyBeanMethods = false)
+@ImportRuntimeHints(CountryAotConfig.MyBatisRuntimeHints.class)
+public class CountryAotConfig {
+    static final List<String> BUILD_TIME_PROPERTIES = List.of("country.datasource.routing.enabled", "country.store.type");
+
+    static final String BUILD_TIME_PROPERTIES_RESOURCE = "META-INF/country-aot.properties";
+
+    @Bean
+    static MergedBeanDefinitionPostProcessor mapperFactoryBeanTypeResolver() {
+        return (beanDefinition, beanType, beanName) -> resolveMapperFactoryBeanType(beanDefinition);
+    }
+
+    @Bean
+    static MapperScannerExcludeFilter mapperScannerExcludeFilter() {
+        return new MapperScannerExcludeFilter();
+    }
+
+    @Bean
+    static BuildTimePropertiesRecorder buildTimePropertiesRecorder() {
+        return new BuildTimePropertiesRecorder();
+    }
+
+    @Bean
+    static BuildTimePropertiesCheck buildTimePropertiesCheck() {
+        return new BuildTimePropertiesCheck();
+    }
+
+    static Properties buildTimeProperties(Environment environment) {
+        Properties properties = new Properties();
+        for (String name : BUILD_TIME_PROPERTIES) {
+            properties.setProperty(name, environment.getProperty(name, ""));
+        }
+        return properties;
+    }
+
+    static void checkBuildTimeProperties(Properties built, Environment environment) {
+        for (String name : BUILD_TIME_PROPERTIES) {
+            String builtValue = built.getProperty(name, "");
+            String value = environment.getProperty(name, "");
+            if (!Objects.equals(builtValue, value)) {
+                throw new IllegalStateException(name + " is '" + value + "' but the AOT build was made with '" + builtValue
+                        + "'; rebuild with -Paot using this setting or start without spring.aot.enabled");
+            }
+        }
+    }
+
+    static void resolveMapperFactoryBeanType(RootBeanDefinition beanDefinition) {
+        if (!beanDefinition.hasBeanClass() || !MapperFactoryBean.class.isAssignableFrom(beanDefinition.getBeanClass())
+                || !beanDefinition.getResolvableType().hasUnresolvableGenerics()) {
+            return;
+        }
+        PropertyValue mapperInterface = beanDefinition.getPropertyValues().getPropertyValue("mapperInterface");
+        if (mapperInterface != null && mapperInterface.getValue() instanceof Class<?> type) {
+            beanDefinition.setTargetType(ResolvableType.forClassWithGenerics(beanDefinition.getBeanClass(), type));
+            // the generated instance supplier does not convert the scanner's class name argument into a Class
+            beanDefinition.getConstructorArgumentValues().clear();
+            beanDefinition.getConstructorArgumentValues().addIndexedArgumentValue(0, type);
+        }
+    }
+
+    // Spring only picks up exclude filters from beans that are also AOT processors; this one contributes nothing else
+    static class MapperScannerExcludeFilter implements BeanRegistrationExcludeFilter, BeanFactoryInitializationAotProcessor {
+        @Override
+        public boolean isExcludedFromAotProcessing(RegisteredBean registeredBean) {
+            return MapperScannerConfigurer.class.isAssignableFrom(registeredBean.getBeanClass());
+        }
+
+        @Override
+        public BeanFactoryInitializationAotContribution processAheadOfTime(ConfigurableListableBeanFactory beanFactory) {
+            return null;
+        }
+    }
+
+    static class BuildTimePropertiesRecorder implements BeanFactoryInitializationAotProcessor {
+        @Override
+        public BeanFactoryInitializationAotContribution processAheadOfTime(ConfigurableListableBeanFactory beanFactory) {
+            Properties properties = buildTimeProperties(beanFactory.getBean(Environment.class));
+            return (generationContext, code) -> {
+                StringWriter content = new StringWriter();
+                try {
+                    properties.store(content, "@ConditionalOnProperty inputs the AOT build was made with");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                generationContext.getGeneratedFiles().addResourceFile(BUILD_TIME_PROPERTIES_RESOURCE, content.toString());
+            };
+        }
+    }
+
+    static class BuildTimePropertiesCheck implements BeanFactoryPostProcessor, EnvironmentAware {
+        private Environment environment;
+
+        @Override
+        public void setEnvironment(Environment environment) {
+            this.environment = environment;
+        }
+
+        @Override
+        public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+            ClassPathResource resource = new ClassPathResource(BUILD_TIME_PROPERTIES_RESOURCE, beanFactory.getBeanClassLoader());
+            if (!AotDetector.useGeneratedArtifacts() || !resource.exists()) {
+                return;
+            }
+            Properties built = new Properties();
+            try (InputStream input = resource.getInputStream()) {
+                built.load(input);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            checkBuildTimeProperties(built, environment);
+        }
+    }
+
+    static class MyBatisRuntimeHints implements RuntimeHintsRegistrar {
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            hints.proxies().registerJdkProxy(CountryMapper.class);
+            // Plugin.wrap proxies the executor for the interceptors
+            hints.proxies().registerJdkProxy(Executor.class);
+            Stream.of(CountryMapper.class, Country.class, CountryVersion.class,
+                            RawLanguageDriver.class, XMLLanguageDriver.class, Slf4jImpl.class, PerpetualCache.class)
+                    .forEach(type -> hints.reflection().registerType(type, MemberCategory.values()));
+            hints.resources().registerPattern("org/apache/ibatis/builder/xml/*.dtd");
+        }
+    }
+}
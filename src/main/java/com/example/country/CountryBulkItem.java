@@ -0,0 +1,62 @@
+package com.example.country;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Objects;
+
+public class CountryBulkItem {
+
+    public enum Operation {
+        @JsonProperty("insert") INSERT,
+        @JsonProperty("update") UPDATE,
+        @JsonProperty("delete") DELETE
+    }
+
+    private Operation operation;
+
+    private int countryCode;
+
+    private String country;
+
+    private String city;
+
+    public CountryBulkItem(Operation operation, int countryCode, String country, String city) {
+        this.operation = operation;
+        this.countryCode = countryCode;
+        this.country = country;
+        this.city = city;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public int getCountryCode() {
+        return countryCode;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    public Country toCountry() {
+        return new Country(countryCode, country, city);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CountryBulkItem that = (CountryBulkItem) o;
+        return countryCode == that.countryCode && operation == that.operation && Objects.equals(country, that.country) && Objects.equals(city, that.city);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(operation, countryCode, country, city);
+    }
+}
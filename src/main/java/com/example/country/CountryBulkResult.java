@@ -0,0 +1,54 @@
+package com.example.country;
+
+import java.util.Objects;
+
+public class CountryBulkResult {
+
+    private CountryBulkItem.Operation operation;
+
+    private int countryCode;
+
+    private int status;
+
+    private String message;
+
+    public CountryBulkResult(CountryBulkItem.Operation operation, int countryCode, int status, String message) {
+        this.operation = operation;
+        this.countryCode = countryCode;
+        this.status = status;
+        this.message = message;
+    }
+
+    public CountryBulkItem.Operation getOperation() {
+        return operation;
+    }
+
+    public int getCountryCode() {
+        return countryCode;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public boolean isSucceeded() {
+        return status < 400;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CountryBulkResult that = (CountryBulkResult) o;
+        return countryCode == that.countryCode && status == that.status && operation == that.operation && Objects.equals(message, that.message);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(operation, countryCode, status, message);
+    }
+}
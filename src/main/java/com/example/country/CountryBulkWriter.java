@@ -0,0 +1,74 @@
+package com.example.country;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies a list of insert/update/delete operations in one transaction through {@link CountryStore#writeAll}, a JDBC
+ * batch on MySQL and a single forced log write on the embedded file.
+ * <p>
+ * The outcome of each item is read from its update count rather than from a lookup before the write. Inserts behave
+ * like {@code INSERT IGNORE} so that a duplicate shows up as a zero count for that item instead of failing the whole
+ * batch. IGNORE would also turn a null or too long value into a warning and store '' or a truncated value, so such
+ * items are rejected with a 400 before the batch and never reach the store; the primary key is then the only error
+ * left for IGNORE to absorb.
+ */
+@Component
+public class CountryBulkWriter {
+    private final CountryStore countryStore;
+
+    public CountryBulkWriter(CountryStore countryStore) {
+        this.countryStore = countryStore;
+    }
+
+    @Transactional
+    public List<CountryBulkResult> write(List<CountryBulkItem> items) {
+        List<CountryBulkItem> valid = new ArrayList<>(items.size());
+        String[] errors = new String[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            errors[i] = error(items.get(i));
+            if (errors[i] == null) {
+                valid.add(items.get(i));
+            }
+        }
+        int[] updateCounts = countryStore.writeAll(valid);
+
+        List<CountryBulkResult> results = new ArrayList<>(items.size());
+        int next = 0;
+        for (int i = 0; i < items.size(); i++) {
+            CountryBulkItem item = items.get(i);
+            if (errors[i] != null) {
+                results.add(new CountryBulkResult(item.getOperation(), item.getCountryCode(), HttpStatus.BAD_REQUEST.value(), errors[i]));
+            } else {
+                results.add(result(item, updateCounts[next++]));
+            }
+        }
+        return results;
+    }
+
+    private static String error(CountryBulkItem item) {
+        if (item.getOperation() == null) {
+            return "operation is required";
+        }
+        return item.getOperation() == CountryBulkItem.Operation.DELETE ? null : Country.columnError(item.getCountry(), item.getCity());
+    }
+
+    private static CountryBulkResult result(CountryBulkItem item, int updateCount) {
+        int countryCode = item.getCountryCode();
+        return switch (item.getOperation()) {
+            case INSERT -> updateCount > 0
+                    ? new CountryBulkResult(item.getOperation(), countryCode, HttpStatus.CREATED.value(), "country created")
+                    : new CountryBulkResult(item.getOperation(), countryCode, HttpStatus.CONFLICT.value(), "Country with code " + countryCode + " duplicated");
+            case UPDATE -> updateCount > 0
+                    ? new CountryBulkResult(item.getOperation(), countryCode, HttpStatus.OK.value(), "country updated")
+                    : new CountryBulkResult(item.getOperation(), countryCode, HttpStatus.NOT_FOUND.value(), "Country with code " + countryCode + " not found");
+            case DELETE -> updateCount > 0
+                    ? new CountryBulkResult(item.getOperation(), countryCode, HttpStatus.OK.value(), "country deleted")
+                    : new CountryBulkResult(item.getOperation(), countryCode, HttpStatus.NOT_FOUND.value(), "Country with code " + countryCode + " not found");
+        };
+    }
+}
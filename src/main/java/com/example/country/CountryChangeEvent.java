@@ -0,0 +1,71 @@
+package com.example.country;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Objects;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CountryChangeEvent {
+
+    public static final String INSERT = "insert";
+
+    public static final String UPDATE = "update";
+
+    public static final String DELETE = "delete";
+
+    // tells a resuming client that events it missed are gone and it has to reload the list
+    public static final String RESET = "reset";
+
+    private final long id;
+
+    private final String type;
+
+    private final Integer countryCode;
+
+    private final String country;
+
+    private final String city;
+
+    public CountryChangeEvent(long id, String type, Integer countryCode, String country, String city) {
+        this.id = id;
+        this.type = type;
+        this.countryCode = countryCode;
+        this.country = country;
+        this.city = city;
+    }
+
+    @JsonIgnore
+    public long getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Integer getCountryCode() {
+        return countryCode;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CountryChangeEvent that = (CountryChangeEvent) o;
+        return id == that.id && Objects.equals(type, that.type) && Objects.equals(countryCode, that.countryCode) && Objects.equals(country, that.country) && Objects.equals(city, that.city);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, type, countryCode, country, city);
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.country;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fan-out of country changes to Server-Sent Events subscribers.
+ * <p>
+ * Every change gets an increasing id and is kept in a bounded history, so a client that reconnects with
+ * {@code Last-Event-ID} receives what it missed. Ids start from the start time of the process in microseconds, which
+ * keeps them increasing across restarts; a client whose id is older than the history, or that missed more events than
+ * its queue holds, gets a {@code reset} event and should reload the list.
+ * <p>
+ * Publishing never blocks on a subscriber. Each subscriber has a bounded queue drained by a small shared pool; a
+ * subscriber whose queue overflows is disconnected and catches up from the history when it reconnects.
+ */
+@Component
+public class CountryChangeStream {
+    private static final Logger log = LoggerFactory.getLogger(CountryChangeStream.class);
+
+    private static final CountryChangeEvent HEARTBEAT = new CountryChangeEvent(0, "heartbeat", null, null, null);
+
+    private final int historySize;
+
+    private final int queueCapacity;
+
+    private final Duration timeout;
+
+    private final Deque<CountryChangeEvent> history = new ArrayDeque<>();
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService dispatcher;
+
+    private final ScheduledExecutorService heartbeat;
+
+    private long lastId = System.currentTimeMillis() * 1_000;
+
+    public CountryChangeStream(@Value("${country.changes.history:10000}") int historySize,
+                               @Value("${country.changes.queue-capacity:256}") int queueCapacity,
+                               @Value("${country.changes.timeout:30m}") Duration timeout,
+                               @Value("${country.changes.heartbeat:15s}") Duration heartbeatInterval,
+                               @Value("${country.changes.dispatch-threads:4}") int dispatchThreads) {
+        this.historySize = historySize;
+        this.queueCapacity = queueCapacity;
+        this.timeout = timeout;
+        AtomicInteger threads = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(dispatchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "country-changes-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "country-changes-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleAtFixedRate(() -> subscribers.forEach(subscriber -> subscriber.offer(HEARTBEAT)),
+                heartbeatInterval.toMillis(), heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        heartbeat.shutdownNow();
+        dispatcher.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public synchronized void publish(String type, int countryCode, String country, String city) {
+        CountryChangeEvent event = new CountryChangeEvent(++lastId, type, countryCode, country, city);
+        history.addLast(event);
+        if (history.size() > historySize) {
+            history.removeFirst();
+        }
+        subscribers.forEach(subscriber -> subscriber.offer(event));
+    }
+
+    public SseEmitter subscribe(Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        return subscribe(lastEventId, emitter);
+    }
+
+    synchronized SseEmitter subscribe(Long lastEventId, SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        if (lastEventId != null) {
+            CountryChangeEvent oldest = history.peekFirst();
+            long oldestId = oldest == null ? lastId + 1 : oldest.getId();
+            // the replay has to fit the queue, or the events that do not fit would be lost without a disconnect
+            if (lastEventId < oldestId - 1 || lastEventId > lastId || lastId - lastEventId > queueCapacity) {
+                subscriber.offer(new CountryChangeEvent(lastId, CountryChangeEvent.RESET, null, null, null));
+            } else {
+                history.stream().filter(event -> event.getId() > lastEventId).forEach(subscriber::offer);
+            }
+        }
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+
+        private final BlockingQueue<CountryChangeEvent> queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void offer(CountryChangeEvent event) {
+            if (!queue.offer(event)) {
+                if (subscribers.remove(this)) {
+                    log.info("Disconnecting a change subscriber that fell {} events behind", queueCapacity);
+                    emitter.complete();
+                }
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                dispatcher.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                CountryChangeEvent event;
+                while ((event = queue.poll()) != null) {
+                    try {
+                        send(event);
+                    } catch (IOException | IllegalStateException e) {
+                        subscribers.remove(this);
+                        queue.clear();
+                        return;
+                    }
+                }
+                draining.set(false);
+            } while (!queue.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        private void send(CountryChangeEvent event) throws IOException {
+            if (event == HEARTBEAT) {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+                return;
+            }
+            emitter.send(SseEmitter.event()
+                    .id(Long.toString(event.getId()))
+                    .name(event.getType())
+                    .data(event, MediaType.APPLICATION_JSON));
+        }
+    }
+}
@@ -1,38 +1,156 @@
 package com.example.country;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.util.List;
 
 @RestController
 public class CountryController {
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private static final int MAX_MULTI_GET_CODES = 1000;
+
+    // one request is one transaction; larger loads go through POST /countries/snapshot
+    private static final int MAX_BULK_ITEMS = 1000;
+
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private static final MediaType APPLICATION_COUNTRY_SNAPSHOT = MediaType.parseMediaType("application/vnd.country-snapshot");
+
+    private static final MediaType APPLICATION_SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
     private final CountryService countryService;
 
-    public CountryController(CountryService countryService) {
+    private final ObjectMapper objectMapper;
+
+    private final ContentNegotiationManager contentNegotiationManager;
+
+    private final CountryChangeStream countryChangeStream;
+
+    private final CountrySnapshotImporter countrySnapshotImporter;
+
+    public CountryController(CountryService countryService, ObjectMapper objectMapper,
+                             ContentNegotiationManager mvcContentNegotiationManager, CountryChangeStream countryChangeStream,
+                             CountrySnapshotImporter countrySnapshotImporter) {
         this.countryService = countryService;
+        this.objectMapper = objectMapper;
+        this.contentNegotiationManager = mvcContentNegotiationManager;
+        this.countryChangeStream = countryChangeStream;
+        this.countrySnapshotImporter = countrySnapshotImporter;
     }
 
     @GetMapping("/countries")
-    public List<Country> getCountries(
+    public ResponseEntity<List<Country>> getCountries(
             @RequestParam(name = "countryStartsWith", required = false, defaultValue = "") String countryStartsWith,
-            @RequestParam(name = "cityStartsWith", required = false, defaultValue = "") String cityStartsWith
-            ) {
-        return countryService.getCountries(countryStartsWith, cityStartsWith);
+            @RequestParam(name = "cityStartsWith", required = false, defaultValue = "") String cityStartsWith,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "after", required = false) String after,
+            NativeWebRequest webRequest
+            ) throws HttpMediaTypeNotAcceptableException {
+        if (limit == null && after == null) {
+            String eTag = withRepresentation(countryService.getCountriesVersion(countryStartsWith, cityStartsWith).toETag(), webRequest);
+            if (webRequest.checkNotModified(eTag)) {
+                return notModified(eTag);
+            }
+            return ResponseEntity.ok().eTag(eTag).varyBy(HttpHeaders.ACCEPT)
+                    .body(countryService.getCountries(countryStartsWith, cityStartsWith));
+        }
+        int pageSize = limit == null ? MAX_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new InvalidCountryPageException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        CountryCursor cursor = after == null ? null : CountryCursor.decode(after);
+        CountryPage page = countryService.getCountryPage(countryStartsWith, cityStartsWith, cursor, pageSize);
+        if (page.getNext() == null) {
+            return ResponseEntity.ok(page.getCountries());
+        }
+        String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("limit", pageSize)
+                .replaceQueryParam("after", page.getNext().encode())
+                .toUriString();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+                .body(page.getCountries());
+    }
+
+    @GetMapping(value = "/countries", params = "codes")
+    public CountryMultiGetResult getCountriesByCodes(@RequestParam("codes") List<Integer> codes) {
+        return multiGet(codes);
+    }
+
+    @PostMapping("/countries/_mget")
+    public CountryMultiGetResult multiGet(@RequestBody List<Integer> codes) {
+        if (codes.isEmpty() || codes.size() > MAX_MULTI_GET_CODES) {
+            throw new InvalidCountryCodesException("codes must contain between 1 and " + MAX_MULTI_GET_CODES + " country codes");
+        }
+        if (codes.contains(null)) {
+            throw new InvalidCountryCodesException("codes must not contain null");
+        }
+        return countryService.findByCountryCodes(codes);
+    }
+
+    @GetMapping(value = "/countries/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> stream() {
+        StreamingResponseBody body = output -> {
+            try (CountryNdjsonWriter writer = new CountryNdjsonWriter(objectMapper, output)) {
+                countryService.exportAll(writer);
+            }
+        };
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+    }
+
+    @GetMapping(value = "/countries/snapshot", produces = "application/vnd.country-snapshot")
+    public ResponseEntity<StreamingResponseBody> exportSnapshot(@RequestParam(name = "compressed", defaultValue = "true") boolean compressed) {
+        StreamingResponseBody body = output -> {
+            try (CountrySnapshotWriter writer = new CountrySnapshotWriter(output, compressed)) {
+                countryService.exportAll(writer);
+            }
+        };
+        return ResponseEntity.ok().contentType(APPLICATION_COUNTRY_SNAPSHOT).body(body);
+    }
+
+    @PostMapping(value = "/countries/snapshot", consumes = "application/vnd.country-snapshot")
+    public CountrySnapshotResult importSnapshot(InputStream body) throws IOException {
+        return countrySnapshotImporter.load(body);
+    }
+
+    @GetMapping(value = "/countries/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter changes(@RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+        return countryChangeStream.subscribe(lastEventId);
     }
 
     @GetMapping("/countries/{country_code}")
-    public Country findByCountryCode(@PathVariable("country_code") int countryCode) {
-        return countryService.findByCountryCode(countryCode);
+    public ResponseEntity<Country> findByCountryCode(@PathVariable("country_code") int countryCode, NativeWebRequest webRequest)
+            throws HttpMediaTypeNotAcceptableException {
+        Country country = countryService.findByCountryCode(countryCode);
+        String eTag = withRepresentation(eTag(country), webRequest);
+        if (webRequest.checkNotModified(eTag)) {
+            return notModified(eTag);
+        }
+        return ResponseEntity.ok().eTag(eTag).varyBy(HttpHeaders.ACCEPT).body(country);
     }
 
     @PostMapping("/countries")
@@ -52,8 +170,62 @@ public class CountryController {
 
     @DeleteMapping("/countries/{country_code}")
     public ResponseEntity<CountryResponse> delete(@PathVariable("country_code") int countryCode) {
-        Country country = countryService.delete(countryCode);
+        countryService.delete(countryCode);
         CountryResponse body = new CountryResponse("country deleted");
         return ResponseEntity.ok(body);
     }
+
+    @PostMapping("/countries/_bulk")
+    public List<CountryBulkResult> bulk(@RequestBody List<CountryBulkItem> items) {
+        if (items.size() > MAX_BULK_ITEMS) {
+            throw new InvalidCountryBulkException("a bulk request must contain at most " + MAX_BULK_ITEMS + " operations");
+        }
+        return countryService.bulk(items);
+    }
+
+    private static <T> ResponseEntity<T> notModified(String eTag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).varyBy(HttpHeaders.ACCEPT).build();
+    }
+
+    /**
+     * Marks the ETag with the format the request negotiates, so that the JSON, CBOR and Smile bodies of the same rows,
+     * which differ byte for byte, never share a strong ETag. JSON, the default, keeps the plain ETag.
+     */
+    private String withRepresentation(String eTag, NativeWebRequest webRequest) throws HttpMediaTypeNotAcceptableException {
+        for (MediaType accepted : contentNegotiationManager.resolveMediaTypes(webRequest)) {
+            if (accepted.includes(MediaType.APPLICATION_JSON)) {
+                return eTag;
+            }
+            if (accepted.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+                return eTag.substring(0, eTag.length() - 1) + "-cbor\"";
+            }
+            if (accepted.isCompatibleWith(APPLICATION_SMILE)) {
+                return eTag.substring(0, eTag.length() - 1) + "-smile\"";
+            }
+        }
+        return eTag;
+    }
+
+    /**
+     * Strong ETag of a single country, a 64-bit FNV-1a hash of its fields.
+     * <p>
+     * A single country is served from the cache or the replica, neither of which carries the updated_at column, so
+     * the ETag is derived from the content instead. Equal fields always produce the same body, which is what a strong
+     * validator promises, and no extra query is needed.
+     */
+    static String eTag(Country country) {
+        long hash = 0xcbf29ce484222325L;
+        hash = fnv1a(hash, Integer.toString(country.getCountryCode()));
+        hash = fnv1a(hash, country.getCountry());
+        hash = fnv1a(hash, country.getCity());
+        return "\"" + Long.toHexString(hash) + "\"";
+    }
+
+    private static long fnv1a(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        // a noncharacter separator keeps ("ab", "c") and ("a", "bc") apart
+        return (hash ^ 0xffff) * 0x100000001b3L;
+    }
 }
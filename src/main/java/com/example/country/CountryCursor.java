@@ -0,0 +1,58 @@
+package com.example.country;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+
+public class CountryCursor {
+
+    private final int countryCode;
+
+    private final String sortKey;
+
+    public CountryCursor(int countryCode, String sortKey) {
+        this.countryCode = countryCode;
+        this.sortKey = sortKey;
+    }
+
+    public static CountryCursor decode(String token) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCountryPageException("Invalid cursor " + token);
+        }
+        String[] parts = decoded.split(":", 2);
+        try {
+            return new CountryCursor(Integer.parseInt(parts[0]), parts.length == 2 ? parts[1] : null);
+        } catch (NumberFormatException e) {
+            throw new InvalidCountryPageException("Invalid cursor " + token);
+        }
+    }
+
+    public String encode() {
+        String value = sortKey == null ? String.valueOf(countryCode) : countryCode + ":" + sortKey;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public int getCountryCode() {
+        return countryCode;
+    }
+
+    public String getSortKey() {
+        return sortKey;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CountryCursor that = (CountryCursor) o;
+        return countryCode == that.countryCode && Objects.equals(sortKey, that.sortKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(countryCode, sortKey);
+    }
+}
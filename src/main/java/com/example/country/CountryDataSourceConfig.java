@@ -0,0 +1,92 @@
+package com.example.country;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(CountryDataSourceProperties.class)
+@ConditionalOnProperty(name = "country.datasource.routing.enabled", havingValue = "true")
+@EnableScheduling
+public class CountryDataSourceConfig implements SchedulingConfigurer {
+    private final CountryDataSourceProperties properties;
+
+    private final ObjectProvider<CountryReplicaLagMonitor> countryReplicaLagMonitor;
+
+    public CountryDataSourceConfig(CountryDataSourceProperties properties, ObjectProvider<CountryReplicaLagMonitor> countryReplicaLagMonitor) {
+        this.properties = properties;
+        this.countryReplicaLagMonitor = countryReplicaLagMonitor;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addFixedDelayTask(() -> countryReplicaLagMonitor.getObject().checkReplicaLag(),
+                properties.getRouting().getLagCheckInterval());
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+        return primary;
+    }
+
+    @Bean
+    CountryRoutingDataSource countryRoutingDataSource(HikariDataSource primaryDataSource, DataSourceProperties dataSourceProperties,
+                                                      MeterRegistry meterRegistry) {
+        primaryDataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < properties.getReplicas().size(); i++) {
+            CountryDataSourceProperties.Replica replica = properties.getReplicas().get(i);
+            HikariDataSource replicaDataSource = new HikariDataSource();
+            replicaDataSource.setPoolName("replica-" + i);
+            replicaDataSource.setJdbcUrl(replica.getUrl());
+            replicaDataSource.setUsername(replica.getUsername() == null ? dataSourceProperties.getUsername() : replica.getUsername());
+            replicaDataSource.setPassword(replica.getPassword() == null ? dataSourceProperties.getPassword() : replica.getPassword());
+            replicaDataSource.setMaximumPoolSize(primaryDataSource.getMaximumPoolSize());
+            replicaDataSource.setReadOnly(true);
+            replicaDataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(replicaDataSource);
+        }
+        return new CountryRoutingDataSource(primaryDataSource, replicas, properties.getRouting(),
+                CountryDataSourceConfig::activeConnections, System::currentTimeMillis);
+    }
+
+    @Bean
+    @Primary
+    DataSource dataSource(CountryRoutingDataSource countryRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(countryRoutingDataSource);
+    }
+
+    @Bean
+    CountryReadRoutingInterceptor countryReadRoutingInterceptor(CountryRoutingDataSource countryRoutingDataSource) {
+        return new CountryReadRoutingInterceptor(countryRoutingDataSource);
+    }
+
+    @Bean
+    CountryReplicaLagMonitor countryReplicaLagMonitor(CountryRoutingDataSource countryRoutingDataSource) {
+        return new CountryReplicaLagMonitor(countryRoutingDataSource, properties.getRouting().isStandaloneReplicas());
+    }
+
+    private static int activeConnections(DataSource dataSource) {
+        HikariDataSource hikari = (HikariDataSource) dataSource;
+        return hikari.getHikariPoolMXBean() == null ? 0 : hikari.getHikariPoolMXBean().getActiveConnections();
+    }
+}
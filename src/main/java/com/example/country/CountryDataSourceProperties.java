@@ -0,0 +1,127 @@
+package com.example.country;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "country.datasource")
+public class CountryDataSourceProperties {
+
+    public enum Balancing {
+        ROUND_ROBIN, LEAST_BUSY
+    }
+
+    private final Routing routing = new Routing();
+
+    private final List<Replica> replicas = new ArrayList<>();
+
+    public Routing getRouting() {
+        return routing;
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    public static class Routing {
+
+        private boolean enabled;
+
+        private Balancing balancing = Balancing.ROUND_ROBIN;
+
+        private Duration maxReplicaLag = Duration.ofSeconds(5);
+
+        private Duration readAfterWriteWindow = Duration.ofSeconds(1);
+
+        private Duration lagCheckInterval = Duration.ofSeconds(5);
+
+        private boolean standaloneReplicas;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Balancing getBalancing() {
+            return balancing;
+        }
+
+        public void setBalancing(Balancing balancing) {
+            this.balancing = balancing;
+        }
+
+        public Duration getMaxReplicaLag() {
+            return maxReplicaLag;
+        }
+
+        public void setMaxReplicaLag(Duration maxReplicaLag) {
+            this.maxReplicaLag = maxReplicaLag;
+        }
+
+        public Duration getReadAfterWriteWindow() {
+            return readAfterWriteWindow;
+        }
+
+        public void setReadAfterWriteWindow(Duration readAfterWriteWindow) {
+            this.readAfterWriteWindow = readAfterWriteWindow;
+        }
+
+        public Duration getLagCheckInterval() {
+            return lagCheckInterval;
+        }
+
+        public void setLagCheckInterval(Duration lagCheckInterval) {
+            this.lagCheckInterval = lagCheckInterval;
+        }
+
+        /**
+         * Whether a replica that reports no replication status, such as a standalone test instance, counts as up to
+         * date. Off by default, because a replica whose replication was reset reports no status either.
+         */
+        public boolean isStandaloneReplicas() {
+            return standaloneReplicas;
+        }
+
+        public void setStandaloneReplicas(boolean standaloneReplicas) {
+            this.standaloneReplicas = standaloneReplicas;
+        }
+    }
+
+    public static class Replica {
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+    }
+}
@@ -1,8 +1,33 @@
 package com.example.country;
 
+/**
+ * Thrown for a country code that already exists. Like {@link CountryNotFoundException} it records no stack trace and
+ * formats its message lazily when built from a code.
+ */
 public class CountryDuplicatedException extends RuntimeException {
 
+    private final int countryCode;
+
     public CountryDuplicatedException(String message) {
-        super(message);
+        super(message, null, false, false);
+        this.countryCode = 0;
+    }
+
+    public CountryDuplicatedException(int countryCode) {
+        super(null, null, false, false);
+        this.countryCode = countryCode;
+    }
+
+    public boolean hasCountryCode() {
+        return super.getMessage() == null;
+    }
+
+    public int getCountryCode() {
+        return countryCode;
+    }
+
+    @Override
+    public String getMessage() {
+        return hasCountryCode() ? "Country with code " + countryCode + " duplicated" : super.getMessage();
     }
 }
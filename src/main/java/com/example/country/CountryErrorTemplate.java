@@ -0,0 +1,120 @@
+package com.example.country;
+
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * Pre-encoded JSON body of a per-country error.
+ * <p>
+ * Produces the same fields as the map-based bodies of {@link CountryExceptionHandler}, but everything except the
+ * country code, the path and the timestamp is encoded once up front, and the parts are written straight to the
+ * response stream. The timestamp is formatted at most once per millisecond and shared across requests.
+ */
+final class CountryErrorTemplate {
+    static final CountryErrorTemplate NOT_FOUND = new CountryErrorTemplate(HttpStatus.NOT_FOUND, " not found");
+
+    static final CountryErrorTemplate DUPLICATED = new CountryErrorTemplate(HttpStatus.CONFLICT, " duplicated");
+
+    private static final byte[] PATH = ascii("\",\"path\":\"");
+
+    private static final byte[] TIMESTAMP = ascii("\",\"timestamp\":\"");
+
+    private static final byte[] END = ascii("\"}");
+
+    private static final byte[] HEX = ascii("0123456789abcdef");
+
+    private static volatile Timestamp lastTimestamp = new Timestamp(0, new byte[0]);
+
+    private final HttpStatus status;
+
+    private final byte[] head;
+
+    private final byte[] messageEnd;
+
+    private CountryErrorTemplate(HttpStatus status, String messageEnd) {
+        this.status = status;
+        this.head = ascii("{\"status\":\"" + status.value() + "\",\"error\":\"" + status.getReasonPhrase()
+                + "\",\"message\":\"Country with code ");
+        this.messageEnd = ascii(messageEnd);
+    }
+
+    HttpStatus getStatus() {
+        return status;
+    }
+
+    void write(OutputStream out, int countryCode, String path, long currentTimeMillis) throws IOException {
+        out.write(head);
+        writeInt(out, countryCode);
+        out.write(messageEnd);
+        out.write(PATH);
+        writeEscaped(out, path);
+        out.write(TIMESTAMP);
+        out.write(timestamp(currentTimeMillis));
+        out.write(END);
+    }
+
+    private static byte[] timestamp(long currentTimeMillis) {
+        Timestamp cached = lastTimestamp;
+        if (cached.millis != currentTimeMillis) {
+            String formatted = ZonedDateTime.ofInstant(Instant.ofEpochMilli(currentTimeMillis), ZoneId.systemDefault()).toString();
+            cached = new Timestamp(currentTimeMillis, ascii(formatted));
+            lastTimestamp = cached;
+        }
+        return cached.bytes;
+    }
+
+    private static void writeInt(OutputStream out, int value) throws IOException {
+        if (value < 0) {
+            out.write('-');
+            if (value == Integer.MIN_VALUE) {
+                out.write(ascii("2147483648"));
+                return;
+            }
+            value = -value;
+        }
+        int divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            out.write('0' + value / divisor % 10);
+        }
+    }
+
+    private static void writeEscaped(OutputStream out, String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.write('\\');
+                out.write(c);
+            } else if (c < 0x20) {
+                out.write('\\');
+                out.write('u');
+                out.write('0');
+                out.write('0');
+                out.write(HEX[c >> 4]);
+                out.write(HEX[c & 0xf]);
+            } else if (c < 0x80) {
+                out.write(c);
+            } else {
+                // request URIs are percent-encoded, so this is the rare case
+                int end = Character.isHighSurrogate(c) && i + 1 < value.length() ? i + 2 : i + 1;
+                out.write(value.substring(i, end).getBytes(StandardCharsets.UTF_8));
+                i = end - 1;
+            }
+        }
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private record Timestamp(long millis, byte[] bytes) {
+    }
+}
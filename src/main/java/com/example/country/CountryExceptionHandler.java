@@ -1,11 +1,15 @@
 package com.example.country;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
+import java.io.IOException;
 import java.time.ZonedDateTime;
 import java.util.Map;
 
@@ -13,7 +17,11 @@ import java.util.Map;
 public class CountryExceptionHandler {
     @ExceptionHandler(CountryNotFoundException.class)
     public ResponseEntity<Map<String, String>> handleCountryNotFoundException(
-            CountryNotFoundException e, HttpServletRequest request) {
+            CountryNotFoundException e, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (e.hasCountryCode() && acceptsJson(request)) {
+            writeTemplate(CountryErrorTemplate.NOT_FOUND, e.getCountryCode(), request, response);
+            return null;
+        }
         Map<String, String> body = Map.of(
                 "timestamp", ZonedDateTime.now().toString(),
                 "status", String.valueOf(HttpStatus.NOT_FOUND.value()),
@@ -25,7 +33,11 @@ public class CountryExceptionHandler {
 
     @ExceptionHandler(CountryDuplicatedException.class)
     public ResponseEntity<Map<String, String>> handleCountryDuplicatedException(
-            CountryDuplicatedException e, HttpServletRequest request) {
+            CountryDuplicatedException e, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (e.hasCountryCode() && acceptsJson(request)) {
+            writeTemplate(CountryErrorTemplate.DUPLICATED, e.getCountryCode(), request, response);
+            return null;
+        }
         Map<String, String> body = Map.of(
                 "timestamp", ZonedDateTime.now().toString(),
                 "status", String.valueOf(HttpStatus.CONFLICT.value()),
@@ -34,4 +46,91 @@ public class CountryExceptionHandler {
                 "path", request.getRequestURI());
         return new ResponseEntity<>(body, HttpStatus.CONFLICT);
     }
+
+    @ExceptionHandler(InvalidCountryException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidCountryException(
+            InvalidCountryException e, HttpServletRequest request) {
+        Map<String, String> body = Map.of(
+                "timestamp", ZonedDateTime.now().toString(),
+                "status", String.valueOf(HttpStatus.BAD_REQUEST.value()),
+                "error", HttpStatus.BAD_REQUEST.getReasonPhrase(),
+                "message", e.getMessage(),
+                "path", request.getRequestURI());
+        return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(InvalidCountryPageException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidCountryPageException(
+            InvalidCountryPageException e, HttpServletRequest request) {
+        Map<String, String> body = Map.of(
+                "timestamp", ZonedDateTime.now().toString(),
+                "status", String.valueOf(HttpStatus.BAD_REQUEST.value()),
+                "error", HttpStatus.BAD_REQUEST.getReasonPhrase(),
+                "message", e.getMessage(),
+                "path", request.getRequestURI());
+        return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(InvalidCountryCodesException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidCountryCodesException(
+            InvalidCountryCodesException e, HttpServletRequest request) {
+        Map<String, String> body = Map.of(
+                "timestamp", ZonedDateTime.now().toString(),
+                "status", String.valueOf(HttpStatus.BAD_REQUEST.value()),
+                "error", HttpStatus.BAD_REQUEST.getReasonPhrase(),
+                "message", e.getMessage(),
+                "path", request.getRequestURI());
+        return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(InvalidCountryBulkException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidCountryBulkException(
+            InvalidCountryBulkException e, HttpServletRequest request) {
+        Map<String, String> body = Map.of(
+                "timestamp", ZonedDateTime.now().toString(),
+                "status", String.valueOf(HttpStatus.BAD_REQUEST.value()),
+                "error", HttpStatus.BAD_REQUEST.getReasonPhrase(),
+                "message", e.getMessage(),
+                "path", request.getRequestURI());
+        return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(InvalidCountrySnapshotException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidCountrySnapshotException(
+            InvalidCountrySnapshotException e, HttpServletRequest request) {
+        Map<String, String> body = Map.of(
+                "timestamp", ZonedDateTime.now().toString(),
+                "status", String.valueOf(HttpStatus.BAD_REQUEST.value()),
+                "error", HttpStatus.BAD_REQUEST.getReasonPhrase(),
+                "message", e.getMessage(),
+                "path", request.getRequestURI());
+        return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(CountryWriteBehindFullException.class)
+    public ResponseEntity<Map<String, String>> handleCountryWriteBehindFullException(
+            CountryWriteBehindFullException e, HttpServletRequest request) {
+        Map<String, String> body = Map.of(
+                "timestamp", ZonedDateTime.now().toString(),
+                "status", String.valueOf(HttpStatus.SERVICE_UNAVAILABLE.value()),
+                "error", HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase(),
+                "message", e.getMessage(),
+                "path", request.getRequestURI());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(body);
+    }
+
+    /**
+     * The pre-encoded templates are JSON only; any other requested representation goes through message conversion.
+     */
+    private static boolean acceptsJson(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return accept == null || accept.isEmpty() || accept.contains("json") || accept.contains("*/*");
+    }
+
+    private static void writeTemplate(CountryErrorTemplate template, int countryCode,
+                                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setStatus(template.getStatus().value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        template.write(response.getOutputStream(), countryCode, request.getRequestURI(), System.currentTimeMillis());
+    }
 }
@@ -0,0 +1,713 @@
+package com.example.country;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.ibatis.cursor.Cursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.zip.CRC32C;
+
+/**
+ * Embedded storage of the countries table in a memory-mapped file, for running without MySQL
+ * ({@code country.store.type=mapped-file}). The /v2 API reads and writes MySQL through R2DBC, so it is switched off in
+ * this mode, and {@link CountryMappedFileStoreConfig} replaces the JDBC transaction manager.
+ * <p>
+ * {@code countries.dat} holds fixed-width records, one per slot, each with its own checksum. Reads decode records
+ * straight from the mapped pages; the only heap structure is the index from country_code to slot, rebuilt by scanning
+ * the file on open. Every write is first appended to {@code countries.log} and forced to disk, then applied to the
+ * mapped record. A checkpoint forces the mapped pages and empties the log once it grows past the checkpoint size and
+ * on close. Opening after a crash replays the log over the data file up to the first torn entry; replaying a put or a
+ * delete is idempotent, so entries that had already reached the data file do no harm, and records torn by the crash
+ * fail their checksum and are rebuilt from the log.
+ * <p>
+ * Columns are limited to 100 characters like the VARCHAR(100) columns in MySQL, so a record has room for 400 bytes of
+ * UTF-8 per column. Prefix searches compare {@link CountryPrefixIndex#collationKey collation keys}, the same
+ * approximation of utf8mb4_general_ci that the prefix index uses.
+ */
+@Component
+@ConditionalOnProperty(name = "country.store.type", havingValue = "mapped-file")
+public class CountryMappedFileStore implements CountryStore {
+    private static final Logger log = LoggerFactory.getLogger(CountryMappedFileStore.class);
+
+    static final String DATA_FILE = "countries.dat";
+
+    static final String LOG_FILE = "countries.log";
+
+    private static final int MAGIC = 0x434e5459;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+
+    static final int MAX_COLUMN_LENGTH = 100;
+
+    private static final int MAX_COLUMN_BYTES = 4 * MAX_COLUMN_LENGTH;
+
+    // [state][country_code][updated_at micros][country length][country][city length][city][crc32c of the preceding bytes]
+    private static final int STATE = 0;
+
+    private static final int COUNTRY_CODE = 1;
+
+    private static final int UPDATED_AT = 5;
+
+    private static final int COUNTRY = 13;
+
+    private static final int CITY = COUNTRY + Short.BYTES + MAX_COLUMN_BYTES;
+
+    private static final int CHECKSUM = CITY + Short.BYTES + MAX_COLUMN_BYTES;
+
+    static final int RECORD_SIZE = CHECKSUM + Integer.BYTES;
+
+    private static final byte FREE = 0;
+
+    private static final byte LIVE = 1;
+
+    private static final byte PUT = 1;
+
+    private static final byte DELETE = 2;
+
+    private static final int STREAM_BATCH_SIZE = 1000;
+
+    private final Path directory;
+
+    private final boolean fsync;
+
+    private final int initialCapacity;
+
+    private final long checkpointBytes;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final NavigableMap<Integer, Integer> slotsByCountryCode = new TreeMap<>();
+
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+    private FileChannel dataChannel;
+
+    private FileChannel logChannel;
+
+    private MappedByteBuffer data;
+
+    private int capacity;
+
+    private int slotCount;
+
+    public CountryMappedFileStore(@Value("${country.store.mapped-file.directory:data}") Path directory,
+                                  @Value("${country.store.mapped-file.fsync:true}") boolean fsync,
+                                  @Value("${country.store.mapped-file.initial-capacity:1024}") int initialCapacity,
+                                  @Value("${country.store.mapped-file.checkpoint-size:16MB}") DataSize checkpointSize) {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.initialCapacity = initialCapacity;
+        this.checkpointBytes = checkpointSize.toBytes();
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        lock.writeLock().lock();
+        try {
+            Files.createDirectories(directory);
+            dataChannel = FileChannel.open(directory.resolve(DATA_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            logChannel = FileChannel.open(directory.resolve(LOG_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            boolean created = dataChannel.size() == 0;
+            long slotsInFile = Math.max(0, (dataChannel.size() - HEADER_SIZE) / RECORD_SIZE);
+            map((int) Math.max(initialCapacity, slotsInFile));
+            if (created) {
+                data.putInt(0, MAGIC).putInt(4, FORMAT_VERSION).putInt(8, RECORD_SIZE);
+            } else if (data.getInt(0) != MAGIC || data.getInt(4) != FORMAT_VERSION || data.getInt(8) != RECORD_SIZE) {
+                throw new IOException(directory.resolve(DATA_FILE) + " is not a version " + FORMAT_VERSION + " country store");
+            }
+            slotsByCountryCode.clear();
+            freeSlots.clear();
+            slotCount = (int) slotsInFile;
+            scan();
+            int replayed = replay();
+            if (replayed > 0) {
+                checkpoint();
+            }
+            log.info("Opened the country store in {}: {} countries in {} slots, {} log entries replayed",
+                    directory, slotsByCountryCode.size(), slotCount, replayed);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (dataChannel == null) {
+                return;
+            }
+            checkpoint();
+            logChannel.close();
+            dataChannel.close();
+            dataChannel = null;
+            logChannel = null;
+            data = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Country> findAll() {
+        return select(country -> true, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Cursor<Country> streamAll() {
+        return new BatchCursor();
+    }
+
+    @Override
+    public List<Country> findByCountryStartingWith(String prefix) {
+        return select(startsWith(prefix, Country::getCountry), Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Country> findByCityStartingWith(String prefix) {
+        return select(startsWith(prefix, Country::getCity), Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Country> findByCountryAndCityStartingWith(String countryPrefix, String cityPrefix) {
+        return select(startsWith(countryPrefix, Country::getCountry).and(startsWith(cityPrefix, Country::getCity)),
+                Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Country> findAllAfter(int afterCountryCode, int limit) {
+        return select(country -> true, afterCountryCode, limit);
+    }
+
+    @Override
+    public List<Country> findByCountryStartingWithAfter(String prefix, String afterCountry, int afterCountryCode, int limit) {
+        return after(findByCountryStartingWith(prefix), Country::getCountry, afterCountry, afterCountryCode, limit);
+    }
+
+    @Override
+    public List<Country> findByCityStartingWithAfter(String prefix, String afterCity, int afterCountryCode, int limit) {
+        return after(findByCityStartingWith(prefix), Country::getCity, afterCity, afterCountryCode, limit);
+    }
+
+    @Override
+    public List<Country> findByCountryAndCityStartingWithAfter(String countryPrefix, String cityPrefix, String afterCountry,
+                                                               int afterCountryCode, int limit) {
+        return after(findByCountryAndCityStartingWith(countryPrefix, cityPrefix), Country::getCountry, afterCountry, afterCountryCode, limit);
+    }
+
+    @Override
+    public CountryVersion findVersion(String countryPrefix, String cityPrefix) {
+        Predicate<Country> filter = startsWith(countryPrefix, Country::getCountry).and(startsWith(cityPrefix, Country::getCity));
+        lock.readLock().lock();
+        try {
+            long rowCount = 0;
+            long lastUpdatedAt = Long.MIN_VALUE;
+            for (int slot : slotsByCountryCode.values()) {
+                if (filter.test(read(slot))) {
+                    rowCount++;
+                    lastUpdatedAt = Math.max(lastUpdatedAt, data.getLong(offset(slot) + UPDATED_AT));
+                }
+            }
+            return new CountryVersion(rowCount, rowCount == 0 ? null : toLocalDateTime(lastUpdatedAt));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Country> findByCountryCode(int countryCode) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slotsByCountryCode.get(countryCode);
+            return slot == null ? Optional.empty() : Optional.of(read(slot));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Country> findByCountryCodes(Collection<Integer> countryCodes) {
+        lock.readLock().lock();
+        try {
+            List<Country> countries = new ArrayList<>(countryCodes.size());
+            for (int countryCode : countryCodes) {
+                Integer slot = slotsByCountryCode.get(countryCode);
+                if (slot != null) {
+                    countries.add(read(slot));
+                }
+            }
+            return countries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void insert(Country country) {
+        validate(country);
+        lock.writeLock().lock();
+        try {
+            if (slotsByCountryCode.containsKey(country.getCountryCode())) {
+                throw new DuplicateKeyException("Duplicate entry '" + country.getCountryCode() + "' for key 'countries.PRIMARY'");
+            }
+            write(PUT, country);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int update(Country country) {
+        validate(country);
+        lock.writeLock().lock();
+        try {
+            if (!slotsByCountryCode.containsKey(country.getCountryCode())) {
+                return 0;
+            }
+            write(PUT, country);
+            return 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int delete(int countryCode) {
+        lock.writeLock().lock();
+        try {
+            if (!slotsByCountryCode.containsKey(countryCode)) {
+                return 0;
+            }
+            write(DELETE, new Country(countryCode, "", ""));
+            return 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies bulk items under one lock with a single forced log write for all of them, the embedded counterpart of a
+     * JDBC batch. Returns the update count of each item that has an operation, in order; an insert of an existing
+     * country counts 0 like {@code INSERT IGNORE}.
+     */
+    @Override
+    public int[] writeAll(List<CountryBulkItem> items) {
+        items.stream()
+                .filter(item -> item.getOperation() == CountryBulkItem.Operation.INSERT || item.getOperation() == CountryBulkItem.Operation.UPDATE)
+                .forEach(item -> validate(item.toCountry()));
+        lock.writeLock().lock();
+        try {
+            Map<Integer, Boolean> present = new HashMap<>();
+            List<Change> changes = new ArrayList<>(items.size());
+            int[] updateCounts = new int[(int) items.stream().filter(item -> item.getOperation() != null).count()];
+            int next = 0;
+            for (CountryBulkItem item : items) {
+                if (item.getOperation() == null) {
+                    continue;
+                }
+                int countryCode = item.getCountryCode();
+                boolean exists = present.computeIfAbsent(countryCode, slotsByCountryCode::containsKey);
+                boolean changed = item.getOperation() == CountryBulkItem.Operation.INSERT ? !exists : exists;
+                if (changed && item.getOperation() == CountryBulkItem.Operation.DELETE) {
+                    changes.add(new Change(DELETE, new Country(countryCode, "", "")));
+                    present.put(countryCode, false);
+                } else if (changed) {
+                    changes.add(new Change(PUT, item.toCountry()));
+                    present.put(countryCode, true);
+                }
+                updateCounts[next++] = changed ? 1 : 0;
+            }
+            write(changes);
+            return updateCounts;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<Country> select(Predicate<Country> filter, int afterCountryCode, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Country> countries = new ArrayList<>(Math.min(limit, slotsByCountryCode.size()));
+            for (int slot : slotsByCountryCode.tailMap(afterCountryCode, false).values()) {
+                if (countries.size() == limit) {
+                    break;
+                }
+                Country country = read(slot);
+                if (filter.test(country)) {
+                    countries.add(country);
+                }
+            }
+            return countries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static List<Country> after(List<Country> countries, Function<Country, String> column,
+                                       String afterValue, int afterCountryCode, int limit) {
+        String afterKey = CountryPrefixIndex.collationKey(afterValue);
+        Comparator<Country> order = Comparator.comparing((Country country) -> CountryPrefixIndex.collationKey(column.apply(country)))
+                .thenComparingInt(Country::getCountryCode);
+        return countries.stream()
+                .filter(country -> {
+                    int compared = CountryPrefixIndex.collationKey(column.apply(country)).compareTo(afterKey);
+                    return compared > 0 || compared == 0 && country.getCountryCode() > afterCountryCode;
+                })
+                .sorted(order)
+                .limit(limit)
+                .toList();
+    }
+
+    private static Predicate<Country> startsWith(String prefix, Function<Country, String> column) {
+        String key = CountryPrefixIndex.collationKey(prefix);
+        return country -> CountryPrefixIndex.collationKey(column.apply(country)).startsWith(key);
+    }
+
+    private static void validate(Country country) {
+        validate("country", country.getCountry());
+        validate("city", country.getCity());
+    }
+
+    private static void validate(String column, String value) {
+        if (value == null) {
+            throw new DataIntegrityViolationException("Column '" + column + "' cannot be null");
+        }
+        if (value.codePointCount(0, value.length()) > MAX_COLUMN_LENGTH) {
+            throw new DataIntegrityViolationException("Data too long for column '" + column + "'");
+        }
+    }
+
+    private void write(byte operation, Country country) {
+        write(List.of(new Change(operation, country)));
+    }
+
+    private void write(List<Change> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        long updatedAt = ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+        try {
+            // grow before logging, so an entry in the log always has a slot to be applied to
+            long added = changes.stream()
+                    .filter(change -> change.operation() == PUT && !slotsByCountryCode.containsKey(change.country().getCountryCode()))
+                    .count();
+            while (capacity - slotCount + freeSlots.size() < added) {
+                map(capacity * 2);
+            }
+            append(changes.stream().map(change -> encode(change, updatedAt)).toArray(ByteBuffer[]::new));
+            for (Change change : changes) {
+                Country country = change.country();
+                apply(change.operation(), country.getCountryCode(), country.getCountry(), country.getCity(), updatedAt);
+            }
+            if (logChannel.size() >= checkpointBytes) {
+                checkpoint();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write " + changes.size() + " countries to " + directory, e);
+        }
+    }
+
+    private static ByteBuffer encode(Change change, long updatedAt) {
+        byte[] name = change.country().getCountry().getBytes(StandardCharsets.UTF_8);
+        byte[] city = change.country().getCity().getBytes(StandardCharsets.UTF_8);
+        int length = 1 + Integer.BYTES + Long.BYTES + Short.BYTES + name.length + Short.BYTES + city.length;
+        ByteBuffer entry = ByteBuffer.allocate(Integer.BYTES + length + Integer.BYTES)
+                .putInt(length)
+                .put(change.operation())
+                .putInt(change.country().getCountryCode())
+                .putLong(updatedAt)
+                .putShort((short) name.length).put(name)
+                .putShort((short) city.length).put(city);
+        CRC32C crc = new CRC32C();
+        crc.update(entry.array(), Integer.BYTES, length);
+        return entry.putInt((int) crc.getValue()).flip();
+    }
+
+    private void append(ByteBuffer[] entries) throws IOException {
+        long remaining = 0;
+        for (ByteBuffer entry : entries) {
+            remaining += entry.remaining();
+        }
+        logChannel.position(logChannel.size());
+        while (remaining > 0) {
+            remaining -= logChannel.write(entries);
+        }
+        if (fsync) {
+            logChannel.force(false);
+        }
+    }
+
+    private void apply(byte operation, int countryCode, String country, String city, long updatedAt) {
+        Integer slot = slotsByCountryCode.get(countryCode);
+        if (operation == DELETE) {
+            if (slot != null) {
+                int offset = offset(slot);
+                data.put(offset + STATE, FREE);
+                data.putInt(offset + CHECKSUM, checksum(offset));
+                slotsByCountryCode.remove(countryCode);
+                freeSlots.push(slot);
+            }
+            return;
+        }
+        if (slot == null) {
+            slot = allocate();
+            slotsByCountryCode.put(countryCode, slot);
+        }
+        int offset = offset(slot);
+        data.put(offset + STATE, LIVE)
+                .putInt(offset + COUNTRY_CODE, countryCode)
+                .putLong(offset + UPDATED_AT, updatedAt);
+        putColumn(offset + COUNTRY, country);
+        putColumn(offset + CITY, city);
+        data.putInt(offset + CHECKSUM, checksum(offset));
+    }
+
+    private void putColumn(int offset, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        data.putShort(offset, (short) bytes.length).put(offset + Short.BYTES, bytes);
+    }
+
+    private Country read(int slot) {
+        int offset = offset(slot);
+        return new Country(data.getInt(offset + COUNTRY_CODE), getColumn(offset + COUNTRY), getColumn(offset + CITY));
+    }
+
+    private String getColumn(int offset) {
+        byte[] bytes = new byte[data.getShort(offset)];
+        data.get(offset + Short.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int allocate() {
+        if (!freeSlots.isEmpty()) {
+            return freeSlots.pop();
+        }
+        if (slotCount == capacity) {
+            try {
+                map(capacity * 2);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not grow " + directory.resolve(DATA_FILE), e);
+            }
+        }
+        return slotCount++;
+    }
+
+    private void map(int slots) throws IOException {
+        long size = HEADER_SIZE + (long) slots * RECORD_SIZE;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("The country store cannot map more than " + (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE + " rows");
+        }
+        data = dataChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        capacity = slots;
+    }
+
+    private void scan() {
+        for (int slot = 0; slot < slotCount; slot++) {
+            int offset = offset(slot);
+            if (data.getInt(offset + CHECKSUM) != checksum(offset)) {
+                // zero-filled tail of a grown file, or a record torn by a crash that the log will rewrite
+                if (data.get(offset + STATE) != FREE) {
+                    log.warn("Ignoring record with a bad checksum in slot {} of {}", slot, directory.resolve(DATA_FILE));
+                }
+                freeSlots.add(slot);
+            } else if (data.get(offset + STATE) == LIVE) {
+                index(slot);
+            } else {
+                freeSlots.add(slot);
+            }
+        }
+    }
+
+    // a delete whose page was lost in a crash can leave an older copy of a country that was inserted again elsewhere
+    private void index(int slot) {
+        int offset = offset(slot);
+        Integer other = slotsByCountryCode.putIfAbsent(data.getInt(offset + COUNTRY_CODE), slot);
+        if (other == null) {
+            return;
+        }
+        int stale = data.getLong(offset(other) + UPDATED_AT) < data.getLong(offset + UPDATED_AT) ? other : slot;
+        slotsByCountryCode.put(data.getInt(offset + COUNTRY_CODE), stale == other ? slot : other);
+        data.put(offset(stale) + STATE, FREE);
+        data.putInt(offset(stale) + CHECKSUM, checksum(offset(stale)));
+        freeSlots.add(stale);
+    }
+
+    private int replay() throws IOException {
+        long size = logChannel.size();
+        long position = 0;
+        int replayed = 0;
+        ByteBuffer lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+        while (position + Integer.BYTES <= size) {
+            lengthBuffer.clear();
+            logChannel.read(lengthBuffer, position);
+            int length = lengthBuffer.getInt(0);
+            if (length <= 0 || position + Integer.BYTES + length + Integer.BYTES > size) {
+                break;
+            }
+            ByteBuffer entry = ByteBuffer.allocate(length + Integer.BYTES);
+            while (entry.hasRemaining() && logChannel.read(entry, position + Integer.BYTES + entry.position()) > 0) {
+                // read the whole entry
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(entry.array(), 0, length);
+            if (entry.getInt(length) != (int) crc.getValue()) {
+                break;
+            }
+            entry.flip();
+            byte operation = entry.get();
+            int countryCode = entry.getInt();
+            long updatedAt = entry.getLong();
+            byte[] name = new byte[entry.getShort()];
+            entry.get(name);
+            byte[] city = new byte[entry.getShort()];
+            entry.get(city);
+            apply(operation, countryCode, new String(name, StandardCharsets.UTF_8), new String(city, StandardCharsets.UTF_8), updatedAt);
+            position += Integer.BYTES + length + Integer.BYTES;
+            replayed++;
+        }
+        if (position < size) {
+            log.warn("Discarding {} bytes of a torn entry at the end of {}", size - position, directory.resolve(LOG_FILE));
+            logChannel.truncate(position);
+        }
+        return replayed;
+    }
+
+    private void checkpoint() throws IOException {
+        data.force();
+        logChannel.truncate(0);
+        logChannel.force(true);
+    }
+
+    private int checksum(int offset) {
+        CRC32C crc = new CRC32C();
+        crc.update(data.slice(offset, CHECKSUM));
+        return (int) crc.getValue();
+    }
+
+    private static int offset(int slot) {
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+
+    private static LocalDateTime toLocalDateTime(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000), Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+
+    private record Change(byte operation, Country country) {
+    }
+
+    /**
+     * Reads the store in country_code order a batch at a time, holding the lock only while a batch is read, so an
+     * export neither blocks writers nor holds the whole table on the heap.
+     */
+    private class BatchCursor implements Cursor<Country> {
+        private boolean open = true;
+
+        private boolean iterated;
+
+        private boolean consumed;
+
+        private int currentIndex = -1;
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public boolean isConsumed() {
+            return consumed;
+        }
+
+        @Override
+        public int getCurrentIndex() {
+            return currentIndex;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+
+        @Override
+        public Iterator<Country> iterator() {
+            if (iterated) {
+                throw new IllegalStateException("Cannot open more than one iterator on a Cursor");
+            }
+            iterated = true;
+            return new Iterator<>() {
+                private Iterator<Country> batch = List.<Country>of().iterator();
+
+                private int lastCountryCode = Integer.MIN_VALUE;
+
+                private boolean last;
+
+                @Override
+                public boolean hasNext() {
+                    while (open && !batch.hasNext() && !last) {
+                        List<Country> countries = findAllAfter(lastCountryCode, STREAM_BATCH_SIZE);
+                        last = countries.size() < STREAM_BATCH_SIZE;
+                        if (!countries.isEmpty()) {
+                            lastCountryCode = countries.get(countries.size() - 1).getCountryCode();
+                        }
+                        batch = countries.iterator();
+                    }
+                    if (!batch.hasNext()) {
+                        consumed = true;
+                        return false;
+                    }
+                    return true;
+                }
+
+                @Override
+                public Country next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    currentIndex++;
+                    return batch.next();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.country;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+/**
+ * Runs {@code @Transactional} methods without a database when the embedded {@link CountryMappedFileStore} is used.
+ * <p>
+ * The store applies each write, and each batch of bulk writes, atomically under its own lock and log, so there is no
+ * transaction to open. Without this bean Boot's JDBC transaction manager would try to open a MySQL connection for
+ * {@link CountryBulkWriter#write} and the export. Defining one makes that auto-configuration back off.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "country.store.type", havingValue = "mapped-file")
+public class CountryMappedFileStoreConfig {
+
+    @Bean
+    PlatformTransactionManager transactionManager() {
+        return new StoreTransactionManager();
+    }
+
+    static class StoreTransactionManager extends AbstractPlatformTransactionManager {
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
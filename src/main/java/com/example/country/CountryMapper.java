@@ -3,33 +3,87 @@ package com.example.country;
 import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Mapper
 public interface CountryMapper {
 
-    @Select("SELECT * FROM countries")
+    @Select("SELECT country_code, country, city FROM countries")
     List<Country> findAll();
 
-    @Select("SELECT * FROM countries WHERE country LIKE CONCAT(#{prefix}, '%')")
+    // Integer.MIN_VALUE makes Connector/J stream rows one by one instead of reading the whole result set
+    @Select("SELECT country_code, country, city FROM countries ORDER BY country_code")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<Country> streamAll();
+
+    @Select("SELECT country_code, country, city FROM countries WHERE country LIKE CONCAT(#{prefix}, '%')")
     List<Country> findByCountryStartingWith(String prefix);
 
-    @Select("SELECT * FROM countries WHERE city LIKE CONCAT(#{prefix}, '%')")
+    @Select("SELECT country_code, country, city FROM countries WHERE city LIKE CONCAT(#{prefix}, '%')")
     List<Country> findByCityStartingWith(String prefix);
 
-    @Select("SELECT * FROM countries WHERE country_code = #{countryCode}")
+    @Select("SELECT country_code, country, city FROM countries WHERE country LIKE CONCAT(#{countryPrefix}, '%') AND city LIKE CONCAT(#{cityPrefix}, '%')")
+    List<Country> findByCountryAndCityStartingWith(@Param("countryPrefix") String countryPrefix, @Param("cityPrefix") String cityPrefix);
+
+    @Select("SELECT country_code, country, city FROM countries WHERE country_code > #{afterCountryCode} ORDER BY country_code LIMIT #{limit}")
+    List<Country> findAllAfter(@Param("afterCountryCode") int afterCountryCode, @Param("limit") int limit);
+
+    @Select("SELECT country_code, country, city FROM countries WHERE country LIKE CONCAT(#{prefix}, '%') "
+            + "AND (country > #{afterCountry} OR (country = #{afterCountry} AND country_code > #{afterCountryCode})) "
+            + "ORDER BY country, country_code LIMIT #{limit}")
+    List<Country> findByCountryStartingWithAfter(@Param("prefix") String prefix, @Param("afterCountry") String afterCountry,
+                                                 @Param("afterCountryCode") int afterCountryCode, @Param("limit") int limit);
+
+    @Select("SELECT country_code, country, city FROM countries WHERE city LIKE CONCAT(#{prefix}, '%') "
+            + "AND (city > #{afterCity} OR (city = #{afterCity} AND country_code > #{afterCountryCode})) "
+            + "ORDER BY city, country_code LIMIT #{limit}")
+    List<Country> findByCityStartingWithAfter(@Param("prefix") String prefix, @Param("afterCity") String afterCity,
+                                              @Param("afterCountryCode") int afterCountryCode, @Param("limit") int limit);
+
+    @Select("SELECT country_code, country, city FROM countries WHERE country LIKE CONCAT(#{countryPrefix}, '%') AND city LIKE CONCAT(#{cityPrefix}, '%') "
+            + "AND (country > #{afterCountry} OR (country = #{afterCountry} AND country_code > #{afterCountryCode})) "
+            + "ORDER BY country, country_code LIMIT #{limit}")
+    List<Country> findByCountryAndCityStartingWithAfter(@Param("countryPrefix") String countryPrefix, @Param("cityPrefix") String cityPrefix,
+                                                        @Param("afterCountry") String afterCountry,
+                                                        @Param("afterCountryCode") int afterCountryCode, @Param("limit") int limit);
+
+    // Empty prefixes drop their condition, so the unfiltered probe reads MAX(updated_at) from idx_countries_updated_at
+    @Select({"<script>",
+            "SELECT COUNT(*) AS row_count, MAX(updated_at) AS last_updated_at FROM countries",
+            "<where>",
+            "<if test='countryPrefix != \"\"'>country LIKE CONCAT(#{countryPrefix}, '%')</if>",
+            "<if test='cityPrefix != \"\"'>AND city LIKE CONCAT(#{cityPrefix}, '%')</if>",
+            "</where>",
+            "</script>"})
+    CountryVersion findVersion(@Param("countryPrefix") String countryPrefix, @Param("cityPrefix") String cityPrefix);
+
+    @Select("SELECT country_code, country, city FROM countries WHERE country_code = #{countryCode}")
     Optional<Country> findByCountryCode(int countryCode);
 
+    @Select({"<script>",
+            "SELECT country_code, country, city FROM countries WHERE country_code IN",
+            "<foreach item='countryCode' collection='countryCodes' open='(' separator=',' close=')'>#{countryCode}</foreach>",
+            "</script>"})
+    List<Country> findByCountryCodes(@Param("countryCodes") Collection<Integer> countryCodes);
+
     @Insert("INSERT INTO countries (country_code, country, city) VALUES (#{countryCode}, #{country}, #{city})")
     void insert(Country country);
 
-    @Update("UPDATE countries SET country = #{country}, city = #{city} WHERE country_code = #{countryCode}")
-    void update(Country country);
+    @Insert("INSERT IGNORE INTO countries (country_code, country, city) VALUES (#{countryCode}, #{country}, #{city})")
+    void insertIgnore(Country country);
+
+    @Update("UPDATE countries SET country = #{country}, city = #{city}, updated_at = CURRENT_TIMESTAMP(6) WHERE country_code = #{countryCode}")
+    int update(Country country);
 
     @Delete("DELETE FROM countries WHERE country_code = #{countryCode}")
-    void delete(Country country);
+    int delete(int countryCode);
 }
@@ -0,0 +1,81 @@
+package com.example.country;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Times every mapped statement as {@code country.mapper}, tagged with the mapper method name and outcome.
+ * <p>
+ * A timer is built and registered the first time a statement ends with its outcome and is looked up by statement id
+ * afterwards, so timing a statement neither allocates nor goes through the registry.
+ */
+@Component
+@Intercepts({
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+        @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "queryCursor", args = {MappedStatement.class, Object.class, RowBounds.class})
+})
+public class CountryMapperMetricsInterceptor implements Interceptor {
+    static final String METRIC_NAME = "country.mapper";
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Timer> successTimers = new ConcurrentHashMap<>();
+
+    private final Map<String, Timer> errorTimers = new ConcurrentHashMap<>();
+
+    private final Function<String, Timer> successTimer = id -> timer(id, "success");
+
+    private final Function<String, Timer> errorTimer = id -> timer(id, "error");
+
+    public CountryMapperMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement mappedStatement = (MappedStatement) invocation.getArgs()[0];
+        long start = meterRegistry.config().clock().monotonicTime();
+        boolean succeeded = false;
+        try {
+            Object result = invocation.proceed();
+            succeeded = true;
+            return result;
+        } finally {
+            Timer timer = succeeded
+                    ? successTimers.computeIfAbsent(mappedStatement.getId(), successTimer)
+                    : errorTimers.computeIfAbsent(mappedStatement.getId(), errorTimer);
+            timer.record(meterRegistry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(String id, String outcome) {
+        return Timer.builder(METRIC_NAME)
+                .description("Execution time of CountryMapper statements")
+                .tag("statement", statementName(id))
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static String statementName(String id) {
+        return id.substring(id.lastIndexOf('.') + 1);
+    }
+}
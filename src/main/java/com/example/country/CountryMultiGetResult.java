@@ -0,0 +1,37 @@
+package com.example.country;
+
+import java.util.List;
+import java.util.Objects;
+
+public class CountryMultiGetResult {
+
+    private final List<Country> countries;
+
+    private final List<Integer> missing;
+
+    public CountryMultiGetResult(List<Country> countries, List<Integer> missing) {
+        this.countries = countries;
+        this.missing = missing;
+    }
+
+    public List<Country> getCountries() {
+        return countries;
+    }
+
+    public List<Integer> getMissing() {
+        return missing;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CountryMultiGetResult that = (CountryMultiGetResult) o;
+        return Objects.equals(countries, that.countries) && Objects.equals(missing, that.missing);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(countries, missing);
+    }
+}
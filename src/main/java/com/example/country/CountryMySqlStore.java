@@ -0,0 +1,127 @@
+package com.example.country;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Storage of the countries table in MySQL through {@link CountryMapper}.
+ * <p>
+ * {@link #writeAll} queues the bulk statements on a {@link ExecutorType#BATCH} session and sends them as JDBC batches
+ * on flush, so the outcome of each item is read from its update count rather than from a lookup before the write.
+ * Inserts use {@code INSERT IGNORE} so that a duplicate shows up as a zero count for that item instead of failing the
+ * whole batch.
+ */
+@Component
+@ConditionalOnProperty(name = "country.store.type", havingValue = "mysql", matchIfMissing = true)
+public class CountryMySqlStore implements CountryStore {
+    private final CountryMapper countryMapper;
+
+    private final SqlSessionTemplate batchSqlSession;
+
+    public CountryMySqlStore(CountryMapper countryMapper, SqlSessionFactory sqlSessionFactory) {
+        this.countryMapper = countryMapper;
+        this.batchSqlSession = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH);
+    }
+
+    @Override
+    public List<Country> findAll() {
+        return countryMapper.findAll();
+    }
+
+    @Override
+    public Cursor<Country> streamAll() {
+        return countryMapper.streamAll();
+    }
+
+    @Override
+    public List<Country> findByCountryStartingWith(String prefix) {
+        return countryMapper.findByCountryStartingWith(prefix);
+    }
+
+    @Override
+    public List<Country> findByCityStartingWith(String prefix) {
+        return countryMapper.findByCityStartingWith(prefix);
+    }
+
+    @Override
+    public List<Country> findByCountryAndCityStartingWith(String countryPrefix, String cityPrefix) {
+        return countryMapper.findByCountryAndCityStartingWith(countryPrefix, cityPrefix);
+    }
+
+    @Override
+    public List<Country> findAllAfter(int afterCountryCode, int limit) {
+        return countryMapper.findAllAfter(afterCountryCode, limit);
+    }
+
+    @Override
+    public List<Country> findByCountryStartingWithAfter(String prefix, String afterCountry, int afterCountryCode, int limit) {
+        return countryMapper.findByCountryStartingWithAfter(prefix, afterCountry, afterCountryCode, limit);
+    }
+
+    @Override
+    public List<Country> findByCityStartingWithAfter(String prefix, String afterCity, int afterCountryCode, int limit) {
+        return countryMapper.findByCityStartingWithAfter(prefix, afterCity, afterCountryCode, limit);
+    }
+
+    @Override
+    public List<Country> findByCountryAndCityStartingWithAfter(String countryPrefix, String cityPrefix, String afterCountry,
+                                                               int afterCountryCode, int limit) {
+        return countryMapper.findByCountryAndCityStartingWithAfter(countryPrefix, cityPrefix, afterCountry, afterCountryCode, limit);
+    }
+
+    @Override
+    public CountryVersion findVersion(String countryPrefix, String cityPrefix) {
+        return countryMapper.findVersion(countryPrefix, cityPrefix);
+    }
+
+    @Override
+    public Optional<Country> findByCountryCode(int countryCode) {
+        return countryMapper.findByCountryCode(countryCode);
+    }
+
+    @Override
+    public List<Country> findByCountryCodes(Collection<Integer> countryCodes) {
+        return countryMapper.findByCountryCodes(countryCodes);
+    }
+
+    @Override
+    public void insert(Country country) {
+        countryMapper.insert(country);
+    }
+
+    @Override
+    public int update(Country country) {
+        return countryMapper.update(country);
+    }
+
+    @Override
+    public int delete(int countryCode) {
+        return countryMapper.delete(countryCode);
+    }
+
+    @Override
+    public int[] writeAll(List<CountryBulkItem> items) {
+        CountryMapper batchMapper = batchSqlSession.getMapper(CountryMapper.class);
+        for (CountryBulkItem item : items) {
+            switch (item.getOperation()) {
+                case INSERT -> batchMapper.insertIgnore(item.toCountry());
+                case UPDATE -> batchMapper.update(item.toCountry());
+                case DELETE -> batchMapper.delete(item.getCountryCode());
+            }
+        }
+        return batchSqlSession.flushStatements().stream()
+                .map(BatchResult::getUpdateCounts)
+                .flatMapToInt(Arrays::stream)
+                .toArray();
+    }
+}
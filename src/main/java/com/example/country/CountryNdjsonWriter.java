@@ -0,0 +1,46 @@
+package com.example.country;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+public class CountryNdjsonWriter implements Consumer<Country>, Closeable {
+    private static final int FLUSH_INTERVAL = 1000;
+
+    private final JsonGenerator generator;
+
+    private long written;
+
+    public CountryNdjsonWriter(ObjectMapper objectMapper, OutputStream output) throws IOException {
+        this.generator = objectMapper.getFactory().createGenerator(output);
+        this.generator.setRootValueSeparator(null);
+        this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    @Override
+    public void accept(Country country) {
+        try {
+            generator.writeObject(country);
+            generator.writeRaw('\n');
+            if (++written % FLUSH_INTERVAL == 0) {
+                generator.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long getWritten() {
+        return written;
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
@@ -1,8 +1,33 @@
 package com.example.country;
 
+/**
+ * Thrown for a country code that does not exist. Misses are ordinary traffic, so the exception records no stack
+ * trace, and when built from a code its message is only formatted if someone asks for it.
+ */
 public class CountryNotFoundException extends RuntimeException {
 
+    private final int countryCode;
+
     public CountryNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
+        this.countryCode = 0;
+    }
+
+    public CountryNotFoundException(int countryCode) {
+        super(null, null, false, false);
+        this.countryCode = countryCode;
+    }
+
+    public boolean hasCountryCode() {
+        return super.getMessage() == null;
+    }
+
+    public int getCountryCode() {
+        return countryCode;
+    }
+
+    @Override
+    public String getMessage() {
+        return hasCountryCode() ? "Country with code " + countryCode + " not found" : super.getMessage();
     }
 }
@@ -0,0 +1,37 @@
+package com.example.country;
+
+import java.util.List;
+import java.util.Objects;
+
+public class CountryPage {
+
+    private final List<Country> countries;
+
+    private final CountryCursor next;
+
+    public CountryPage(List<Country> countries, CountryCursor next) {
+        this.countries = countries;
+        this.next = next;
+    }
+
+    public List<Country> getCountries() {
+        return countries;
+    }
+
+    public CountryCursor getNext() {
+        return next;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CountryPage that = (CountryPage) o;
+        return Objects.equals(countries, that.countries) && Objects.equals(next, that.next);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(countries, next);
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.country;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory prefix index over country and city.
+ * <p>
+ * Each column is a sorted map from the collation key of the value to the row, so a prefix search is a range scan
+ * between the key of the prefix and the key of the prefix followed by the largest character. Collation keys fold case
+ * and strip accents, which approximates the utf8mb4_general_ci comparison MySQL applies to LIKE.
+ * <p>
+ * The version of a search is the number of matching rows and the time of the last change to the index.
+ * <p>
+ * The synchronized methods only keep one change from interleaving with another inside the index. The order of the
+ * changes to a country comes from its {@link CountryWriteLocks} lock, which writers hold from the database statement
+ * until the index has been updated, so the index applies them in the order the database committed them.
+ */
+@Component
+public class CountryPrefixIndex {
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private static final char MAX_CHAR = '\uffff';
+
+    private final boolean enabled;
+
+    private final CountryStore countryStore;
+
+    private final Map<Integer, Country> rows = new ConcurrentHashMap<>();
+
+    private final NavigableMap<String, Country> byCountry = new ConcurrentSkipListMap<>();
+
+    private final NavigableMap<String, Country> byCity = new ConcurrentSkipListMap<>();
+
+    private volatile LocalDateTime lastModifiedAt;
+
+    private volatile boolean loaded;
+
+    public CountryPrefixIndex(@Value("${country.prefix-index.enabled:false}") boolean enabled, CountryStore countryStore) {
+        this.enabled = enabled;
+        this.countryStore = countryStore;
+    }
+
+    public boolean isEnabled() {
+        return enabled && loaded;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        if (!enabled) {
+            return;
+        }
+        rows.clear();
+        byCountry.clear();
+        byCity.clear();
+        countryStore.findAll().forEach(this::index);
+        lastModifiedAt = CountryVersion.nextModification(lastModifiedAt);
+        loaded = true;
+    }
+
+    public List<Country> findByCountryStartingWith(String prefix) {
+        return range(byCountry, prefix);
+    }
+
+    public List<Country> findByCityStartingWith(String prefix) {
+        return range(byCity, prefix);
+    }
+
+    public List<Country> findByCountryAndCityStartingWith(String countryPrefix, String cityPrefix) {
+        String cityKey = collationKey(cityPrefix);
+        return range(byCountry, countryPrefix).stream()
+                .filter(country -> collationKey(country.getCity()).startsWith(cityKey))
+                .toList();
+    }
+
+    public CountryVersion version(String countryPrefix, String cityPrefix) {
+        LocalDateTime modifiedAt = lastModifiedAt;
+        long rowCount;
+        if (!countryPrefix.isEmpty()) {
+            rowCount = findByCountryAndCityStartingWith(countryPrefix, cityPrefix).size();
+        } else if (!cityPrefix.isEmpty()) {
+            rowCount = findByCityStartingWith(cityPrefix).size();
+        } else {
+            rowCount = rows.size();
+        }
+        return new CountryVersion(rowCount, modifiedAt);
+    }
+
+    public synchronized void put(Country country) {
+        if (!isEnabled()) {
+            return;
+        }
+        unindex(country.getCountryCode());
+        index(country);
+        lastModifiedAt = CountryVersion.nextModification(lastModifiedAt);
+    }
+
+    public synchronized void remove(int countryCode) {
+        if (!isEnabled()) {
+            return;
+        }
+        unindex(countryCode);
+        lastModifiedAt = CountryVersion.nextModification(lastModifiedAt);
+    }
+
+    static String collationKey(String value) {
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toUpperCase(Locale.ROOT);
+    }
+
+    private static List<Country> range(NavigableMap<String, Country> index, String prefix) {
+        String from = collationKey(prefix);
+        return new ArrayList<>(index.subMap(from, true, from + MAX_CHAR, false).values());
+    }
+
+    private void index(Country country) {
+        Country copy = new Country(country.getCountryCode(), country.getCountry(), country.getCity());
+        rows.put(copy.getCountryCode(), copy);
+        byCountry.put(key(copy.getCountry(), copy.getCountryCode()), copy);
+        byCity.put(key(copy.getCity(), copy.getCountryCode()), copy);
+    }
+
+    private void unindex(int countryCode) {
+        Country previous = rows.remove(countryCode);
+        if (previous != null) {
+            byCountry.remove(key(previous.getCountry(), countryCode));
+            byCity.remove(key(previous.getCity(), countryCode));
+        }
+    }
+
+    private static String key(String value, int countryCode) {
+        return collationKey(value) + KEY_SEPARATOR + countryCode;
+    }
+}
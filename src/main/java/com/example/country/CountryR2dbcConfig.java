@@ -0,0 +1,56 @@
+package com.example.country;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.time.Duration;
+
+/**
+ * R2DBC access for the /v2 API.
+ * <p>
+ * The connection pool is deliberately not a bean: DataSourceAutoConfiguration backs off as soon as an R2DBC
+ * {@code ConnectionFactory} bean exists, and MyBatis still needs its DataSource. For the same reason Boot's own
+ * R2dbcAutoConfiguration is excluded in application.properties.
+ * <p>
+ * The /v2 API only exists on MySQL; with the embedded store none of its beans are created.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "country.store.type", havingValue = "mysql", matchIfMissing = true)
+public class CountryR2dbcConfig implements DisposableBean {
+    private ConnectionPool connectionPool;
+
+    @Bean
+    public DatabaseClient countryDatabaseClient(@Value("${country.r2dbc.url}") String url,
+                                                @Value("${country.r2dbc.username:}") String username,
+                                                @Value("${country.r2dbc.password:}") String password,
+                                                @Value("${country.r2dbc.pool.max-size:10}") int maxSize,
+                                                @Value("${country.r2dbc.pool.max-acquire-time:30s}") Duration maxAcquireTime) {
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(url).mutate();
+        if (!username.isEmpty()) {
+            options.option(ConnectionFactoryOptions.USER, username);
+        }
+        if (!password.isEmpty()) {
+            options.option(ConnectionFactoryOptions.PASSWORD, password);
+        }
+        connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options.build()))
+                .maxSize(maxSize)
+                .maxAcquireTime(maxAcquireTime)
+                .build());
+        return DatabaseClient.create(connectionPool);
+    }
+
+    @Override
+    public void destroy() {
+        if (connectionPool != null) {
+            connectionPool.dispose();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.country;
+
+import io.r2dbc.spi.Readable;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link CountryMapper} for the /v2 API, issuing the same statements through R2DBC.
+ */
+@Repository
+@ConditionalOnProperty(name = "country.store.type", havingValue = "mysql", matchIfMissing = true)
+public class CountryR2dbcRepository {
+    private final DatabaseClient databaseClient;
+
+    public CountryR2dbcRepository(DatabaseClient countryDatabaseClient) {
+        this.databaseClient = countryDatabaseClient;
+    }
+
+    public Flux<Country> findAll() {
+        return databaseClient.sql("SELECT country_code, country, city FROM countries")
+                .map(CountryR2dbcRepository::country)
+                .all();
+    }
+
+    public Flux<Country> findByCountryStartingWith(String prefix) {
+        return databaseClient.sql("SELECT country_code, country, city FROM countries WHERE country LIKE CONCAT(:prefix, '%')")
+                .bind("prefix", prefix)
+                .map(CountryR2dbcRepository::country)
+                .all();
+    }
+
+    public Flux<Country> findByCityStartingWith(String prefix) {
+        return databaseClient.sql("SELECT country_code, country, city FROM countries WHERE city LIKE CONCAT(:prefix, '%')")
+                .bind("prefix", prefix)
+                .map(CountryR2dbcRepository::country)
+                .all();
+    }
+
+    public Flux<Country> findByCountryAndCityStartingWith(String countryPrefix, String cityPrefix) {
+        return databaseClient.sql("SELECT country_code, country, city FROM countries WHERE country LIKE CONCAT(:countryPrefix, '%') AND city LIKE CONCAT(:cityPrefix, '%')")
+                .bind("countryPrefix", countryPrefix)
+                .bind("cityPrefix", cityPrefix)
+                .map(CountryR2dbcRepository::country)
+                .all();
+    }
+
+    public Mono<Country> findByCountryCode(int countryCode) {
+        return databaseClient.sql("SELECT country_code, country, city FROM countries WHERE country_code = :countryCode")
+                .bind("countryCode", countryCode)
+                .map(CountryR2dbcRepository::country)
+                .one();
+    }
+
+    public Mono<Long> insert(Country country) {
+        return databaseClient.sql("INSERT INTO countries (country_code, country, city) VALUES (:countryCode, :country, :city)")
+                .bind("countryCode", country.getCountryCode())
+                .bind("country", country.getCountry())
+                .bind("city", country.getCity())
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> update(Country country) {
+        return databaseClient.sql("UPDATE countries SET country = :country, city = :city, updated_at = CURRENT_TIMESTAMP(6) WHERE country_code = :countryCode")
+                .bind("country", country.getCountry())
+                .bind("city", country.getCity())
+                .bind("countryCode", country.getCountryCode())
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> delete(int countryCode) {
+        return databaseClient.sql("DELETE FROM countries WHERE country_code = :countryCode")
+                .bind("countryCode", countryCode)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private static Country country(Readable row) {
+        return new Country(row.get("country_code", Integer.class), row.get("country", String.class), row.get("city", String.class));
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.country;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+/**
+ * Non-blocking variant of the /countries API. Spring MVC subscribes to the returned publishers asynchronously, so the
+ * servlet thread goes back to the pool while R2DBC waits on the database. A list requested as
+ * {@code application/x-ndjson} is streamed row by row; as JSON it is written as one array. Errors surface as the same
+ * exceptions as in /countries and are rendered by {@link CountryExceptionHandler}.
+ */
+@RestController
+@ConditionalOnProperty(name = "country.store.type", havingValue = "mysql", matchIfMissing = true)
+@RequestMapping("/v2/countries")
+public class CountryReactiveController {
+    private final CountryReactiveService countryReactiveService;
+
+    public CountryReactiveController(CountryReactiveService countryReactiveService) {
+        this.countryReactiveService = countryReactiveService;
+    }
+
+    @GetMapping
+    public Flux<Country> getCountries(
+            @RequestParam(name = "countryStartsWith", required = false, defaultValue = "") String countryStartsWith,
+            @RequestParam(name = "cityStartsWith", required = false, defaultValue = "") String cityStartsWith) {
+        return countryReactiveService.getCountries(countryStartsWith, cityStartsWith);
+    }
+
+    @GetMapping("/{country_code}")
+    public Mono<Country> findByCountryCode(@PathVariable("country_code") int countryCode) {
+        return countryReactiveService.findByCountryCode(countryCode);
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<CountryResponse>> insert(@RequestBody CountryRequest countryRequest, UriComponentsBuilder uriBuilder) {
+        return countryReactiveService.insert(countryRequest.getCountryCode(), countryRequest.getCountry(), countryRequest.getCity())
+                .map(country -> {
+                    URI location = uriBuilder.path("/v2/countries/{country_code}").buildAndExpand(country.getCountryCode()).toUri();
+                    return ResponseEntity.created(location).body(new CountryResponse("country created"));
+                });
+    }
+
+    @PatchMapping("/{country_code}")
+    public Mono<ResponseEntity<CountryResponse>> update(@PathVariable("country_code") int countryCode, @RequestBody CountryRequest countryRequest) {
+        return countryReactiveService.update(countryCode, countryRequest.getCountry(), countryRequest.getCity())
+                .map(country -> ResponseEntity.ok(new CountryResponse("country updated")));
+    }
+
+    @DeleteMapping("/{country_code}")
+    public Mono<ResponseEntity<CountryResponse>> delete(@PathVariable("country_code") int countryCode) {
+        return countryReactiveService.delete(countryCode)
+                .thenReturn(ResponseEntity.ok(new CountryResponse("country deleted")));
+    }
+}
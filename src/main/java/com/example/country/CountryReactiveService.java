@@ -0,0 +1,96 @@
+package com.example.country;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.function.Supplier;
+
+/**
+ * Backs the /v2 API. Reads always go to the database through R2DBC, so they do not see updates still pending in the
+ * write-behind buffer; writes are reported to {@link CountryService} once they have been applied, which keeps the
+ * /countries cache, in-memory copies and change stream consistent with them.
+ * <p>
+ * A write first drops the pending write-behind update of its country, so a flush cannot overwrite it afterwards. It
+ * holds the {@link CountryWriteLocks} lock of its country from then until it has been reported, so concurrent writes of
+ * one country reach the in-memory copies in the order the database committed them. Taking the lock and dropping the
+ * pending update can wait, so the whole write runs on the bounded elastic scheduler rather than on the R2DBC event
+ * loop, and it runs to completion even if the client goes away, so a committed write is always reported.
+ */
+@Service
+@ConditionalOnProperty(name = "country.store.type", havingValue = "mysql", matchIfMissing = true)
+public class CountryReactiveService {
+    private final CountryR2dbcRepository countryRepository;
+
+    private final CountryService countryService;
+
+    private final CountryWriteLocks countryWriteLocks;
+
+    public CountryReactiveService(CountryR2dbcRepository countryRepository, CountryService countryService,
+                                  CountryWriteLocks countryWriteLocks) {
+        this.countryRepository = countryRepository;
+        this.countryService = countryService;
+        this.countryWriteLocks = countryWriteLocks;
+    }
+
+    public Flux<Country> getCountries(String countryStartsWith, String cityStartsWith) {
+        if (!countryStartsWith.isEmpty() && !cityStartsWith.isEmpty()) {
+            return countryRepository.findByCountryAndCityStartingWith(countryStartsWith, cityStartsWith);
+        } else if (!countryStartsWith.isEmpty()) {
+            return countryRepository.findByCountryStartingWith(countryStartsWith);
+        } else if (!cityStartsWith.isEmpty()) {
+            return countryRepository.findByCityStartingWith(cityStartsWith);
+        }
+        return countryRepository.findAll();
+    }
+
+    public Mono<Country> findByCountryCode(int countryCode) {
+        return countryRepository.findByCountryCode(countryCode)
+                .switchIfEmpty(Mono.error(() -> new CountryNotFoundException(countryCode)));
+    }
+
+    public Mono<Country> insert(int countryCode, String country, String city) {
+        Country countryEntity = new Country(countryCode, country, city);
+        return locked(countryCode, () -> {
+            Country.validateColumns(country, city);
+            countryService.discardPending(countryCode);
+            try {
+                countryRepository.insert(countryEntity).block();
+            } catch (DuplicateKeyException e) {
+                throw new CountryDuplicatedException(countryCode);
+            }
+            return countryService.recordWrite(CountryChangeEvent.INSERT, countryEntity);
+        });
+    }
+
+    public Mono<Country> update(int countryCode, String country, String city) {
+        Country updatedCountry = new Country(countryCode, country, city);
+        return locked(countryCode, () -> {
+            Country.validateColumns(country, city);
+            countryService.discardPending(countryCode);
+            if (countryRepository.update(updatedCountry).blockOptional().orElse(0L) == 0) {
+                throw new CountryNotFoundException(countryCode);
+            }
+            return countryService.recordWrite(CountryChangeEvent.UPDATE, updatedCountry);
+        });
+    }
+
+    public Mono<Void> delete(int countryCode) {
+        return locked(countryCode, () -> {
+            countryService.discardPending(countryCode);
+            if (countryRepository.delete(countryCode).blockOptional().orElse(0L) == 0) {
+                throw new CountryNotFoundException(countryCode);
+            }
+            countryService.recordDelete(countryCode);
+            return null;
+        }).then();
+    }
+
+    private <T> Mono<T> locked(int countryCode, Supplier<T> write) {
+        return Mono.fromCallable(() -> countryWriteLocks.withLock(countryCode, write))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
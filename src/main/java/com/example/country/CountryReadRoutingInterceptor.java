@@ -0,0 +1,47 @@
+package com.example.country;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * Marks SELECT statements as reads for {@link CountryRoutingDataSource} and records every successful write.
+ * <p>
+ * MyBatis asks for the connection while the statement is being prepared, which is inside these executor calls, so the
+ * mark is in place when the routing data source picks a target.
+ */
+@Intercepts({
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+        @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "queryCursor", args = {MappedStatement.class, Object.class, RowBounds.class})
+})
+public class CountryReadRoutingInterceptor implements Interceptor {
+    private final CountryRoutingDataSource routingDataSource;
+
+    public CountryReadRoutingInterceptor(CountryRoutingDataSource routingDataSource) {
+        this.routingDataSource = routingDataSource;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        if (invocation.getMethod().getName().equals("update")) {
+            Object result = invocation.proceed();
+            routingDataSource.recordWrite();
+            return result;
+        }
+        CountryRoutingDataSource.markRead();
+        try {
+            return invocation.proceed();
+        } finally {
+            CountryRoutingDataSource.clearRead();
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package com.example.country;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Off-heap replica of the countries table.
+ * <p>
+ * Rows are kept in a direct {@link ByteBuffer} as {@code [country_code][country length][country][city length][city]}
+ * records. A direct slot table indexed by country_code holds the offset of each live record, so a point lookup is
+ * one slot read plus one record decode. Updates append a new record and repoint the slot; the space left behind is
+ * reclaimed by compaction once it exceeds the live data.
+ * <p>
+ * The slot table only covers country codes from 0 up to the configured maximum. Rows outside that range are not copied;
+ * the replica remembers their codes and reads them from the database, so an odd code neither fails a write that has
+ * already been committed nor makes the slot table huge.
+ * <p>
+ * Loading holds the write lock while the table is read, so a write that commits during the load waits for it and is
+ * applied afterwards instead of being lost.
+ * <p>
+ * The replica keeps its own {@link CountryVersion}, moved forward on every change it sees, so the version of what it
+ * serves is known without asking the database.
+ */
+@Component
+public class CountryReplica {
+    private static final Logger log = LoggerFactory.getLogger(CountryReplica.class);
+
+    private static final int EMPTY = -1;
+
+    private static final int INITIAL_DATA_CAPACITY = 64 * 1024;
+
+    private final boolean enabled;
+
+    private final int maxCountryCode;
+
+    private final CountryStore countryStore;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final NavigableSet<Integer> uncovered = new TreeSet<>();
+
+    private IntBuffer slots;
+
+    private ByteBuffer data;
+
+    private int rowCount;
+
+    private int garbageBytes;
+
+    private LocalDateTime lastModifiedAt;
+
+    private volatile boolean loaded;
+
+    public CountryReplica(@Value("${country.replica.enabled:false}") boolean enabled,
+                          @Value("${country.replica.max-country-code:99999}") int maxCountryCode,
+                          CountryStore countryStore) {
+        this.enabled = enabled;
+        this.maxCountryCode = maxCountryCode;
+        this.countryStore = countryStore;
+    }
+
+    public boolean isEnabled() {
+        return enabled && loaded;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        List<Country> countries;
+        lock.writeLock().lock();
+        try {
+            countries = countryStore.findAll();
+            int largest = countries.stream().mapToInt(Country::getCountryCode).filter(this::covers).max().orElse(0);
+            slots = newSlots(largest + 1);
+            data = ByteBuffer.allocateDirect(INITIAL_DATA_CAPACITY);
+            rowCount = 0;
+            garbageBytes = 0;
+            uncovered.clear();
+            countries.forEach(this::write);
+            lastModifiedAt = CountryVersion.nextModification(lastModifiedAt);
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (!uncovered.isEmpty()) {
+            log.warn("{} countries have codes outside 0..{} and are read from the database", uncovered.size(), maxCountryCode);
+        }
+        log.info("Loaded {} countries into the off-heap replica: {} bytes/row off-heap, ~{} bytes/row as List<Country> on heap",
+                countries.size(), offHeapBytesPerRow(), estimateOnHeapBytesPerRow(countries));
+    }
+
+    /**
+     * Returns whether the replica answers for the country by itself, present or not, rather than reading it from the
+     * database because its code is outside the slot table.
+     */
+    public boolean holds(int countryCode) {
+        return covers(countryCode) || !isUncovered(countryCode);
+    }
+
+    public Optional<Country> findByCountryCode(int countryCode) {
+        if (!covers(countryCode)) {
+            return isUncovered(countryCode) ? countryStore.findByCountryCode(countryCode) : Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            if (countryCode >= slots.capacity() || slots.get(countryCode) == EMPTY) {
+                return Optional.empty();
+            }
+            return Optional.of(read(slots.get(countryCode)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Country> findAll() {
+        List<Country> countries;
+        List<Integer> uncoveredCodes;
+        lock.readLock().lock();
+        try {
+            countries = new ArrayList<>(rowCount + uncovered.size());
+            for (int countryCode = 0; countryCode < slots.capacity(); countryCode++) {
+                int offset = slots.get(countryCode);
+                if (offset != EMPTY) {
+                    countries.add(read(offset));
+                }
+            }
+            uncoveredCodes = List.copyOf(uncovered);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (!uncoveredCodes.isEmpty()) {
+            countries.addAll(countryStore.findByCountryCodes(uncoveredCodes));
+            countries.sort(Comparator.comparingInt(Country::getCountryCode));
+        }
+        return countries;
+    }
+
+    public CountryVersion version() {
+        lock.readLock().lock();
+        try {
+            return new CountryVersion(rowCount + uncovered.size(), lastModifiedAt);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void put(Country country) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                write(country);
+                lastModifiedAt = CountryVersion.nextModification(lastModifiedAt);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int countryCode) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            if (!covers(countryCode)) {
+                uncovered.remove(countryCode);
+            } else if (countryCode < slots.capacity() && slots.get(countryCode) != EMPTY) {
+                garbageBytes += recordLength(slots.get(countryCode));
+                slots.put(countryCode, EMPTY);
+                rowCount--;
+            }
+            lastModifiedAt = CountryVersion.nextModification(lastModifiedAt);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Off-heap bytes per row, counting the slot table and the record area including not yet compacted garbage.
+     */
+    public long offHeapBytesPerRow() {
+        lock.readLock().lock();
+        try {
+            if (rowCount == 0) {
+                return 0;
+            }
+            return ((long) slots.capacity() * Integer.BYTES + data.position()) / rowCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rough shallow size of a row held as a {@link Country} in an {@code ArrayList}, assuming compressed oops and
+     * compact strings: list slot, Country header and fields, and two Strings with their backing byte arrays.
+     */
+    static long estimateOnHeapBytesPerRow(List<Country> countries) {
+        if (countries.isEmpty()) {
+            return 0;
+        }
+        long total = 0;
+        for (Country country : countries) {
+            total += 4 + 24 + stringBytes(country.getCountry()) + stringBytes(country.getCity());
+        }
+        return total / countries.size();
+    }
+
+    private static long stringBytes(String value) {
+        long arrayBytes = 16 + (long) value.getBytes(StandardCharsets.UTF_8).length;
+        return 24 + ((arrayBytes + 7) / 8) * 8;
+    }
+
+    private void write(Country country) {
+        int countryCode = country.getCountryCode();
+        if (!covers(countryCode)) {
+            uncovered.add(countryCode);
+            return;
+        }
+        if (countryCode >= slots.capacity()) {
+            growSlots(countryCode + 1);
+        }
+        byte[] name = country.getCountry().getBytes(StandardCharsets.UTF_8);
+        byte[] city = country.getCity().getBytes(StandardCharsets.UTF_8);
+        int length = Integer.BYTES + 2 * Short.BYTES + name.length + city.length;
+        if (data.remaining() < length) {
+            compactOrGrow(length);
+        }
+        int previous = slots.get(countryCode);
+        if (previous == EMPTY) {
+            rowCount++;
+        } else {
+            garbageBytes += recordLength(previous);
+        }
+        int offset = data.position();
+        data.putInt(countryCode)
+                .putShort((short) name.length).put(name)
+                .putShort((short) city.length).put(city);
+        slots.put(countryCode, offset);
+    }
+
+    private boolean isUncovered(int countryCode) {
+        lock.readLock().lock();
+        try {
+            return uncovered.contains(countryCode);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean covers(int countryCode) {
+        return countryCode >= 0 && countryCode <= maxCountryCode;
+    }
+
+    private Country read(int offset) {
+        int countryCode = data.getInt(offset);
+        int nameLength = data.getShort(offset + Integer.BYTES);
+        byte[] name = new byte[nameLength];
+        data.get(offset + Integer.BYTES + Short.BYTES, name);
+        int cityOffset = offset + Integer.BYTES + Short.BYTES + nameLength;
+        byte[] city = new byte[data.getShort(cityOffset)];
+        data.get(cityOffset + Short.BYTES, city);
+        return new Country(countryCode, new String(name, StandardCharsets.UTF_8), new String(city, StandardCharsets.UTF_8));
+    }
+
+    private int recordLength(int offset) {
+        int nameLength = data.getShort(offset + Integer.BYTES);
+        int cityLength = data.getShort(offset + Integer.BYTES + Short.BYTES + nameLength);
+        return Integer.BYTES + 2 * Short.BYTES + nameLength + cityLength;
+    }
+
+    private void compactOrGrow(int required) {
+        int live = data.position() - garbageBytes;
+        int capacity = data.capacity();
+        while (capacity - live < required || live > capacity / 2) {
+            capacity *= 2;
+        }
+        ByteBuffer compacted = ByteBuffer.allocateDirect(capacity);
+        for (int countryCode = 0; countryCode < slots.capacity(); countryCode++) {
+            int offset = slots.get(countryCode);
+            if (offset != EMPTY) {
+                int length = recordLength(offset);
+                slots.put(countryCode, compacted.position());
+                compacted.put(data.slice(offset, length));
+            }
+        }
+        data = compacted;
+        garbageBytes = 0;
+    }
+
+    private void growSlots(int minCapacity) {
+        IntBuffer grown = newSlots(Math.min(maxCountryCode + 1, Math.max(minCapacity, slots.capacity() * 2)));
+        for (int countryCode = 0; countryCode < slots.capacity(); countryCode++) {
+            grown.put(countryCode, slots.get(countryCode));
+        }
+        slots = grown;
+    }
+
+    private static IntBuffer newSlots(int capacity) {
+        IntBuffer slots = ByteBuffer.allocateDirect(capacity * Integer.BYTES).asIntBuffer();
+        for (int i = 0; i < capacity; i++) {
+            slots.put(i, EMPTY);
+        }
+        return slots;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.country;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Polls {@code SHOW REPLICA STATUS} on every replica and reports the lag to {@link CountryRoutingDataSource}.
+ * <p>
+ * A replica whose replication is stopped or that cannot be reached is reported with an unknown lag, which takes it out
+ * of rotation until the next successful check. An instance that reports no status at all, because it is not configured
+ * as a replica or its replication was reset, is treated the same way unless {@code standaloneReplicas} is set, which
+ * lets an independent test database stand in for a replica. The check needs the {@code REPLICATION CLIENT} privilege;
+ * without it every replica stays out of rotation.
+ */
+public class CountryReplicaLagMonitor {
+    private static final int ER_SPECIFIC_ACCESS_DENIED = 1227;
+
+    private static final Logger log = LoggerFactory.getLogger(CountryReplicaLagMonitor.class);
+
+    private final CountryRoutingDataSource routingDataSource;
+
+    private final boolean standaloneReplicas;
+
+    public CountryReplicaLagMonitor(CountryRoutingDataSource routingDataSource, boolean standaloneReplicas) {
+        this.routingDataSource = routingDataSource;
+        this.standaloneReplicas = standaloneReplicas;
+    }
+
+    public void checkReplicaLag() {
+        List<DataSource> replicas = routingDataSource.getReplicas();
+        for (int i = 0; i < replicas.size(); i++) {
+            routingDataSource.updateReplicaLag(i, lagOf(replicas.get(i), i));
+        }
+    }
+
+    private Duration lagOf(DataSource replica, int index) {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet status = statement.executeQuery("SHOW REPLICA STATUS")) {
+            if (!status.next()) {
+                return standaloneReplicas ? Duration.ZERO : null;
+            }
+            long seconds = status.getLong("Seconds_Behind_Source");
+            return status.wasNull() ? null : Duration.ofSeconds(seconds);
+        } catch (SQLException e) {
+            if (e.getErrorCode() == ER_SPECIFIC_ACCESS_DENIED) {
+                log.warn("Could not read the status of replica {}, the user needs the REPLICATION CLIENT privilege: {}",
+                        index, e.getMessage());
+            } else {
+                log.warn("Could not read the status of replica {}: {}", index, e.getMessage(), e);
+            }
+            return null;
+        }
+    }
+}
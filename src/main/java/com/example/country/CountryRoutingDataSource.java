@@ -0,0 +1,210 @@
+package com.example.country;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Sends reads to a replica and everything else to the primary.
+ * <p>
+ * A connection goes to a replica only when it is requested for a read (see {@link CountryReadRoutingInterceptor}) or
+ * inside a read-only transaction, no read-write transaction is active, the client has not written within the
+ * read-after-write window, and at least one replica is within the allowed lag. Otherwise the primary is used. A replica
+ * counts as lagging until its first lag check has succeeded.
+ * <p>
+ * The read-after-write window is tracked per client rather than per node: a write made while serving an HTTP request
+ * pins the rest of that request to the primary and sets the {@value #LAST_WRITE_COOKIE} cookie to the time of the
+ * write, so the client's following requests, on any node, read from the primary until the window has passed. Reads
+ * made outside a request are not affected by writes.
+ */
+public class CountryRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+    static final String PRIMARY = "primary";
+
+    static final String LAST_WRITE_COOKIE = "country-last-write";
+
+    private static final String WROTE = CountryRoutingDataSource.class.getName() + ".wrote";
+
+    private static final ThreadLocal<Boolean> READ = new ThreadLocal<>();
+
+    private static final long LAG_UNKNOWN = Long.MAX_VALUE;
+
+    private final List<DataSource> replicas;
+
+    private final CountryDataSourceProperties.Balancing balancing;
+
+    private final ToIntFunction<DataSource> activeConnections;
+
+    private final long maxReplicaLagMillis;
+
+    private final long readAfterWriteWindowMillis;
+
+    private final LongSupplier clock;
+
+    private final AtomicLongArray replicaLagMillis;
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    /**
+     * @param clock the wall clock in milliseconds; the cookie carries its value, so it has to be comparable across nodes
+     */
+    public CountryRoutingDataSource(DataSource primary, List<DataSource> replicas, CountryDataSourceProperties.Routing routing,
+                                    ToIntFunction<DataSource> activeConnections, LongSupplier clock) {
+        this.replicas = List.copyOf(replicas);
+        this.balancing = routing.getBalancing();
+        this.activeConnections = activeConnections;
+        this.maxReplicaLagMillis = routing.getMaxReplicaLag().toMillis();
+        this.readAfterWriteWindowMillis = routing.getReadAfterWriteWindow().toMillis();
+        this.clock = clock;
+        this.replicaLagMillis = new AtomicLongArray(replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            replicaLagMillis.set(i, LAG_UNKNOWN);
+        }
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(replicaKey(i), replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    static void markRead() {
+        READ.set(Boolean.TRUE);
+    }
+
+    static void clearRead() {
+        READ.remove();
+    }
+
+    /**
+     * Pins the rest of the current request to the primary and tells the client when it wrote. Does nothing outside an
+     * HTTP request.
+     */
+    public void recordWrite() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return;
+        }
+        HttpServletRequest request = attributes.getRequest();
+        if (request.getAttribute(WROTE) != null) {
+            return;
+        }
+        request.setAttribute(WROTE, Boolean.TRUE);
+        HttpServletResponse response = attributes.getResponse();
+        if (response != null && !response.isCommitted()) {
+            Cookie cookie = new Cookie(LAST_WRITE_COOKIE, Long.toString(clock.getAsLong()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, (readAfterWriteWindowMillis + 999) / 1000));
+            response.addCookie(cookie);
+        }
+    }
+
+    public List<DataSource> getReplicas() {
+        return replicas;
+    }
+
+    public void updateReplicaLag(int replica, Duration lag) {
+        replicaLagMillis.set(replica, lag == null ? LAG_UNKNOWN : lag.toMillis());
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        boolean read = READ.get() != null || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        boolean readWriteTransaction = TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        if (!read || readWriteTransaction || wroteRecently()) {
+            return PRIMARY;
+        }
+        int replica = balancing == CountryDataSourceProperties.Balancing.LEAST_BUSY ? leastBusyReplica() : roundRobinReplica();
+        return replica < 0 ? PRIMARY : replicaKey(replica);
+    }
+
+    /**
+     * Whether the current request is within its client's read-after-write window, so its reads go to the primary.
+     */
+    public boolean wroteRecently() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return false;
+        }
+        HttpServletRequest request = attributes.getRequest();
+        if (request.getAttribute(WROTE) != null) {
+            return true;
+        }
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (LAST_WRITE_COOKIE.equals(cookie.getName())) {
+                try {
+                    long elapsed = clock.getAsLong() - Long.parseLong(cookie.getValue());
+                    return elapsed >= 0 && elapsed <= readAfterWriteWindowMillis;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private int roundRobinReplica() {
+        for (int attempt = 0; attempt < replicas.size(); attempt++) {
+            int replica = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+            if (isHealthy(replica)) {
+                return replica;
+            }
+        }
+        return -1;
+    }
+
+    private int leastBusyReplica() {
+        int best = -1;
+        int bestActive = Integer.MAX_VALUE;
+        for (int replica = 0; replica < replicas.size(); replica++) {
+            if (isHealthy(replica)) {
+                int active = activeConnections.applyAsInt(replicas.get(replica));
+                if (active < bestActive) {
+                    best = replica;
+                    bestActive = active;
+                }
+            }
+        }
+        return best;
+    }
+
+    private boolean isHealthy(int replica) {
+        return replicaLagMillis.get(replica) <= maxReplicaLagMillis;
+    }
+
+    private static String replicaKey(int replica) {
+        return "replica-" + replica;
+    }
+
+    /**
+     * Closes the replica pools, which are created for this data source rather than as beans. The primary is left to
+     * the application context.
+     */
+    @Override
+    public void close() throws Exception {
+        for (DataSource replica : replicas) {
+            if (replica instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
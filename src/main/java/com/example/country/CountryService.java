@@ -1,69 +1,442 @@
 package com.example.country;
 
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.cache.annotation.CacheConfig;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Service
+@CacheConfig(cacheNames = "countries")
 public class CountryService {
-    private final CountryMapper countryMapper;
+    // keeps each IN list well below max_allowed_packet and the optimizer's range limits
+    static final int MULTI_GET_CHUNK_SIZE = 500;
 
-    public CountryService(CountryMapper countryMapper) {
-        this.countryMapper = countryMapper;
+    private final CountryStore countryStore;
+
+    private final CountryReplica countryReplica;
+
+    private final CountryPrefixIndex countryPrefixIndex;
+
+    private final CountryBulkWriter countryBulkWriter;
+
+    private final CountryWriteBehindBuffer countryWriteBehindBuffer;
+
+    private final CountryChangeStream countryChangeStream;
+
+    private final CountrySingleFlight countrySingleFlight;
+
+    private final CountryWriteLocks countryWriteLocks;
+
+    public CountryService(CountryStore countryStore, CountryReplica countryReplica, CountryPrefixIndex countryPrefixIndex,
+                          CountryBulkWriter countryBulkWriter, CountryWriteBehindBuffer countryWriteBehindBuffer,
+                          CountryChangeStream countryChangeStream, CountrySingleFlight countrySingleFlight,
+                          CountryWriteLocks countryWriteLocks) {
+        this.countryStore = countryStore;
+        this.countryReplica = countryReplica;
+        this.countryPrefixIndex = countryPrefixIndex;
+        this.countryBulkWriter = countryBulkWriter;
+        this.countryWriteBehindBuffer = countryWriteBehindBuffer;
+        this.countryChangeStream = countryChangeStream;
+        this.countrySingleFlight = countrySingleFlight;
+        this.countryWriteLocks = countryWriteLocks;
     }
 
     public List<Country> findAll() {
-        return countryMapper.findAll();
+        if (countryReplica.isEnabled()) {
+            return countryReplica.findAll();
+        }
+        return coalesce("findAll", List.of(), countryStore::findAll);
+    }
+
+    @Transactional(readOnly = true)
+    public void exportAll(Consumer<Country> consumer) {
+        try (Cursor<Country> cursor = countryStore.streamAll()) {
+            cursor.forEach(consumer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     public List<Country> findByCountry(String prefix) {
-        return countryMapper.findByCountryStartingWith(prefix);
+        if (countryPrefixIndex.isEnabled()) {
+            return countryPrefixIndex.findByCountryStartingWith(prefix);
+        }
+        return coalesce("findByCountryStartingWith", List.of(prefix), () -> countryStore.findByCountryStartingWith(prefix));
     }
 
     public List<Country> findByCity(String prefix) {
-        return countryMapper.findByCityStartingWith(prefix);
+        if (countryPrefixIndex.isEnabled()) {
+            return countryPrefixIndex.findByCityStartingWith(prefix);
+        }
+        return coalesce("findByCityStartingWith", List.of(prefix), () -> countryStore.findByCityStartingWith(prefix));
     }
 
+    public List<Country> findByCountryAndCity(String countryPrefix, String cityPrefix) {
+        if (countryPrefixIndex.isEnabled()) {
+            return countryPrefixIndex.findByCountryAndCityStartingWith(countryPrefix, cityPrefix);
+        }
+        return coalesce("findByCountryAndCityStartingWith", List.of(countryPrefix, cityPrefix),
+                () -> countryStore.findByCountryAndCityStartingWith(countryPrefix, cityPrefix));
+    }
+
+    @Cacheable(key = "#countryCode")
     public Country findByCountryCode(int countryCode) {
-        return countryMapper.findByCountryCode(countryCode)
-                .orElseThrow(() -> new CountryNotFoundException("Country with code " + countryCode + " not found"));
+        return load(countryCode)
+                .orElseThrow(() -> new CountryNotFoundException(countryCode));
+    }
+
+    /**
+     * Looks up many countries at once. Codes are de-duplicated and queried with {@code IN} lists of at most the chunk
+     * size; the found countries come back in request order and the codes that do not exist are listed as missing.
+     * With the replica enabled only the codes it does not hold go to the database, still in {@code IN} lists.
+     */
+    public CountryMultiGetResult findByCountryCodes(List<Integer> countryCodes) {
+        Set<Integer> requested = new LinkedHashSet<>(countryCodes);
+        Map<Integer, Country> found = new HashMap<>();
+        List<Integer> remaining = new ArrayList<>(requested.size());
+        for (int countryCode : requested) {
+            Optional<Country> pending = countryWriteBehindBuffer.isEnabled() ? countryWriteBehindBuffer.find(countryCode) : Optional.empty();
+            if (pending.isPresent()) {
+                found.put(countryCode, pending.get());
+            } else if (countryReplica.isEnabled() && countryReplica.holds(countryCode)) {
+                countryReplica.findByCountryCode(countryCode).ifPresent(country -> found.put(countryCode, country));
+            } else {
+                remaining.add(countryCode);
+            }
+        }
+        for (int from = 0; from < remaining.size(); from += MULTI_GET_CHUNK_SIZE) {
+            List<Integer> chunk = remaining.subList(from, Math.min(from + MULTI_GET_CHUNK_SIZE, remaining.size()));
+            countryStore.findByCountryCodes(chunk).forEach(country -> found.put(country.getCountryCode(), country));
+        }
+        List<Country> countries = new ArrayList<>(found.size());
+        List<Integer> missing = new ArrayList<>();
+        for (int countryCode : requested) {
+            Country country = found.get(countryCode);
+            if (country == null) {
+                missing.add(countryCode);
+            } else {
+                countries.add(country);
+            }
+        }
+        return new CountryMultiGetResult(countries, missing);
     }
 
     public List<Country> getCountries(String countryStartsWith, String cityStartsWith) {
-        if (!countryStartsWith.isEmpty()) {
-            return findByCountry(countryStartsWith);
+        List<Country> countries;
+        if (!countryStartsWith.isEmpty() && !cityStartsWith.isEmpty()) {
+            countries = findByCountryAndCity(countryStartsWith, cityStartsWith);
+        } else if (!countryStartsWith.isEmpty()) {
+            countries = findByCountry(countryStartsWith);
         } else if (!cityStartsWith.isEmpty()) {
-            return findByCity(cityStartsWith);
+            countries = findByCity(cityStartsWith);
         } else {
-            return findAll();
+            countries = findAll();
         }
+        if (!countryWriteBehindBuffer.isEnabled()) {
+            return countries;
+        }
+        String countryKey = CountryPrefixIndex.collationKey(countryStartsWith);
+        String cityKey = CountryPrefixIndex.collationKey(cityStartsWith);
+        return countryWriteBehindBuffer.overlay(countries, country ->
+                CountryPrefixIndex.collationKey(country.getCountry()).startsWith(countryKey)
+                        && CountryPrefixIndex.collationKey(country.getCity()).startsWith(cityKey));
     }
 
-    public Country insert(int countryCode, String country, String city) {
-        if (countryMapper.findByCountryCode(countryCode).isPresent()) {
-            throw new CountryDuplicatedException("Country with code " + countryCode + " duplicated");
+    /**
+     * Version of what {@link #getCountries} returns. When the rows come from the replica or the prefix index, so does
+     * the version, so the probe does not reach the database either. While updates are pending in the write-behind
+     * buffer, which the rows show but the table does not, the version also carries the time of the last change to the
+     * buffer.
+     */
+    public CountryVersion getCountriesVersion(String countryStartsWith, String cityStartsWith) {
+        CountryVersion version = storedVersion(countryStartsWith, cityStartsWith);
+        LocalDateTime pendingChangedAt = countryWriteBehindBuffer.isEnabled() ? countryWriteBehindBuffer.getPendingChangedAt() : null;
+        return pendingChangedAt == null ? version : version.withPendingChanges(pendingChangedAt);
+    }
+
+    private CountryVersion storedVersion(String countryStartsWith, String cityStartsWith) {
+        boolean filtered = !countryStartsWith.isEmpty() || !cityStartsWith.isEmpty();
+        if (!filtered && countryReplica.isEnabled()) {
+            return countryReplica.version();
+        }
+        if (filtered && countryPrefixIndex.isEnabled()) {
+            return countryPrefixIndex.version(countryStartsWith, cityStartsWith);
+        }
+        return coalesce("findVersion", List.of(countryStartsWith, cityStartsWith),
+                () -> countryStore.findVersion(countryStartsWith, cityStartsWith));
+    }
+
+    /**
+     * Reads one page of countries after the cursor. Updates pending in the write-behind buffer are merged in the same
+     * way as {@link #getCountries} overlays them.
+     */
+    public CountryPage getCountryPage(String countryStartsWith, String cityStartsWith, CountryCursor after, int limit) {
+        int afterCountryCode = after == null ? Integer.MIN_VALUE : after.getCountryCode();
+        String afterSortKey = after == null || after.getSortKey() == null ? "" : after.getSortKey();
+        PageQuery query;
+        Function<Country, String> sortKey;
+        if (!countryStartsWith.isEmpty() && !cityStartsWith.isEmpty()) {
+            query = (sortKeyAfter, countryCodeAfter, rows) -> countryStore.findByCountryAndCityStartingWithAfter(
+                    countryStartsWith, cityStartsWith, sortKeyAfter, countryCodeAfter, rows);
+            sortKey = Country::getCountry;
+        } else if (!countryStartsWith.isEmpty()) {
+            query = (sortKeyAfter, countryCodeAfter, rows) -> countryStore.findByCountryStartingWithAfter(
+                    countryStartsWith, sortKeyAfter, countryCodeAfter, rows);
+            sortKey = Country::getCountry;
+        } else if (!cityStartsWith.isEmpty()) {
+            query = (sortKeyAfter, countryCodeAfter, rows) -> countryStore.findByCityStartingWithAfter(
+                    cityStartsWith, sortKeyAfter, countryCodeAfter, rows);
+            sortKey = Country::getCity;
+        } else {
+            query = (sortKeyAfter, countryCodeAfter, rows) -> countryStore.findAllAfter(countryCodeAfter, rows);
+            sortKey = country -> null;
+        }
+        List<Country> countries = countryWriteBehindBuffer.isEnabled() && countryWriteBehindBuffer.size() > 0
+                ? pageWithPending(query, sortKey, countryStartsWith, cityStartsWith, afterSortKey, afterCountryCode, limit + 1)
+                : query.find(afterSortKey, afterCountryCode, limit + 1);
+        if (countries.size() <= limit) {
+            return new CountryPage(countries, null);
+        }
+        List<Country> page = countries.subList(0, limit);
+        Country last = page.get(limit - 1);
+        return new CountryPage(page, new CountryCursor(last.getCountryCode(), sortKey.apply(last)));
+    }
+
+    /**
+     * Reads the rows of a page with the pending updates merged in. Rows with a pending update are taken from the buffer
+     * instead, which may move them out of the filter or to another page, so the table is read on until enough rows
+     * remain or it is exhausted; pending rows are then added up to the last row read, in the order of the page.
+     */
+    private List<Country> pageWithPending(PageQuery query, Function<Country, String> sortKey, String countryStartsWith,
+                                          String cityStartsWith, String afterSortKey, int afterCountryCode, int rows) {
+        Function<Country, String> collationKey = country -> sortKey.apply(country) == null
+                ? "" : CountryPrefixIndex.collationKey(sortKey.apply(country));
+        Comparator<Country> order = Comparator.comparing(collationKey).thenComparingInt(Country::getCountryCode);
+        List<Country> countries = new ArrayList<>();
+        String sortKeyAfter = afterSortKey;
+        int countryCodeAfter = afterCountryCode;
+        Country lastRead = null;
+        boolean exhausted = false;
+        while (countries.size() < rows && !exhausted) {
+            List<Country> read = query.find(sortKeyAfter, countryCodeAfter, rows);
+            exhausted = read.size() < rows;
+            for (Country country : read) {
+                if (countryWriteBehindBuffer.find(country.getCountryCode()).isEmpty()) {
+                    countries.add(country);
+                }
+            }
+            if (!read.isEmpty()) {
+                lastRead = read.get(read.size() - 1);
+                sortKeyAfter = sortKey.apply(lastRead) == null ? "" : sortKey.apply(lastRead);
+                countryCodeAfter = lastRead.getCountryCode();
+            }
+        }
+        String afterKey = CountryPrefixIndex.collationKey(afterSortKey);
+        Country upTo = exhausted ? null : lastRead;
+        String countryKey = CountryPrefixIndex.collationKey(countryStartsWith);
+        String cityKey = CountryPrefixIndex.collationKey(cityStartsWith);
+        countries.addAll(countryWriteBehindBuffer.findAll(country ->
+                CountryPrefixIndex.collationKey(country.getCountry()).startsWith(countryKey)
+                        && CountryPrefixIndex.collationKey(country.getCity()).startsWith(cityKey)
+                        && isAfter(collationKey.apply(country), country.getCountryCode(), afterKey, afterCountryCode)
+                        && (upTo == null || order.compare(country, upTo) <= 0)));
+        countries.sort(order);
+        return countries.size() > rows ? new ArrayList<>(countries.subList(0, rows)) : countries;
+    }
+
+    private static boolean isAfter(String key, int countryCode, String afterKey, int afterCountryCode) {
+        int compared = key.compareTo(afterKey);
+        return compared > 0 || compared == 0 && countryCode > afterCountryCode;
+    }
+
+    private Optional<Country> load(int countryCode) {
+        if (countryWriteBehindBuffer.isEnabled()) {
+            Optional<Country> pending = countryWriteBehindBuffer.find(countryCode);
+            if (pending.isPresent()) {
+                return pending;
+            }
         }
+        return countryReplica.isEnabled()
+                ? countryReplica.findByCountryCode(countryCode)
+                : coalesce("findByCountryCode", List.of(countryCode), () -> countryStore.findByCountryCode(countryCode));
+    }
+
+    private <T> T coalesce(String statement, List<?> arguments, Supplier<T> query) {
+        return countrySingleFlight.isEnabled() ? countrySingleFlight.execute(statement, arguments, query) : query.get();
+    }
+
+    @CachePut(key = "#countryCode")
+    public Country insert(int countryCode, String country, String city) {
+        Country.validateColumns(country, city);
         Country countryEntity = new Country(countryCode, country, city);
-        countryMapper.insert(countryEntity);
-        return countryEntity;
+        return countryWriteLocks.withLock(countryCode, () -> {
+            try {
+                countryStore.insert(countryEntity);
+            } catch (DuplicateKeyException e) {
+                throw new CountryDuplicatedException(countryCode);
+            }
+            countryReplica.put(countryEntity);
+            countryPrefixIndex.put(countryEntity);
+            countrySingleFlight.invalidateAll();
+            countryChangeStream.publish(CountryChangeEvent.INSERT, countryCode, country, city);
+            return countryEntity;
+        });
     }
 
+    @CachePut(key = "#countryCode")
     public Country update(int countryCode, String country, String city) {
-        Country existingCountry = countryMapper.findByCountryCode(countryCode)
-                .orElseThrow(() -> new CountryNotFoundException("Country with code " + countryCode + " not found"));
-
-        existingCountry.setCountry(country);
-        existingCountry.setCity(city);
+        // a buffered update is acknowledged before it is written, so the database cannot be left to reject it
+        Country.validateColumns(country, city);
+        Country updatedCountry = new Country(countryCode, country, city);
+        return countryWriteLocks.withLock(countryCode, () -> {
+            if (countryWriteBehindBuffer.isEnabled()) {
+                if (load(countryCode).isEmpty()) {
+                    throw new CountryNotFoundException(countryCode);
+                }
+                countryWriteBehindBuffer.put(updatedCountry);
+            } else if (countryStore.update(updatedCountry) == 0) {
+                throw new CountryNotFoundException(countryCode);
+            }
+            countryReplica.put(updatedCountry);
+            countryPrefixIndex.put(updatedCountry);
+            countrySingleFlight.invalidateAll();
+            countryChangeStream.publish(CountryChangeEvent.UPDATE, countryCode, country, city);
+            return updatedCountry;
+        });
+    }
 
-        countryMapper.update(existingCountry);
-        return existingCountry;
+    @CacheEvict(key = "#countryCode")
+    public void delete(int countryCode) {
+        countryWriteLocks.lock(countryCode);
+        try {
+            countryWriteBehindBuffer.discard(countryCode);
+            if (countryStore.delete(countryCode) == 0) {
+                throw new CountryNotFoundException(countryCode);
+            }
+            countryReplica.remove(countryCode);
+            countryPrefixIndex.remove(countryCode);
+            countrySingleFlight.invalidateAll();
+            countryChangeStream.publish(CountryChangeEvent.DELETE, countryCode, null, null);
+        } finally {
+            countryWriteLocks.unlock(countryCode);
+        }
     }
 
-    public Country delete(int countryCode) {
-        Country country = countryMapper.findByCountryCode(countryCode)
-                .orElseThrow(() -> new CountryNotFoundException("Country with code " + countryCode + " not found"));
+    /**
+     * Drops the pending write-behind update of a country that is about to be written outside this service, by the /v2
+     * API. It has to run before that write: a pending update flushed after it would overwrite it. Waits for a running
+     * flush.
+     */
+    public void discardPending(int countryCode) {
+        countryWriteBehindBuffer.discard(countryCode);
+    }
 
-        countryMapper.delete(country);
+    /**
+     * Brings the cache, the in-memory copies and the change stream up to date after an insert or update that was
+     * written to the database outside this service, by the /v2 API, which has called {@link #discardPending} first.
+     * The caller holds the {@link CountryWriteLocks} lock of the country from before the database write.
+     */
+    @CachePut(key = "#country.countryCode")
+    public Country recordWrite(String type, Country country) {
+        countryReplica.put(country);
+        countryPrefixIndex.put(country);
+        countrySingleFlight.invalidateAll();
+        countryChangeStream.publish(type, country.getCountryCode(), country.getCountry(), country.getCity());
         return country;
     }
+
+    /**
+     * Counterpart of {@link #recordWrite} for a delete.
+     */
+    @CacheEvict(key = "#countryCode")
+    public void recordDelete(int countryCode) {
+        countryReplica.remove(countryCode);
+        countryPrefixIndex.remove(countryCode);
+        countrySingleFlight.invalidateAll();
+        countryChangeStream.publish(CountryChangeEvent.DELETE, countryCode, null, null);
+    }
+
+    /**
+     * Puts the cache, the in-memory copies and the change stream back in line with the database after the write-behind
+     * buffer gave up an update that they already showed.
+     */
+    @EventListener
+    @CacheEvict(key = "#event.countryCode")
+    public void onUpdateDropped(CountryUpdateDroppedEvent event) {
+        int countryCode = event.getCountryCode();
+        countrySingleFlight.invalidateAll();
+        countryWriteLocks.lock(countryCode);
+        try {
+            if (countryWriteBehindBuffer.find(countryCode).isPresent()) {
+                // a newer update is pending and the copies already show it
+                return;
+            }
+            countryStore.findByCountryCode(countryCode).ifPresentOrElse(country -> {
+                countryReplica.put(country);
+                countryPrefixIndex.put(country);
+                countryChangeStream.publish(CountryChangeEvent.UPDATE, countryCode, country.getCountry(), country.getCity());
+            }, () -> {
+                countryReplica.remove(countryCode);
+                countryPrefixIndex.remove(countryCode);
+                countryChangeStream.publish(CountryChangeEvent.DELETE, countryCode, null, null);
+            });
+        } finally {
+            countryWriteLocks.unlock(countryCode);
+        }
+    }
+
+    @CacheEvict(allEntries = true)
+    public List<CountryBulkResult> bulk(List<CountryBulkItem> items) {
+        return countryWriteLocks.withLocks(items.stream().map(CountryBulkItem::getCountryCode).toList(), () -> writeBulk(items));
+    }
+
+    private List<CountryBulkResult> writeBulk(List<CountryBulkItem> items) {
+        List<CountryBulkResult> results = countryWriteBehindBuffer.isEnabled()
+                ? countryWriteBehindBuffer.writeThrough(items)
+                : countryBulkWriter.write(items);
+        countrySingleFlight.invalidateAll();
+        for (int i = 0; i < items.size(); i++) {
+            CountryBulkItem item = items.get(i);
+            if (!results.get(i).isSucceeded()) {
+                continue;
+            }
+            if (item.getOperation() == CountryBulkItem.Operation.DELETE) {
+                countryReplica.remove(item.getCountryCode());
+                countryPrefixIndex.remove(item.getCountryCode());
+                countryChangeStream.publish(CountryChangeEvent.DELETE, item.getCountryCode(), null, null);
+            } else {
+                countryReplica.put(item.toCountry());
+                countryPrefixIndex.put(item.toCountry());
+                String type = item.getOperation() == CountryBulkItem.Operation.INSERT ? CountryChangeEvent.INSERT : CountryChangeEvent.UPDATE;
+                countryChangeStream.publish(type, item.getCountryCode(), item.getCountry(), item.getCity());
+            }
+        }
+        return results;
+    }
+
+    // reads the rows of a page after a sort key and country code, in the order of the page
+    @FunctionalInterface
+    private interface PageQuery {
+        List<Country> find(String afterSortKey, int afterCountryCode, int rows);
+    }
 }
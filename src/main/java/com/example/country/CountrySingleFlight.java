@@ -0,0 +1,111 @@
+package com.example.country;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical concurrent reads into one query.
+ * <p>
+ * The first caller for a statement and arguments runs the query; callers arriving while it is in flight wait for it
+ * and receive the same result, or the same exception. Calls are counted as {@code country.singleflight.calls}, tagged
+ * with the statement and whether the call ran the query ({@code leader}) or joined one ({@code coalesced}); the counters
+ * are registered once per statement and looked up afterwards.
+ * <p>
+ * Writes call {@link #invalidateAll()}, so a read that starts after a write never joins a query that started before
+ * it. That only covers writes made on this node, so with read routing a request within its client's read-after-write
+ * window (see {@link CountryRoutingDataSource}) runs its own query on the primary instead of joining one that may have
+ * gone to a lagging replica.
+ */
+@Component
+public class CountrySingleFlight {
+    static final String METRIC_NAME = "country.singleflight.calls";
+
+    private final boolean enabled;
+
+    private final MeterRegistry meterRegistry;
+
+    private final CountryRoutingDataSource routingDataSource;
+
+    private final Map<List<Object>, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> leaderCounters = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> coalescedCounters = new ConcurrentHashMap<>();
+
+    private final Function<String, Counter> leaderCounter = statement -> counter(statement, "leader");
+
+    private final Function<String, Counter> coalescedCounter = statement -> counter(statement, "coalesced");
+
+    public CountrySingleFlight(@Value("${country.single-flight.enabled:true}") boolean enabled, MeterRegistry meterRegistry,
+                               ObjectProvider<CountryRoutingDataSource> routingDataSource) {
+        this.enabled = enabled;
+        this.meterRegistry = meterRegistry;
+        this.routingDataSource = routingDataSource.getIfAvailable();
+        meterRegistry.gaugeMapSize("country.singleflight.in.flight", List.of(), inFlight);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String statement, List<?> arguments, Supplier<T> query) {
+        if (routingDataSource != null && routingDataSource.wroteRecently()) {
+            return query.get();
+        }
+        List<Object> key = List.of(statement, arguments);
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalescedCounters.computeIfAbsent(statement, coalescedCounter).increment();
+            try {
+                return (T) running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                if (e.getCause() instanceof Error cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+        leaderCounters.computeIfAbsent(statement, leaderCounter).increment();
+        T result;
+        try {
+            result = query.get();
+        } catch (Throwable e) {
+            // an Error has to release the waiting callers too, or they would block until the next write
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        // removed before completing, so a caller arriving after the result is ready starts a fresh query
+        inFlight.remove(key, mine);
+        mine.complete(result);
+        return result;
+    }
+
+    public void invalidateAll() {
+        inFlight.clear();
+    }
+
+    private Counter counter(String statement, String result) {
+        return Counter.builder(METRIC_NAME)
+                .description("Reads that ran a query or joined an identical one in flight")
+                .tag("statement", statement)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
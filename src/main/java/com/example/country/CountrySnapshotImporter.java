@@ -0,0 +1,86 @@
+package com.example.country;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * Loads a snapshot into the store one block at a time.
+ * <p>
+ * The upload is first staged in a temporary file and read through once without writing, so a truncated or corrupted
+ * snapshot, or one with a row the store cannot hold, is rejected before any row reaches the store instead of being
+ * half-loaded.
+ * <p>
+ * Each block goes through {@link CountryService#bulk} as inserts, so it is written as one JDBC batch on MySQL and as one
+ * group commit on the embedded store. The replica, the prefix index, the cache and the change stream are updated the
+ * same way as for any bulk request, and only one block of rows is held in memory at a time. Countries that already
+ * exist are left as they are and counted as skipped, so an interrupted import can simply be run again.
+ */
+@Component
+public class CountrySnapshotImporter {
+    private static final Logger log = LoggerFactory.getLogger(CountrySnapshotImporter.class);
+
+    private final CountryService countryService;
+
+    public CountrySnapshotImporter(CountryService countryService) {
+        this.countryService = countryService;
+    }
+
+    public CountrySnapshotResult load(InputStream input) throws IOException {
+        Path staged = Files.createTempFile("country-snapshot", ".bin");
+        try {
+            Files.copy(input, staged, StandardCopyOption.REPLACE_EXISTING);
+            validate(staged);
+            return insert(staged);
+        } finally {
+            Files.deleteIfExists(staged);
+        }
+    }
+
+    private static void validate(Path staged) throws IOException {
+        try (CountrySnapshotReader reader = new CountrySnapshotReader(Files.newInputStream(staged))) {
+            List<Country> block;
+            // every block is checked against its checksum and the end block against the rows read
+            while ((block = reader.nextBlock()) != null) {
+                for (Country country : block) {
+                    String error = Country.columnError(country.getCountry(), country.getCity());
+                    if (error != null) {
+                        throw new InvalidCountrySnapshotException("country " + country.getCountryCode() + " in the snapshot is invalid: " + error);
+                    }
+                }
+            }
+        }
+    }
+
+    private CountrySnapshotResult insert(Path staged) throws IOException {
+        long started = System.nanoTime();
+        long inserted = 0;
+        long skipped = 0;
+        try (CountrySnapshotReader reader = new CountrySnapshotReader(Files.newInputStream(staged))) {
+            List<Country> block;
+            while ((block = reader.nextBlock()) != null) {
+                List<CountryBulkItem> items = block.stream()
+                        .map(country -> new CountryBulkItem(CountryBulkItem.Operation.INSERT,
+                                country.getCountryCode(), country.getCountry(), country.getCity()))
+                        .toList();
+                for (CountryBulkResult result : countryService.bulk(items)) {
+                    if (result.isSucceeded()) {
+                        inserted++;
+                    } else {
+                        skipped++;
+                    }
+                }
+            }
+            log.info("Loaded a snapshot of {} countries in {} ms: {} inserted, {} already present",
+                    reader.getRead(), (System.nanoTime() - started) / 1_000_000, inserted, skipped);
+            return new CountrySnapshotResult(reader.getRead(), inserted, skipped);
+        }
+    }
+}
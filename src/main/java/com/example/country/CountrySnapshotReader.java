@@ -0,0 +1,157 @@
+package com.example.country;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a snapshot written by {@link CountrySnapshotWriter} one block at a time.
+ * <p>
+ * Every block is checked against its checksum and the rows read are checked against the count in the end block, so a
+ * truncated or corrupted snapshot fails with {@link InvalidCountrySnapshotException} instead of loading partially
+ * unnoticed. Blocks already returned before the failure are not taken back.
+ */
+public class CountrySnapshotReader implements Closeable {
+    // keeps a corrupted length from allocating an arbitrary amount of memory
+    private static final int MAX_BLOCK_BYTES = CountrySnapshotWriter.BLOCK_ROWS * (Integer.BYTES + 2 * (Short.BYTES + 400));
+
+    // a row with two empty columns: the code and two zero lengths
+    private static final int MIN_ROW_BYTES = Integer.BYTES + 2 * Short.BYTES;
+
+    private final DataInputStream input;
+
+    private final Inflater inflater;
+
+    private byte[] raw = new byte[0];
+
+    private byte[] stored = new byte[0];
+
+    private long read;
+
+    private boolean finished;
+
+    public CountrySnapshotReader(InputStream input) throws IOException {
+        this.input = new DataInputStream(new BufferedInputStream(input, 64 * 1024));
+        try {
+            if (this.input.readInt() != CountrySnapshotWriter.MAGIC) {
+                throw new InvalidCountrySnapshotException("not a country snapshot");
+            }
+            short version = this.input.readShort();
+            if (version != CountrySnapshotWriter.FORMAT_VERSION) {
+                throw new InvalidCountrySnapshotException("unsupported snapshot version " + version);
+            }
+            int flags = this.input.readShort();
+            this.inflater = (flags & CountrySnapshotWriter.FLAG_DEFLATE) != 0 ? new Inflater(true) : null;
+        } catch (EOFException e) {
+            throw new InvalidCountrySnapshotException("snapshot is truncated");
+        }
+    }
+
+    /**
+     * Returns the rows of the next block, or {@code null} after the last one.
+     */
+    public List<Country> nextBlock() throws IOException {
+        if (finished) {
+            return null;
+        }
+        try {
+            int rows = input.readInt();
+            int rawLength = input.readInt();
+            int storedLength = input.readInt();
+            int checksum = input.readInt();
+            if (rows == 0) {
+                long total = input.readLong();
+                if (total != read) {
+                    throw new InvalidCountrySnapshotException("snapshot has " + read + " rows but declares " + total);
+                }
+                finished = true;
+                return null;
+            }
+            if (rows < 0 || rows > CountrySnapshotWriter.BLOCK_ROWS || rawLength < (long) rows * MIN_ROW_BYTES || rawLength > MAX_BLOCK_BYTES || storedLength < 0 || storedLength > MAX_BLOCK_BYTES
+                    || inflater == null && storedLength != rawLength) {
+                throw new InvalidCountrySnapshotException("snapshot block after row " + read + " is corrupted");
+            }
+            ByteBuffer block = ByteBuffer.wrap(readBlock(rawLength, storedLength), 0, rawLength);
+            CRC32C crc = new CRC32C();
+            crc.update(block.array(), 0, rawLength);
+            if ((int) crc.getValue() != checksum) {
+                throw new InvalidCountrySnapshotException("snapshot block after row " + read + " fails its checksum");
+            }
+            List<Country> countries = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                int countryCode = block.getInt();
+                String country = readColumn(block);
+                String city = readColumn(block);
+                countries.add(new Country(countryCode, country, city));
+            }
+            if (block.hasRemaining()) {
+                throw new InvalidCountrySnapshotException("snapshot block after row " + read + " is corrupted");
+            }
+            read += rows;
+            return countries;
+        } catch (EOFException | BufferUnderflowException e) {
+            throw new InvalidCountrySnapshotException("snapshot is truncated or corrupted after row " + read);
+        }
+    }
+
+    public long getRead() {
+        return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (inflater != null) {
+            inflater.end();
+        }
+        input.close();
+    }
+
+    private byte[] readBlock(int rawLength, int storedLength) throws IOException {
+        if (raw.length < rawLength) {
+            raw = new byte[rawLength];
+        }
+        if (inflater == null) {
+            input.readFully(raw, 0, rawLength);
+            return raw;
+        }
+        if (stored.length < storedLength) {
+            stored = new byte[storedLength];
+        }
+        input.readFully(stored, 0, storedLength);
+        inflater.reset();
+        inflater.setInput(stored, 0, storedLength);
+        try {
+            int inflated = 0;
+            while (inflated < rawLength && !inflater.finished()) {
+                int n = inflater.inflate(raw, inflated, rawLength - inflated);
+                if (n == 0 && inflater.needsInput()) {
+                    break;
+                }
+                inflated += n;
+            }
+            if (inflated != rawLength) {
+                throw new InvalidCountrySnapshotException("snapshot block after row " + read + " does not inflate to its length");
+            }
+        } catch (DataFormatException e) {
+            throw new InvalidCountrySnapshotException("snapshot block after row " + read + " cannot be inflated");
+        }
+        return raw;
+    }
+
+    private static String readColumn(ByteBuffer block) {
+        byte[] bytes = new byte[Short.toUnsignedInt(block.getShort())];
+        block.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
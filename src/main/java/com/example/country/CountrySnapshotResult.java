@@ -0,0 +1,43 @@
+package com.example.country;
+
+import java.util.Objects;
+
+public class CountrySnapshotResult {
+
+    private final long rows;
+
+    private final long inserted;
+
+    private final long skipped;
+
+    public CountrySnapshotResult(long rows, long inserted, long skipped) {
+        this.rows = rows;
+        this.inserted = inserted;
+        this.skipped = skipped;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CountrySnapshotResult that = (CountrySnapshotResult) o;
+        return rows == that.rows && inserted == that.inserted && skipped == that.skipped;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(rows, inserted, skipped);
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.country;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+import java.util.zip.Deflater;
+
+/**
+ * Writes countries in the binary snapshot format read by {@link CountrySnapshotReader}.
+ * <p>
+ * The file starts with a header of magic, format version and flags, followed by blocks of up to {@link #BLOCK_ROWS}
+ * rows and an empty end block carrying the total row count. A block is {@code [row count][raw length][stored length]
+ * [crc32c of the raw bytes][stored bytes]}, where the stored bytes are the raw rows, deflated when the snapshot is
+ * compressed. A row is {@code [country_code][country length][country][city length][city]} with UTF-8 columns, so
+ * only one block is ever held in memory on either side. Closing writes the end block and flushes, but leaves the
+ * underlying stream open.
+ */
+public class CountrySnapshotWriter implements Consumer<Country>, Closeable {
+    static final int MAGIC = 0x43534e50;
+
+    static final short FORMAT_VERSION = 1;
+
+    static final int FLAG_DEFLATE = 1;
+
+    static final int BLOCK_ROWS = 4096;
+
+    private final DataOutputStream output;
+
+    private final boolean compressed;
+
+    private final Deflater deflater;
+
+    private ByteBuffer block = ByteBuffer.allocate(64 * 1024);
+
+    private byte[] stored = new byte[0];
+
+    private int blockRows;
+
+    private long written;
+
+    public CountrySnapshotWriter(OutputStream output, boolean compressed) throws IOException {
+        this.output = new DataOutputStream(new BufferedOutputStream(output, 64 * 1024));
+        this.compressed = compressed;
+        this.deflater = compressed ? new Deflater(Deflater.BEST_SPEED, true) : null;
+        this.output.writeInt(MAGIC);
+        this.output.writeShort(FORMAT_VERSION);
+        this.output.writeShort(compressed ? FLAG_DEFLATE : 0);
+    }
+
+    @Override
+    public void accept(Country country) {
+        byte[] name = country.getCountry().getBytes(StandardCharsets.UTF_8);
+        byte[] city = country.getCity().getBytes(StandardCharsets.UTF_8);
+        int length = Integer.BYTES + Short.BYTES + name.length + Short.BYTES + city.length;
+        if (block.remaining() < length) {
+            block = ByteBuffer.allocate(Math.max(block.capacity() * 2, block.position() + length)).put(block.flip());
+        }
+        block.putInt(country.getCountryCode())
+                .putShort((short) name.length).put(name)
+                .putShort((short) city.length).put(city);
+        written++;
+        if (++blockRows == BLOCK_ROWS) {
+            try {
+                writeBlock();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    public long getWritten() {
+        return written;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (blockRows > 0) {
+                writeBlock();
+            }
+            output.writeInt(0);
+            output.writeInt(0);
+            output.writeInt(0);
+            output.writeInt(0);
+            output.writeLong(written);
+            output.flush();
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        int rawLength = block.position();
+        CRC32C crc = new CRC32C();
+        crc.update(block.array(), 0, rawLength);
+        int storedLength = rawLength;
+        byte[] storedBytes = block.array();
+        if (compressed) {
+            deflater.reset();
+            deflater.setInput(block.array(), 0, rawLength);
+            deflater.finish();
+            storedLength = 0;
+            while (!deflater.finished()) {
+                if (storedLength == stored.length) {
+                    stored = Arrays.copyOf(stored, Math.max(Math.max(1024, rawLength / 2), stored.length * 2));
+                }
+                storedLength += deflater.deflate(stored, storedLength, stored.length - storedLength);
+            }
+            storedBytes = stored;
+        }
+        output.writeInt(blockRows);
+        output.writeInt(rawLength);
+        output.writeInt(storedLength);
+        output.writeInt((int) crc.getValue());
+        output.write(storedBytes, 0, storedLength);
+        block.clear();
+        blockRows = 0;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.country;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * One captured mapped statement execution. {@code rows} is the affected row count of a write, the size of a query
+ * result, or -1 when it is not known (cursors and batched writes).
+ */
+public class CountrySqlTrace {
+
+    private final Instant timestamp;
+
+    private final String statement;
+
+    private final List<String> parameters;
+
+    private final long durationMicros;
+
+    private final int rows;
+
+    private final boolean slow;
+
+    public CountrySqlTrace(Instant timestamp, String statement, List<String> parameters, long durationMicros, int rows, boolean slow) {
+        this.timestamp = timestamp;
+        this.statement = statement;
+        this.parameters = parameters;
+        this.durationMicros = durationMicros;
+        this.rows = rows;
+        this.slow = slow;
+    }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    public String getStatement() {
+        return statement;
+    }
+
+    public List<String> getParameters() {
+        return parameters;
+    }
+
+    public long getDurationMicros() {
+        return durationMicros;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public boolean isSlow() {
+        return slow;
+    }
+
+    @Override
+    public String toString() {
+        return statement + " " + parameters + " " + durationMicros + "us " + rows + " rows";
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.country;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-size ring of the most recent traces.
+ * <p>
+ * Writers claim a sequence number with one {@code getAndIncrement} and publish into the slot it maps to, so recording
+ * never takes a lock and never waits for a reader. Each slot remembers the sequence it was written for, which lets a
+ * reader skip a slot that a faster writer has already lapped while the snapshot was being taken, and lets a writer that
+ * was descheduled between claiming and publishing back off instead of replacing the newer trace that lapped it.
+ */
+class CountrySqlTraceBuffer {
+    private final AtomicReferenceArray<Slot> slots;
+
+    private final int mask;
+
+    private final AtomicLong next = new AtomicLong();
+
+    CountrySqlTraceBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    void add(CountrySqlTrace trace) {
+        long sequence = next.getAndIncrement();
+        int index = (int) (sequence & mask);
+        Slot slot = new Slot(sequence, trace);
+        Slot current;
+        do {
+            current = slots.get(index);
+            if (current != null && current.sequence > sequence) {
+                return;
+            }
+        } while (!slots.compareAndSet(index, current, slot));
+    }
+
+    /**
+     * Newest first, at most {@code limit} traces.
+     */
+    List<CountrySqlTrace> snapshot(int limit) {
+        long end = next.get();
+        long start = Math.max(0, end - slots.length());
+        List<CountrySqlTrace> traces = new ArrayList<>((int) Math.min(limit, end - start));
+        for (long sequence = end - 1; sequence >= start && traces.size() < limit; sequence--) {
+            Slot slot = slots.get((int) (sequence & mask));
+            // null or older: claimed but not yet published; newer: overwritten since the snapshot began
+            if (slot != null && slot.sequence == sequence) {
+                traces.add(slot.trace);
+            }
+        }
+        return traces;
+    }
+
+    private record Slot(long sequence, CountrySqlTrace trace) {
+    }
+}
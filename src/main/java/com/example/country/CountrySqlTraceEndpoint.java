@@ -0,0 +1,32 @@
+package com.example.country;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code /actuator/sqltraces}: the captured slow statements and the most recent sampled ones, newest first.
+ */
+@Component
+@Endpoint(id = "sqltraces")
+public class CountrySqlTraceEndpoint {
+    static final int DEFAULT_LIMIT = 100;
+
+    private final CountrySqlTraceInterceptor interceptor;
+
+    public CountrySqlTraceEndpoint(CountrySqlTraceInterceptor interceptor) {
+        this.interceptor = interceptor;
+    }
+
+    @ReadOperation
+    public Map<String, List<CountrySqlTrace>> traces(@Nullable Integer limit) {
+        int max = limit == null || limit < 1 ? DEFAULT_LIMIT : limit;
+        return Map.of(
+                "slow", interceptor.slowTraces(max),
+                "recent", interceptor.recentTraces(max));
+    }
+}
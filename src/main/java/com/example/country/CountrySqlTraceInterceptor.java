@@ -0,0 +1,171 @@
+package com.example.country;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Traces mapped statements into in-memory ring buffers and the {@code com.example.country.sql} logger.
+ * <p>
+ * Every execution is timed, but only a sample of them, plus every execution at or over the slow threshold, is
+ * captured: their parameters are rendered, the trace goes into the recent buffer and is logged. Slow executions also
+ * go into a buffer of their own, so a burst of fast traffic cannot push them out before someone looks. The logger is
+ * wired to an asynchronous appender in logback-spring.xml, so a captured statement never waits for the console.
+ */
+@Component
+@Intercepts({
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+        @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "queryCursor", args = {MappedStatement.class, Object.class, RowBounds.class})
+})
+public class CountrySqlTraceInterceptor implements Interceptor {
+    static final String LOGGER_NAME = "com.example.country.sql";
+
+    private static final Logger log = LoggerFactory.getLogger(LOGGER_NAME);
+
+    private final boolean enabled;
+
+    private final double sampleRate;
+
+    private final long slowThresholdNanos;
+
+    private final CountrySqlTraceBuffer recent;
+
+    private final CountrySqlTraceBuffer slow;
+
+    public CountrySqlTraceInterceptor(@Value("${country.sql-trace.enabled:true}") boolean enabled,
+                                      @Value("${country.sql-trace.sample-rate:0.01}") double sampleRate,
+                                      @Value("${country.sql-trace.slow-threshold:1s}") Duration slowThreshold,
+                                      @Value("${country.sql-trace.capacity:1024}") int capacity,
+                                      @Value("${country.sql-trace.slow-capacity:256}") int slowCapacity) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("Sample rate must be between 0 and 1: " + sampleRate);
+        }
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.recent = new CountrySqlTraceBuffer(capacity);
+        this.slow = new CountrySqlTraceBuffer(slowCapacity);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public List<CountrySqlTrace> recentTraces(int limit) {
+        return recent.snapshot(limit);
+    }
+
+    public List<CountrySqlTrace> slowTraces(int limit) {
+        return slow.snapshot(limit);
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        if (!enabled) {
+            return invocation.proceed();
+        }
+        long start = System.nanoTime();
+        Object result = null;
+        try {
+            result = invocation.proceed();
+            return result;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            boolean isSlow = elapsed >= slowThresholdNanos;
+            if (isSlow || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate)) {
+                try {
+                    capture(invocation, result, elapsed, isSlow);
+                } catch (RuntimeException e) {
+                    // tracing must never change the outcome of the statement
+                    log.debug("Could not capture a trace", e);
+                }
+            }
+        }
+    }
+
+    private void capture(Invocation invocation, Object result, long elapsedNanos, boolean isSlow) {
+        Object[] args = invocation.getArgs();
+        MappedStatement mappedStatement = (MappedStatement) args[0];
+        BoundSql boundSql = args.length == 6 ? (BoundSql) args[5] : mappedStatement.getBoundSql(args[1]);
+        CountrySqlTrace trace = new CountrySqlTrace(Instant.now(),
+                statementName(mappedStatement.getId()),
+                parameters(mappedStatement.getConfiguration(), boundSql),
+                TimeUnit.NANOSECONDS.toMicros(elapsedNanos),
+                rows(result),
+                isSlow);
+        recent.add(trace);
+        if (isSlow) {
+            slow.add(trace);
+            log.warn("slow {}", trace);
+        } else {
+            log.info("{}", trace);
+        }
+    }
+
+    /**
+     * The bound values in placeholder order, resolved the same way MyBatis' DefaultParameterHandler resolves them.
+     */
+    private static List<String> parameters(Configuration configuration, BoundSql boundSql) {
+        Object parameterObject = boundSql.getParameterObject();
+        List<ParameterMapping> mappings = boundSql.getParameterMappings();
+        List<String> parameters = new ArrayList<>(mappings.size());
+        MetaObject metaObject = null;
+        for (ParameterMapping mapping : mappings) {
+            String property = mapping.getProperty();
+            Object value;
+            if (boundSql.hasAdditionalParameter(property)) {
+                value = boundSql.getAdditionalParameter(property);
+            } else if (parameterObject == null) {
+                value = null;
+            } else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+                value = parameterObject;
+            } else {
+                if (metaObject == null) {
+                    metaObject = configuration.newMetaObject(parameterObject);
+                }
+                value = metaObject.getValue(property);
+            }
+            parameters.add(String.valueOf(value));
+        }
+        return parameters;
+    }
+
+    private static int rows(Object result) {
+        if (result instanceof Integer count && count != BatchExecutor.BATCH_UPDATE_RETURN_VALUE) {
+            return count;
+        }
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        return -1;
+    }
+
+    private static String statementName(String id) {
+        return id.substring(id.lastIndexOf('.') + 1);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.country;
+
+import org.apache.ibatis.cursor.Cursor;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Storage of the countries table as seen by {@link CountryService} and the in-memory copies loaded from it.
+ * <p>
+ * {@link CountryMySqlStore} implements it on MySQL and {@link CountryMappedFileStore} on an embedded file. Both follow the
+ * mapper's semantics: prefix searches match case and accent insensitively, an insert of an existing country_code throws
+ * {@link org.springframework.dao.DuplicateKeyException}, and update and delete return the number of rows they changed.
+ */
+public interface CountryStore {
+
+    List<Country> findAll();
+
+    /**
+     * Streams every country in country_code order; the caller closes the cursor.
+     */
+    Cursor<Country> streamAll();
+
+    List<Country> findByCountryStartingWith(String prefix);
+
+    List<Country> findByCityStartingWith(String prefix);
+
+    List<Country> findByCountryAndCityStartingWith(String countryPrefix, String cityPrefix);
+
+    List<Country> findAllAfter(int afterCountryCode, int limit);
+
+    List<Country> findByCountryStartingWithAfter(String prefix, String afterCountry, int afterCountryCode, int limit);
+
+    List<Country> findByCityStartingWithAfter(String prefix, String afterCity, int afterCountryCode, int limit);
+
+    List<Country> findByCountryAndCityStartingWithAfter(String countryPrefix, String cityPrefix, String afterCountry,
+                                                        int afterCountryCode, int limit);
+
+    CountryVersion findVersion(String countryPrefix, String cityPrefix);
+
+    Optional<Country> findByCountryCode(int countryCode);
+
+    List<Country> findByCountryCodes(Collection<Integer> countryCodes);
+
+    void insert(Country country);
+
+    int update(Country country);
+
+    int delete(int countryCode);
+
+    /**
+     * Applies bulk items in one round of writes and returns the update count of each item that has an operation, in
+     * order. An insert of an existing country counts 0 instead of throwing.
+     */
+    int[] writeAll(List<CountryBulkItem> items);
+}
@@ -0,0 +1,18 @@
+package com.example.country;
+
+/**
+ * Published by {@link CountryWriteBehindBuffer} when a buffered update could not be written and was given up, so that
+ * copies already showing the update can be put back in line with the database.
+ */
+public class CountryUpdateDroppedEvent {
+
+    private final int countryCode;
+
+    public CountryUpdateDroppedEvent(int countryCode) {
+        this.countryCode = countryCode;
+    }
+
+    public int getCountryCode() {
+        return countryCode;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.country;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Objects;
+
+/**
+ * Version of a set of countries: how many rows it has and when the latest of them was written.
+ * <p>
+ * Every insert and update moves the latest write time forward and every delete changes the row count, so the pair
+ * changes whenever the rows do. It is used as the strong ETag of the collection without fetching the rows themselves.
+ * <p>
+ * Updates still pending in the write-behind buffer change the rows served but not the table, so a version read from the
+ * table is marked with the time of the last change to the buffer while anything is pending.
+ */
+public class CountryVersion {
+
+    private final long rowCount;
+
+    private final LocalDateTime lastUpdatedAt;
+
+    private LocalDateTime pendingChangedAt;
+
+    public CountryVersion(long rowCount, LocalDateTime lastUpdatedAt) {
+        this.rowCount = rowCount;
+        this.lastUpdatedAt = lastUpdatedAt;
+    }
+
+    /**
+     * Write time for an in-memory copy that has just changed: now, but always at least a microsecond after the previous
+     * one, so two changes in the same microsecond still give different versions.
+     */
+    static LocalDateTime nextModification(LocalDateTime previous) {
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.MICROS);
+        return previous == null || now.isAfter(previous) ? now : previous.plus(1, ChronoUnit.MICROS);
+    }
+
+    CountryVersion withPendingChanges(LocalDateTime pendingChangedAt) {
+        CountryVersion version = new CountryVersion(rowCount, lastUpdatedAt);
+        version.pendingChangedAt = pendingChangedAt;
+        return version;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public LocalDateTime getLastUpdatedAt() {
+        return lastUpdatedAt;
+    }
+
+    public String toETag() {
+        String pending = pendingChangedAt == null ? "" : "-p" + micros(pendingChangedAt);
+        if (lastUpdatedAt == null) {
+            return "\"" + rowCount + pending + "\"";
+        }
+        return "\"" + rowCount + "-" + micros(lastUpdatedAt) + pending + "\"";
+    }
+
+    private static long micros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1_000;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CountryVersion that = (CountryVersion) o;
+        return rowCount == that.rowCount && Objects.equals(lastUpdatedAt, that.lastUpdatedAt)
+                && Objects.equals(pendingChangedAt, that.pendingChangedAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(rowCount, lastUpdatedAt, pendingChangedAt);
+    }
+}
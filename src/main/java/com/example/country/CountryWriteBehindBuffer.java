@@ -0,0 +1,293 @@
+package com.example.country;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/**
+ * Write-behind buffer for updates.
+ * <p>
+ * Pending updates are kept per country_code, so a burst of updates to the same country collapses into the latest one.
+ * The buffer is flushed through {@link CountryBulkWriter} as JDBC batches whenever it holds a batch worth of countries
+ * or the flush interval elapses. Each buffered country holds one of a fixed number of permits until it is written, so
+ * when the database falls behind, callers adding new countries wait for a flush and fail after the maximum wait.
+ * <p>
+ * An entry is removed only after its value has been written and only if it has not been replaced in the meantime, so
+ * reads that consult the buffer never observe an older value than the one last accepted.
+ * <p>
+ * When the database cannot be reached, the whole flush is kept for the next one. Any other failure of a batch is
+ * narrowed down by writing its countries one at a time; a country that still fails, or whose row no longer exists, is
+ * dropped and a {@link CountryUpdateDroppedEvent} is published for it, so one bad entry cannot hold the buffer forever.
+ * The events are published once the flush has finished, since their listener takes the {@link CountryWriteLocks} lock
+ * of the country while a delete holding that lock may be waiting for the flush.
+ */
+@Component
+public class CountryWriteBehindBuffer {
+    private static final Logger log = LoggerFactory.getLogger(CountryWriteBehindBuffer.class);
+
+    private final boolean enabled;
+
+    private final int batchSize;
+
+    private final Duration flushInterval;
+
+    private final Duration maxWait;
+
+    private final CountryBulkWriter countryBulkWriter;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Map<Integer, Country> pending = new ConcurrentHashMap<>();
+
+    private final Semaphore permits;
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private final AtomicReference<LocalDateTime> lastChangedAt = new AtomicReference<>();
+
+    private ScheduledExecutorService flusher;
+
+    public CountryWriteBehindBuffer(@Value("${country.write-behind.enabled:false}") boolean enabled,
+                                    @Value("${country.write-behind.capacity:10000}") int capacity,
+                                    @Value("${country.write-behind.batch-size:500}") int batchSize,
+                                    @Value("${country.write-behind.flush-interval:100ms}") Duration flushInterval,
+                                    @Value("${country.write-behind.max-wait:1s}") Duration maxWait,
+                                    CountryBulkWriter countryBulkWriter, ApplicationEventPublisher eventPublisher) {
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.maxWait = maxWait;
+        this.countryBulkWriter = countryBulkWriter;
+        this.eventPublisher = eventPublisher;
+        this.permits = new Semaphore(capacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "country-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Optional<Country> find(int countryCode) {
+        return Optional.ofNullable(pending.get(countryCode));
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    /**
+     * Pending updates that match the filter.
+     */
+    public List<Country> findAll(Predicate<Country> filter) {
+        return pending.values().stream().filter(filter).toList();
+    }
+
+    /**
+     * Time of the last change to the pending updates, or null when none are pending and the table alone says what is
+     * served.
+     */
+    public LocalDateTime getPendingChangedAt() {
+        return pending.isEmpty() ? null : lastChangedAt.get();
+    }
+
+    public void put(Country country) {
+        Country value = new Country(country.getCountryCode(), country.getCountry(), country.getCity());
+        if (pending.computeIfPresent(value.getCountryCode(), (countryCode, previous) -> value) != null) {
+            changed();
+            return;
+        }
+        try {
+            if (!permits.tryAcquire(maxWait.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new CountryWriteBehindFullException("Too many pending updates, try again later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CountryWriteBehindFullException("Interrupted while waiting for pending updates to be written");
+        }
+        if (pending.put(value.getCountryCode(), value) != null) {
+            // another caller added the same country while this one waited; its permit already covers the entry
+            permits.release();
+        }
+        changed();
+        if (pending.size() >= batchSize && flusher != null && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flush);
+        }
+    }
+
+    /**
+     * Drops the pending update of a country that is being deleted. Waits for a running flush, so a write of the
+     * dropped value cannot land after the delete.
+     */
+    public synchronized void discard(int countryCode) {
+        if (pending.remove(countryCode) != null) {
+            permits.release();
+            changed();
+        }
+    }
+
+    /**
+     * Writes a batch that goes around the buffer. No flush runs meanwhile, and the pending update of every item that was
+     * written is dropped, since flushing it afterwards would overwrite what the batch wrote. Items that failed keep
+     * their pending update.
+     */
+    public synchronized List<CountryBulkResult> writeThrough(List<CountryBulkItem> items) {
+        List<CountryBulkResult> results = countryBulkWriter.write(items);
+        for (int i = 0; i < items.size(); i++) {
+            if (results.get(i).isSucceeded()) {
+                discard(items.get(i).getCountryCode());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Applies pending updates to rows read from the database: rows with a pending update are replaced by it, rows
+     * whose pending update no longer matches the filter are dropped, and pending updates that now match it are added.
+     */
+    public List<Country> overlay(List<Country> countries, Predicate<Country> filter) {
+        if (pending.isEmpty()) {
+            return countries;
+        }
+        List<Country> result = new ArrayList<>(countries.size());
+        Set<Integer> seen = new HashSet<>();
+        for (Country country : countries) {
+            seen.add(country.getCountryCode());
+            Country current = pending.getOrDefault(country.getCountryCode(), country);
+            if (filter.test(current)) {
+                result.add(current);
+            }
+        }
+        for (Country country : pending.values()) {
+            if (!seen.contains(country.getCountryCode()) && filter.test(country)) {
+                result.add(country);
+            }
+        }
+        return result;
+    }
+
+    public void flush() {
+        List<Integer> dropped = new ArrayList<>();
+        synchronized (this) {
+            flush(dropped);
+        }
+        dropped.forEach(countryCode -> eventPublisher.publishEvent(new CountryUpdateDroppedEvent(countryCode)));
+    }
+
+    private void flush(List<Integer> droppedCountryCodes) {
+        flushRequested.set(false);
+        List<Country> snapshot = new ArrayList<>(pending.values());
+        for (int from = 0; from < snapshot.size(); from += batchSize) {
+            List<Country> batch = snapshot.subList(from, Math.min(from + batchSize, snapshot.size()));
+            List<CountryBulkResult> results;
+            try {
+                results = write(batch);
+            } catch (RuntimeException e) {
+                if (isUnreachable(e)) {
+                    log.warn("Could not write {} pending updates, keeping them for the next flush", snapshot.size() - from, e);
+                    return;
+                }
+                log.warn("Could not write a batch of {} pending updates, writing them one at a time", batch.size(), e);
+                try {
+                    results = writeOneAtATime(batch);
+                } catch (RuntimeException unreachable) {
+                    log.warn("Could not write {} pending updates, keeping them for the next flush", snapshot.size() - from, unreachable);
+                    return;
+                }
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                Country written = batch.get(i);
+                boolean dropped = !results.get(i).isSucceeded();
+                if (dropped) {
+                    log.warn("Dropped the pending update of country {}: {}", written.getCountryCode(), results.get(i).getMessage());
+                }
+                if (pending.remove(written.getCountryCode(), written)) {
+                    permits.release();
+                    changed();
+                    if (dropped) {
+                        droppedCountryCodes.add(written.getCountryCode());
+                    }
+                }
+            }
+        }
+    }
+
+    private void changed() {
+        lastChangedAt.updateAndGet(CountryVersion::nextModification);
+    }
+
+    private List<CountryBulkResult> write(List<Country> countries) {
+        return countryBulkWriter.write(countries.stream()
+                .map(country -> new CountryBulkItem(CountryBulkItem.Operation.UPDATE, country.getCountryCode(), country.getCountry(), country.getCity()))
+                .toList());
+    }
+
+    private List<CountryBulkResult> writeOneAtATime(List<Country> batch) {
+        List<CountryBulkResult> results = new ArrayList<>(batch.size());
+        for (Country country : batch) {
+            try {
+                results.addAll(write(List.of(country)));
+            } catch (RuntimeException e) {
+                if (isUnreachable(e)) {
+                    throw e;
+                }
+                results.add(new CountryBulkResult(CountryBulkItem.Operation.UPDATE, country.getCountryCode(),
+                        HttpStatus.INTERNAL_SERVER_ERROR.value(), String.valueOf(e.getMessage())));
+            }
+        }
+        return results;
+    }
+
+    // failures that say nothing about the values being written, so retrying them later can succeed
+    private static boolean isUnreachable(RuntimeException e) {
+        return e instanceof CannotCreateTransactionException || e instanceof DataAccessResourceFailureException
+                || e instanceof TransientDataAccessException || e instanceof RecoverableDataAccessException;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.country;
+
+public class CountryWriteBehindFullException extends RuntimeException {
+
+    public CountryWriteBehindFullException(String message) {
+        super(message);
+    }
+}
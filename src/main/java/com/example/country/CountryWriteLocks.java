@@ -0,0 +1,71 @@
+package com.example.country;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Orders the writes to each country across the database and the in-memory copies.
+ * <p>
+ * A write holds the lock of its country from the database statement until the replica, the prefix index and the change
+ * stream have applied it, so two concurrent writes of one country reach them in the order the database committed them.
+ * Countries are mapped onto a fixed number of stripes. The locks are semaphores rather than reentrant locks because the
+ * /v2 API releases them on another thread than the one that took them; they are therefore not reentrant either.
+ */
+@Component
+public class CountryWriteLocks {
+    private static final int STRIPES = 256;
+
+    private final Semaphore[] stripes = new Semaphore[STRIPES];
+
+    public CountryWriteLocks() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Semaphore(1);
+        }
+    }
+
+    public void lock(int countryCode) {
+        stripes[stripe(countryCode)].acquireUninterruptibly();
+    }
+
+    public void unlock(int countryCode) {
+        stripes[stripe(countryCode)].release();
+    }
+
+    public <T> T withLock(int countryCode, Supplier<T> write) {
+        lock(countryCode);
+        try {
+            return write.get();
+        } finally {
+            unlock(countryCode);
+        }
+    }
+
+    /**
+     * Runs a write of many countries holding all of their locks, taken in stripe order so that two such writes cannot
+     * deadlock.
+     */
+    public <T> T withLocks(Collection<Integer> countryCodes, Supplier<T> write) {
+        TreeSet<Integer> locked = new TreeSet<>();
+        for (int countryCode : countryCodes) {
+            locked.add(stripe(countryCode));
+        }
+        for (int stripe : locked) {
+            stripes[stripe].acquireUninterruptibly();
+        }
+        try {
+            return write.get();
+        } finally {
+            for (int stripe : locked) {
+                stripes[stripe].release();
+            }
+        }
+    }
+
+    private static int stripe(int countryCode) {
+        return Math.floorMod(countryCode, STRIPES);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.country;
+
+public class InvalidCountryBulkException extends RuntimeException {
+
+    public InvalidCountryBulkException(String message) {
+        super(message);
+    }
+}
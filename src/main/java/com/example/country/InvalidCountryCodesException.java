@@ -0,0 +1,8 @@
+package com.example.country;
+
+public class InvalidCountryCodesException extends RuntimeException {
+
+    public InvalidCountryCodesException(String message) {
+        super(message);
+    }
+}
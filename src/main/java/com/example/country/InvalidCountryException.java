@@ -0,0 +1,8 @@
+package com.example.country;
+
+public class InvalidCountryException extends RuntimeException {
+
+    public InvalidCountryException(String message) {
+        super(message);
+    }
+}
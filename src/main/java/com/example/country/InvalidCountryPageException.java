@@ -0,0 +1,8 @@
+package com.example.country;
+
+public class InvalidCountryPageException extends RuntimeException {
+
+    public InvalidCountryPageException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.country;
+
+public class InvalidCountrySnapshotException extends RuntimeException {
+
+    public InvalidCountrySnapshotException(String message) {
+        super(message);
+    }
+}
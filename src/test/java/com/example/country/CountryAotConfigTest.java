@@ -0,0 +1,73 @@
+package com.example.country;
+
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.mapper.MapperFactoryBean;
+import org.mybatis.spring.mapper.MapperScannerConfigurer;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RegisteredBean;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.core.ResolvableType;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CountryAotConfigTest {
+
+    @Test
+    void マッパーのFactoryBeanにマッパーの型を設定すること() {
+        RootBeanDefinition beanDefinition = new RootBeanDefinition(MapperFactoryBean.class);
+        beanDefinition.getConstructorArgumentValues().addGenericArgumentValue(CountryMapper.class.getName());
+        beanDefinition.getPropertyValues().addPropertyValue("mapperInterface", CountryMapper.class);
+
+        CountryAotConfig.resolveMapperFactoryBeanType(beanDefinition);
+
+        assertThat(beanDefinition.getResolvableType())
+                .isEqualTo(ResolvableType.forClassWithGenerics(MapperFactoryBean.class, CountryMapper.class));
+        assertThat(beanDefinition.getConstructorArgumentValues().getIndexedArgumentValue(0, Class.class).getValue())
+                .isEqualTo(CountryMapper.class);
+    }
+
+    @Test
+    void マッパーのスキャナーはAOTの登録から除外すること() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("scanner", new RootBeanDefinition(MapperScannerConfigurer.class));
+        beanFactory.registerBeanDefinition("service", new RootBeanDefinition(CountryService.class));
+        CountryAotConfig.MapperScannerExcludeFilter filter = new CountryAotConfig.MapperScannerExcludeFilter();
+
+        assertThat(filter.isExcludedFromAotProcessing(RegisteredBean.of(beanFactory, "scanner"))).isTrue();
+        assertThat(filter.isExcludedFromAotProcessing(RegisteredBean.of(beanFactory, "service"))).isFalse();
+    }
+
+    @Test
+    void AOTビルド時と起動時で条件の設定が異なる場合は起動に失敗すること() {
+        Properties built = CountryAotConfig.buildTimeProperties(new MockEnvironment()
+                .withProperty("country.datasource.routing.enabled", "false")
+                .withProperty("country.store.type", "mysql"));
+
+        assertThatCode(() -> CountryAotConfig.checkBuildTimeProperties(built, new MockEnvironment()
+                .withProperty("country.datasource.routing.enabled", "false")
+                .withProperty("country.store.type", "mysql")))
+                .doesNotThrowAnyException();
+        assertThatThrownBy(() -> CountryAotConfig.checkBuildTimeProperties(built, new MockEnvironment()
+                .withProperty("country.datasource.routing.enabled", "false")
+                .withProperty("country.store.type", "mapped-file")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageStartingWith("country.store.type is 'mapped-file' but the AOT build was made with 'mysql'");
+    }
+
+    @Test
+    void ネイティブイメージ向けにマッパーのプロキシとエンティティのリフレクションを登録すること() {
+        RuntimeHints hints = new RuntimeHints();
+        new CountryAotConfig.MyBatisRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        assertThat(RuntimeHintsPredicates.proxies().forInterfaces(CountryMapper.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(Country.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.resource().forResource("org/apache/ibatis/builder/xml/mybatis-3-mapper.dtd")).accepts(hints);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.country;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.file.Path;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("embedded")
+class CountryApplicationEmbeddedTests {
+
+	@TempDir
+	static Path directory;
+
+	@DynamicPropertySource
+	static void storeDirectory(DynamicPropertyRegistry registry) {
+		registry.add("country.store.mapped-file.directory", directory::toString);
+	}
+
+	@Autowired
+	MockMvc mockMvc;
+
+	@Test
+	void MySQLを使わずに埋め込みストアで登録と取得ができること() throws Exception {
+		String content = """
+				{
+				    "countryCode":385,
+				    "country":"Croatia",
+				    "city":"Zagreb"
+				}
+				""";
+		mockMvc.perform(post("/countries").contentType(MediaType.APPLICATION_JSON).content(content))
+				.andExpect(status().isCreated());
+		mockMvc.perform(post("/countries").contentType(MediaType.APPLICATION_JSON).content(content))
+				.andExpect(status().isConflict());
+
+		mockMvc.perform(get("/countries/385"))
+				.andExpect(status().isOk())
+				.andExpect(content().json("""
+						{"countryCode":385,"country":"Croatia","city":"Zagreb"}
+						"""));
+		mockMvc.perform(get("/countries/386"))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	void まとめて実行する場合に空や長すぎる値は書き込まないこと() throws Exception {
+		mockMvc.perform(post("/countries/_bulk").contentType(MediaType.APPLICATION_JSON).content("""
+						[
+						    {"operation":"insert","countryCode":1,"country":"Nowhere"},
+						    {"operation":"insert","countryCode":2,"country":"%s","city":"city"},
+						    {"operation":"insert","countryCode":3,"country":"Somewhere","city":"Anytown"}
+						]
+						""".formatted("a".repeat(101))))
+				.andExpect(status().isOk())
+				.andExpect(content().json("""
+						[
+						    {"countryCode":1,"status":400,"message":"city is required"},
+						    {"countryCode":2,"status":400,"message":"country must be at most 100 characters"},
+						    {"countryCode":3,"status":201}
+						]
+						"""));
+
+		mockMvc.perform(get("/countries/1"))
+				.andExpect(status().isNotFound());
+		mockMvc.perform(get("/countries/3"))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	void 埋め込みストアでは全件を書き出せMySQLが必要なv2のAPIは無効であること() throws Exception {
+		mockMvc.perform(post("/countries").contentType(MediaType.APPLICATION_JSON).content("""
+						{"countryCode":7,"country":"Kazakhstan","city":"Astana"}
+						"""))
+				.andExpect(status().isCreated());
+
+		MvcResult result = mockMvc.perform(get("/countries/stream"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(content().string(containsString("\"countryCode\":7")));
+
+		mockMvc.perform(get("/v2/countries/7"))
+				.andExpect(status().isNotFound());
+	}
+
+}
@@ -0,0 +1,30 @@
+package com.example.country;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("virtual-threads")
+@EnabledForJreRange(min = JRE.JAVA_21)
+class CountryApplicationVirtualThreadsTests {
+
+	@Autowired
+	AsyncTaskExecutor applicationTaskExecutor;
+
+	@Test
+	void 非同期処理が仮想スレッドで実行されること() throws Exception {
+		Future<String> threadClass = applicationTaskExecutor.submit(() -> Thread.currentThread().getClass().getName());
+
+		assertThat(threadClass.get()).isEqualTo("java.lang.VirtualThread");
+	}
+
+}
@@ -0,0 +1,65 @@
+package com.example.country;
+
+import com.github.database.rider.core.api.dataset.DataSet;
+import com.github.database.rider.core.api.dataset.ExpectedDataSet;
+import com.github.database.rider.spring.api.DBRider;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.boot.test.autoconfigure.MybatisTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DBRider
+@MybatisTest
+@Import({CountryBulkWriter.class, CountryMySqlStore.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class CountryBulkWriterTest {
+
+    @Autowired
+    CountryBulkWriter countryBulkWriter;
+
+    @Test
+    @DataSet(value = "datasets/countries.yml")
+    @ExpectedDataSet(value = "datasets/bulk-countries.yml")
+    @Transactional
+    void 登録更新削除をまとめて実行し1件ごとの結果を返すこと() {
+        List<CountryBulkResult> results = countryBulkWriter.write(List.of(
+                new CountryBulkItem(CountryBulkItem.Operation.INSERT, 385, "Croatia", "Zagreb"),
+                new CountryBulkItem(CountryBulkItem.Operation.INSERT, 43, "Austria", "Vienna"),
+                new CountryBulkItem(CountryBulkItem.Operation.UPDATE, 36, "Republic of Hungary", "Szentendre"),
+                new CountryBulkItem(CountryBulkItem.Operation.UPDATE, 47, "Norway", "Oslo"),
+                new CountryBulkItem(CountryBulkItem.Operation.DELETE, 420, null, null),
+                new CountryBulkItem(CountryBulkItem.Operation.DELETE, 352, null, null)));
+
+        assertThat(results).containsExactly(
+                new CountryBulkResult(CountryBulkItem.Operation.INSERT, 385, 201, "country created"),
+                new CountryBulkResult(CountryBulkItem.Operation.INSERT, 43, 409, "Country with code 43 duplicated"),
+                new CountryBulkResult(CountryBulkItem.Operation.UPDATE, 36, 200, "country updated"),
+                new CountryBulkResult(CountryBulkItem.Operation.UPDATE, 47, 404, "Country with code 47 not found"),
+                new CountryBulkResult(CountryBulkItem.Operation.DELETE, 420, 200, "country deleted"),
+                new CountryBulkResult(CountryBulkItem.Operation.DELETE, 352, 404, "Country with code 352 not found"));
+    }
+
+    @Test
+    @DataSet(value = "datasets/countries.yml")
+    @ExpectedDataSet(value = "datasets/countries.yml")
+    @Transactional
+    void 空や長すぎる値は書き込まずに400を返すこと() {
+        List<CountryBulkResult> results = countryBulkWriter.write(List.of(
+                new CountryBulkItem(CountryBulkItem.Operation.INSERT, 385, "Croatia", null),
+                new CountryBulkItem(CountryBulkItem.Operation.INSERT, 386, "a".repeat(101), "city"),
+                new CountryBulkItem(CountryBulkItem.Operation.UPDATE, 36, null, "Szentendre"),
+                new CountryBulkItem(CountryBulkItem.Operation.INSERT, 43, "Austria", "Vienna")));
+
+        assertThat(results).containsExactly(
+                new CountryBulkResult(CountryBulkItem.Operation.INSERT, 385, 400, "city is required"),
+                new CountryBulkResult(CountryBulkItem.Operation.INSERT, 386, 400, "country must be at most 100 characters"),
+                new CountryBulkResult(CountryBulkItem.Operation.UPDATE, 36, 400, "country is required"),
+                new CountryBulkResult(CountryBulkItem.Operation.INSERT, 43, 409, "Country with code 43 duplicated"));
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.country;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class CountryChangeStreamTest {
+
+    private final CountryChangeStream countryChangeStream =
+            new CountryChangeStream(3, 2, Duration.ofMinutes(1), Duration.ofHours(1), 2);
+
+    @AfterEach
+    void tearDown() {
+        countryChangeStream.stop();
+    }
+
+    @Test
+    void 購読中の変更を発行順に配信すること() {
+        RecordingEmitter emitter = new RecordingEmitter();
+        countryChangeStream.subscribe(null, emitter);
+
+        countryChangeStream.publish(CountryChangeEvent.INSERT, 32, "Belgium", "Brussels");
+        countryChangeStream.publish(CountryChangeEvent.DELETE, 32, null, null);
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> emitter.events.size() == 2);
+        assertThat(emitter.events).extracting(CountryChangeEvent::getType).containsExactly("insert", "delete");
+        assertThat(emitter.events.get(1).getId()).isGreaterThan(emitter.events.get(0).getId());
+        assertThat(emitter.events.get(1).getCountry()).isNull();
+    }
+
+    @Test
+    void 最後に受け取ったイベントID以降の変更から再開できること() {
+        countryChangeStream.publish(CountryChangeEvent.INSERT, 1, "A", "A");
+        countryChangeStream.publish(CountryChangeEvent.INSERT, 2, "B", "B");
+        countryChangeStream.publish(CountryChangeEvent.INSERT, 3, "C", "C");
+        RecordingEmitter first = new RecordingEmitter();
+        countryChangeStream.subscribe(null, first);
+        countryChangeStream.publish(CountryChangeEvent.UPDATE, 1, "A", "Z");
+        await().atMost(Duration.ofSeconds(5)).until(() -> first.events.size() == 1);
+        long seen = first.events.get(0).getId();
+
+        RecordingEmitter resumed = new RecordingEmitter();
+        countryChangeStream.subscribe(seen - 2, resumed);
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> resumed.events.size() == 2);
+        assertThat(resumed.events).extracting(CountryChangeEvent::getCountryCode).containsExactly(3, 1);
+    }
+
+    @Test
+    void 履歴より古いイベントIDで再開した場合はリセットを通知すること() {
+        for (int countryCode = 1; countryCode <= 5; countryCode++) {
+            countryChangeStream.publish(CountryChangeEvent.INSERT, countryCode, "Country", "City");
+        }
+        RecordingEmitter emitter = new RecordingEmitter();
+        countryChangeStream.subscribe(1L, emitter);
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> emitter.events.size() == 1);
+        assertThat(emitter.events.get(0).getType()).isEqualTo(CountryChangeEvent.RESET);
+    }
+
+    @Test
+    void 取りこぼした件数がキューに収まらない場合はリセットを通知すること() {
+        RecordingEmitter first = new RecordingEmitter();
+        countryChangeStream.subscribe(null, first);
+        countryChangeStream.publish(CountryChangeEvent.INSERT, 1, "A", "A");
+        await().atMost(Duration.ofSeconds(5)).until(() -> first.events.size() == 1);
+        long seen = first.events.get(0).getId();
+        countryChangeStream.publish(CountryChangeEvent.INSERT, 2, "B", "B");
+        countryChangeStream.publish(CountryChangeEvent.INSERT, 3, "C", "C");
+
+        RecordingEmitter resumed = new RecordingEmitter();
+        countryChangeStream.subscribe(seen - 1, resumed);
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> resumed.events.size() == 1);
+        assertThat(resumed.events.get(0).getType()).isEqualTo(CountryChangeEvent.RESET);
+        assertThat(resumed.completed).isFalse();
+    }
+
+    @Test
+    void 受信が追いつかない購読者は切断し他の購読者には配信を続けること() {
+        RecordingEmitter slow = new RecordingEmitter();
+        slow.blocked = new CountDownLatch(1);
+        RecordingEmitter fast = new RecordingEmitter();
+        countryChangeStream.subscribe(null, slow);
+        countryChangeStream.subscribe(null, fast);
+
+        for (int countryCode = 1; countryCode <= 10; countryCode++) {
+            countryChangeStream.publish(CountryChangeEvent.INSERT, countryCode, "Country", "City");
+            int delivered = countryCode;
+            await().atMost(Duration.ofSeconds(5)).until(() -> fast.events.size() == delivered);
+        }
+        slow.blocked.countDown();
+
+        assertThat(slow.completed).isTrue();
+        assertThat(fast.completed).isFalse();
+        assertThat(countryChangeStream.getSubscriberCount()).isEqualTo(1);
+    }
+
+    static class RecordingEmitter extends SseEmitter {
+        final List<CountryChangeEvent> events = new CopyOnWriteArrayList<>();
+
+        volatile CountDownLatch blocked;
+
+        volatile boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (blocked != null) {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            Set<DataWithMediaType> data = builder.build();
+            data.stream().map(DataWithMediaType::getData)
+                    .filter(CountryChangeEvent.class::isInstance)
+                    .map(CountryChangeEvent.class::cast)
+                    .forEach(events::add);
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+        }
+    }
+}
@@ -1,23 +1,46 @@
 package com.example.country;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.ByteArrayInputStream;
+import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
-
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(CountryController.class)
@@ -26,14 +49,23 @@ class CountryControllerTest {
     @Autowired
     MockMvc mockMvc;
 
+    private static final CountryVersion VERSION = new CountryVersion(2, LocalDateTime.of(2024, 5, 1, 12, 0, 0, 123_456_000));
+
     @MockBean
     CountryService countryService;
 
+    @MockBean
+    CountryChangeStream countryChangeStream;
+
+    @MockBean
+    CountrySnapshotImporter countrySnapshotImporter;
+
     @Test
     void 全ての国を取得すること() throws Exception {
         List<Country> countryList = List.of(
                 new Country(31, "Netherlands", "Amsterdam"),
                 new Country(33, "France", "Paris"));
+        when(countryService.getCountriesVersion("", "")).thenReturn(VERSION);
         when(countryService.getCountries("", "")).thenReturn(countryList);
 
         mockMvc.perform(get("/countries"))
@@ -60,6 +92,7 @@ class CountryControllerTest {
 
     @Test
     void 指定した国名と都市名の頭文字を含む国を取得すること() throws Exception {
+        when(countryService.getCountriesVersion("n", "a")).thenReturn(VERSION);
         when(countryService.getCountries("n", "a")).thenReturn(List.of(new Country(31, "Netherlands", "Amsterdam")));
 
         mockMvc.perform(get("/countries")
@@ -83,6 +116,7 @@ class CountryControllerTest {
 
     @Test
     void 指定した存在しない国名や都市名の頭文字で空の配列を返却すること() throws Exception {
+        when(countryService.getCountriesVersion("k", "y")).thenReturn(VERSION);
         when(countryService.getCountries("k", "y")).thenReturn(Collections.emptyList());
 
         mockMvc.perform(get("/countries")
@@ -98,6 +132,194 @@ class CountryControllerTest {
         verify(countryService, times(1)).getCountries("k","y");
     }
 
+    @Test
+    void 件数を指定した場合は次のページへのリンクを返すこと() throws Exception {
+        when(countryService.getCountryPage("", "", null, 2)).thenReturn(new CountryPage(
+                List.of(new Country(31, "Netherlands", "Amsterdam"), new Country(33, "France", "Paris")),
+                new CountryCursor(33, null)));
+
+        mockMvc.perform(get("/countries").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Link", "<http://localhost/countries?limit=2&after=" + new CountryCursor(33, null).encode() + ">; rel=\"next\""))
+                .andExpect(content().json(
+                        """
+                        [
+                            {
+                                "countryCode":31,
+                                "country":"Netherlands",
+                                "city":"Amsterdam"
+                            },
+                            {
+                                "countryCode":33,
+                                "country":"France",
+                                "city":"Paris"
+                            }
+                        ]
+                        """
+                ));
+
+        verify(countryService, times(1)).getCountryPage("", "", null, 2);
+    }
+
+    @Test
+    void カーソルを指定した場合はその続きのページを返すこと() throws Exception {
+        CountryCursor cursor = new CountryCursor(33, "France");
+        when(countryService.getCountryPage("f", "", cursor, 2)).thenReturn(new CountryPage(List.of(new Country(358, "Finland", "Helsinki")), null));
+
+        mockMvc.perform(get("/countries")
+                        .param("countryStartsWith", "f")
+                        .param("limit", "2")
+                        .param("after", cursor.encode()))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Link"))
+                .andExpect(content().json(
+                        """
+                        [
+                            {
+                                "countryCode":358,
+                                "country":"Finland",
+                                "city":"Helsinki"
+                            }
+                        ]
+                        """
+                ));
+
+        verify(countryService, times(1)).getCountryPage("f", "", cursor, 2);
+    }
+
+    @Test
+    void 件数が範囲外の場合は400を返すこと() throws Exception {
+        mockMvc.perform(get("/countries").param("limit", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json(
+                        """
+                        {
+                            "message":"limit must be between 1 and 1000"
+                        }
+                        """
+                ));
+    }
+
+    @Test
+    void 全ての国をNDJSONで逐次返却すること() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<Country> consumer = invocation.getArgument(0);
+            consumer.accept(new Country(31, "Netherlands", "Amsterdam"));
+            consumer.accept(new Country(33, "France", "Paris"));
+            return null;
+        }).when(countryService).exportAll(any());
+
+        MvcResult result = mockMvc.perform(get("/countries/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/x-ndjson"))
+                .andExpect(content().string(
+                        """
+                        {"countryCode":31,"country":"Netherlands","city":"Amsterdam"}
+                        {"countryCode":33,"country":"France","city":"Paris"}
+                        """
+                ));
+
+        verify(countryService, times(1)).exportAll(any());
+    }
+
+    @Test
+    void 全ての国をバイナリのスナップショットで逐次返却すること() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<Country> consumer = invocation.getArgument(0);
+            consumer.accept(new Country(31, "Netherlands", "Amsterdam"));
+            consumer.accept(new Country(33, "France", "Paris"));
+            return null;
+        }).when(countryService).exportAll(any());
+
+        MvcResult result = mockMvc.perform(get("/countries/snapshot"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult snapshot = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/vnd.country-snapshot"))
+                .andReturn();
+
+        try (CountrySnapshotReader reader = new CountrySnapshotReader(new ByteArrayInputStream(snapshot.getResponse().getContentAsByteArray()))) {
+            assertThat(reader.nextBlock()).containsExactly(new Country(31, "Netherlands", "Amsterdam"), new Country(33, "France", "Paris"));
+            assertThat(reader.nextBlock()).isNull();
+        }
+    }
+
+    @Test
+    void スナップショットを取り込み件数を返すこと() throws Exception {
+        when(countrySnapshotImporter.load(any())).thenReturn(new CountrySnapshotResult(3, 2, 1));
+
+        mockMvc.perform(post("/countries/snapshot").contentType("application/vnd.country-snapshot").content(new byte[]{1, 2, 3}))
+                .andExpect(status().isOk())
+                .andExpect(content().json("""
+                        {"rows":3,"inserted":2,"skipped":1}
+                        """));
+    }
+
+    @Test
+    void 壊れたスナップショットは400を返すこと() throws Exception {
+        when(countrySnapshotImporter.load(any())).thenThrow(new InvalidCountrySnapshotException("not a country snapshot"));
+
+        mockMvc.perform(post("/countries/snapshot").contentType("application/vnd.country-snapshot").content(new byte[]{1, 2, 3}))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("not a country snapshot"));
+    }
+
+    @Test
+    void 変更の購読を最後に受け取ったイベントIDから再開すること() throws Exception {
+        when(countryChangeStream.subscribe(42L)).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/countries/changes").header("Last-Event-ID", "42").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+
+        verify(countryChangeStream, times(1)).subscribe(42L);
+    }
+
+    @Test
+    void 複数の国番号を指定して取得し存在しない国番号を返すこと() throws Exception {
+        when(countryService.findByCountryCodes(List.of(44, 33, 999)))
+                .thenReturn(new CountryMultiGetResult(List.of(new Country(44, "United Kingdom", "London"), new Country(33, "France", "Paris")), List.of(999)));
+
+        mockMvc.perform(get("/countries").param("codes", "44,33,999"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(
+                        """
+                        {
+                            "countries":[
+                                {"countryCode":44,"country":"United Kingdom","city":"London"},
+                                {"countryCode":33,"country":"France","city":"Paris"}
+                            ],
+                            "missing":[999]
+                        }
+                        """
+                ));
+
+        mockMvc.perform(post("/countries/_mget")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[44, 33, 999]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.missing[0]").value(999));
+
+        verify(countryService, times(2)).findByCountryCodes(List.of(44, 33, 999));
+    }
+
+    @Test
+    void 国番号の件数が上限を超える場合は400を返すこと() throws Exception {
+        String codes = String.join(",", Collections.nCopies(1001, "44"));
+
+        mockMvc.perform(post("/countries/_mget")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + codes + "]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("codes must contain between 1 and 1000 country codes"));
+
+        verify(countryService, never()).findByCountryCodes(any());
+    }
+
     @Test
     void 指定した国番号を取得すること() throws Exception {
         when(countryService.findByCountryCode(31)).thenReturn(new Country(31, "Netherlands", "Amsterdam"));
@@ -117,6 +339,88 @@ class CountryControllerTest {
         verify(countryService, times(1)).findByCountryCode(31);
     }
 
+    @Test
+    void 一覧にETagを付与し一致するIf_None_Matchには本文を取得せず304を返すこと() throws Exception {
+        when(countryService.getCountriesVersion("", "")).thenReturn(VERSION);
+        when(countryService.getCountries("", "")).thenReturn(List.of(new Country(31, "Netherlands", "Amsterdam")));
+
+        String eTag = mockMvc.perform(get("/countries"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2-1714564800123456\""))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/countries").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().string(""));
+
+        verify(countryService, times(2)).getCountriesVersion("", "");
+        verify(countryService, times(1)).getCountries("", "");
+    }
+
+    @Test
+    void 国が更新されると同じIf_None_Matchでも新しい本文を返すこと() throws Exception {
+        when(countryService.getCountriesVersion("", "")).thenReturn(new CountryVersion(2, LocalDateTime.of(2024, 5, 1, 12, 0, 1)));
+        when(countryService.getCountries("", "")).thenReturn(List.of(new Country(31, "Holland", "Rotterdam")));
+
+        mockMvc.perform(get("/countries").header(HttpHeaders.IF_NONE_MATCH, VERSION.toETag()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2-1714564801000000\""));
+    }
+
+    @Test
+    void 国番号で取得した国にETagを付与し一致するIf_None_Matchには304を返すこと() throws Exception {
+        when(countryService.findByCountryCode(31)).thenReturn(new Country(31, "Netherlands", "Amsterdam"));
+
+        String eTag = mockMvc.perform(get("/countries/{country_code}", 31))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/countries/{country_code}", 31).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        when(countryService.findByCountryCode(31)).thenReturn(new Country(31, "Netherlands", "Rotterdam"));
+        mockMvc.perform(get("/countries/{country_code}", 31).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(eTag)));
+    }
+
+    @Test
+    void Acceptに応じて一覧をCBORとSmileで返しETagを区別すること() throws Exception {
+        List<Country> countryList = List.of(
+                new Country(31, "Netherlands", "Amsterdam"),
+                new Country(33, "France", "Paris"));
+        when(countryService.getCountriesVersion("", "")).thenReturn(VERSION);
+        when(countryService.getCountries("", "")).thenReturn(countryList);
+
+        MvcResult cbor = mockMvc.perform(get("/countries").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2-1714564800123456-cbor\""))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn();
+        assertThat(new CBORMapper().readTree(cbor.getResponse().getContentAsByteArray()))
+                .isEqualTo(new ObjectMapper().readTree("""
+                        [
+                            {"countryCode":31,"country":"Netherlands","city":"Amsterdam"},
+                            {"countryCode":33,"country":"France","city":"Paris"}
+                        ]
+                        """));
+
+        MvcResult smile = mockMvc.perform(get("/countries").accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2-1714564800123456-smile\""))
+                .andReturn();
+        assertThat(new SmileMapper().readTree(smile.getResponse().getContentAsByteArray()))
+                .isEqualTo(new CBORMapper().readTree(cbor.getResponse().getContentAsByteArray()));
+
+        mockMvc.perform(get("/countries").accept(MediaType.APPLICATION_CBOR).header(HttpHeaders.IF_NONE_MATCH, VERSION.toETag()))
+                .andExpect(status().isOk());
+    }
+
     @Test
     void 指定した国番号が存在しない場合は例外メッセージをスローすること() throws Exception {
         when(countryService.findByCountryCode(999)).thenThrow(new CountryNotFoundException("Country with code 999 not found"));
@@ -134,6 +438,59 @@ class CountryControllerTest {
         verify(countryService, times(1)).findByCountryCode(999);
     }
 
+    @Test
+    void 国番号から作った例外は事前に組み立てたJSONで404を返すこと() throws Exception {
+        when(countryService.findByCountryCode(999)).thenThrow(new CountryNotFoundException(999));
+
+        mockMvc.perform(get("/countries/{country_code}", 999))
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().json(
+                        """
+                        {
+                            "status":"404",
+                            "error":"Not Found",
+                            "message":"Country with code 999 not found",
+                            "path":"/countries/999"
+                        }
+                        """
+                ))
+                .andExpect(jsonPath("$.timestamp").isString());
+    }
+
+    @Test
+    void 国番号から作った重複例外は事前に組み立てたJSONで409を返しCBORを求められた場合は変換すること() throws Exception {
+        when(countryService.insert(31, "Netherlands", "Amsterdam")).thenThrow(new CountryDuplicatedException(31));
+        String content = """
+                {
+                    "countryCode":31,
+                    "country":"Netherlands",
+                    "city":"Amsterdam"
+                }
+                """;
+
+        mockMvc.perform(post("/countries").contentType(MediaType.APPLICATION_JSON).content(content))
+                .andExpect(status().isConflict())
+                .andExpect(content().json(
+                        """
+                        {
+                            "status":"409",
+                            "error":"Conflict",
+                            "message":"Country with code 31 duplicated",
+                            "path":"/countries"
+                        }
+                        """
+                ));
+
+        MvcResult cbor = mockMvc.perform(post("/countries").contentType(MediaType.APPLICATION_JSON).content(content)
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isConflict())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+        assertThat(new CBORMapper().readTree(cbor.getResponse().getContentAsByteArray()).get("message").asText())
+                .isEqualTo("Country with code 31 duplicated");
+    }
+
     @Test
     void 新たな国番号と国名と都市名を登録すること() throws Exception {
         when(countryService.insert(31, "Netherlands", "Amsterdam")).thenReturn(new Country(31, "Netherlands", "Amsterdam"));
@@ -237,10 +594,31 @@ class CountryControllerTest {
         verify(countryService, times(1)).update(47, "Norway", "Oslo");
     }
 
+    @Test
+    void 更新する値が不正な場合は400を返すこと() throws Exception {
+        when(countryService.update(31, "Netherlands", null)).thenThrow(new InvalidCountryException("city is required"));
+
+        mockMvc.perform(patch("/countries/{country_code}", 31).contentType(MediaType.APPLICATION_JSON).content(
+                """
+                {
+                    "countryCode":31,
+                    "country":"Netherlands"
+                }
+                """
+                ))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json(
+                        """
+                        {
+                            "message":"city is required"
+                        }
+                        """
+                ));
+    }
+
     @Test
     void 国番号を指定して国を削除すること() throws Exception {
-        Country existingCountry = new Country(31, "Netherlands", "Amsterdam");
-        when(countryService.delete(31)).thenReturn(existingCountry);
+        doNothing().when(countryService).delete(31);
 
         mockMvc.perform(delete("/countries/{country_code}", 31))
                 .andExpect(status().isOk())
@@ -257,8 +635,7 @@ class CountryControllerTest {
 
     @Test
     void 削除しようと指定した国番号が存在しない場合は例外をスローすること() throws Exception {
-        Country existingCountry = new Country(31, "Netherlands", "Amsterdam");
-        when(countryService.delete(47)).thenThrow(new CountryNotFoundException("Country with code 47 not found"));
+        doThrow(new CountryNotFoundException("Country with code 47 not found")).when(countryService).delete(47);
 
         mockMvc.perform(delete("/countries/{country_code}", 47))
                 .andExpect(status().isNotFound())
@@ -272,4 +649,71 @@ class CountryControllerTest {
 
         verify(countryService, times(1)).delete(47);
     }
+
+    @Test
+    void 登録更新削除をまとめて実行し1件ごとの結果を返すこと() throws Exception {
+        List<CountryBulkItem> items = List.of(
+                new CountryBulkItem(CountryBulkItem.Operation.INSERT, 31, "Netherlands", "Amsterdam"),
+                new CountryBulkItem(CountryBulkItem.Operation.DELETE, 47, null, null));
+        when(countryService.bulk(items)).thenReturn(List.of(
+                new CountryBulkResult(CountryBulkItem.Operation.INSERT, 31, 201, "country created"),
+                new CountryBulkResult(CountryBulkItem.Operation.DELETE, 47, 404, "Country with code 47 not found")));
+
+        mockMvc.perform(post("/countries/_bulk").contentType(MediaType.APPLICATION_JSON).content(
+                """
+                [
+                    {
+                        "operation":"insert",
+                        "countryCode":31,
+                        "country":"Netherlands",
+                        "city":"Amsterdam"
+                    },
+                    {
+                        "operation":"delete",
+                        "countryCode":47
+                    }
+                ]
+                """
+                ))
+                .andExpect(status().isOk())
+                .andExpect(content().json(
+                        """
+                        [
+                            {
+                                "operation":"insert",
+                                "countryCode":31,
+                                "status":201,
+                                "message":"country created"
+                            },
+                            {
+                                "operation":"delete",
+                                "countryCode":47,
+                                "status":404,
+                                "message":"Country with code 47 not found"
+                            }
+                        ]
+                        """
+                ));
+
+        verify(countryService, times(1)).bulk(items);
+    }
+
+    @Test
+    void まとめて実行する件数が上限を超える場合は400を返すこと() throws Exception {
+        String items = IntStream.range(0, 1001)
+                .mapToObj(countryCode -> "{\"operation\":\"delete\",\"countryCode\":" + countryCode + "}")
+                .collect(Collectors.joining(",", "[", "]"));
+
+        mockMvc.perform(post("/countries/_bulk").contentType(MediaType.APPLICATION_JSON).content(items))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json(
+                        """
+                        {
+                            "message":"a bulk request must contain at most 1000 operations"
+                        }
+                        """
+                ));
+
+        verify(countryService, never()).bulk(anyList());
+    }
 }
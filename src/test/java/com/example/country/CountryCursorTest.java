@@ -0,0 +1,29 @@
+package com.example.country;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CountryCursorTest {
+
+    @Test
+    void エンコードしたカーソルをデコードできること() {
+        CountryCursor cursor = new CountryCursor(420, "The Czech Republic: Praha");
+
+        assertThat(CountryCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void 並び替えキーのないカーソルをデコードできること() {
+        CountryCursor cursor = new CountryCursor(44, null);
+
+        assertThat(CountryCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void 不正なカーソルの場合は例外をスローすること() {
+        assertThatThrownBy(() -> CountryCursor.decode("not a cursor")).isInstanceOf(InvalidCountryPageException.class);
+        assertThatThrownBy(() -> CountryCursor.decode("YWJj")).isInstanceOf(InvalidCountryPageException.class);
+    }
+}
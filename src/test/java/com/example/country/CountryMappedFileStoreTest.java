@@ -0,0 +1,176 @@
+package com.example.country;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CountryMappedFileStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private CountryMappedFileStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        store = open(directory);
+        store.insert(new Country(36, "Hungary", "Budapest"));
+        store.insert(new Country(420, "The Czech Republic", "Prague"));
+        store.insert(new Country(43, "Austria", "Vienna"));
+        store.insert(new Country(225, "Côte d'Ivoire", "Yamoussoukro"));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        store.close();
+    }
+
+    @Test
+    void 登録した国を国番号で取得でき全件は国番号順に返すこと() {
+        assertThat(store.findByCountryCode(43)).hasValue(new Country(43, "Austria", "Vienna"));
+        assertThat(store.findByCountryCode(44)).isEmpty();
+        assertThat(store.findByCountryCodes(List.of(420, 44, 36))).containsExactly(
+                new Country(420, "The Czech Republic", "Prague"),
+                new Country(36, "Hungary", "Budapest"));
+        assertThat(store.findAll()).extracting(Country::getCountryCode).containsExactly(36, 43, 225, 420);
+    }
+
+    @Test
+    void 既に存在する国番号を登録した場合はDuplicateKeyExceptionを投げること() {
+        assertThatThrownBy(() -> store.insert(new Country(43, "Österreich", "Wien"))).isInstanceOf(DuplicateKeyException.class);
+
+        assertThat(store.findByCountryCode(43)).hasValue(new Country(43, "Austria", "Vienna"));
+    }
+
+    @Test
+    void 存在しない国の更新と削除は0件を返すこと() {
+        assertThat(store.update(new Country(47, "Norway", "Oslo"))).isZero();
+        assertThat(store.delete(47)).isZero();
+
+        assertThat(store.update(new Country(36, "Republic of Hungary", "Szentendre"))).isOne();
+        assertThat(store.delete(420)).isOne();
+        assertThat(store.findAll()).containsExactly(
+                new Country(36, "Republic of Hungary", "Szentendre"),
+                new Country(43, "Austria", "Vienna"),
+                new Country(225, "Côte d'Ivoire", "Yamoussoukro"));
+    }
+
+    @Test
+    void まとめて書き込み1件ごとの更新件数を返すこと() {
+        int[] updateCounts = store.writeAll(List.of(
+                new CountryBulkItem(CountryBulkItem.Operation.INSERT, 385, "Croatia", "Zagreb"),
+                new CountryBulkItem(CountryBulkItem.Operation.INSERT, 385, "Croatia", "Split"),
+                new CountryBulkItem(CountryBulkItem.Operation.UPDATE, 36, "Republic of Hungary", "Szentendre"),
+                new CountryBulkItem(null, 1, null, null),
+                new CountryBulkItem(CountryBulkItem.Operation.DELETE, 420, null, null),
+                new CountryBulkItem(CountryBulkItem.Operation.UPDATE, 420, "Czechia", "Prague")));
+
+        assertThat(updateCounts).containsExactly(1, 0, 1, 1, 0);
+        assertThat(store.findAll()).containsExactly(
+                new Country(36, "Republic of Hungary", "Szentendre"),
+                new Country(43, "Austria", "Vienna"),
+                new Country(225, "Côte d'Ivoire", "Yamoussoukro"),
+                new Country(385, "Croatia", "Zagreb"));
+    }
+
+    @Test
+    void 百文字を超える値は登録しないこと() {
+        assertThatThrownBy(() -> store.insert(new Country(1, "a".repeat(101), "city"))).isInstanceOf(DataIntegrityViolationException.class);
+        assertThatThrownBy(() -> store.insert(new Country(1, "country", null))).isInstanceOf(DataIntegrityViolationException.class);
+
+        store.insert(new Country(1, "あ".repeat(100), "city"));
+        assertThat(store.findByCountryCode(1)).hasValue(new Country(1, "あ".repeat(100), "city"));
+    }
+
+    @Test
+    void 頭文字を大文字小文字とアクセント記号を区別せずに検索できること() {
+        assertThat(store.findByCountryStartingWith("cote")).containsExactly(new Country(225, "Côte d'Ivoire", "Yamoussoukro"));
+        assertThat(store.findByCityStartingWith("B")).containsExactly(new Country(36, "Hungary", "Budapest"));
+        assertThat(store.findByCountryAndCityStartingWith("the", "p")).containsExactly(new Country(420, "The Czech Republic", "Prague"));
+        assertThat(store.findByCountryAndCityStartingWith("the", "b")).isEmpty();
+    }
+
+    @Test
+    void 国名順と国番号順に指定した位置の後から返すこと() {
+        assertThat(store.findAllAfter(43, 2)).extracting(Country::getCountryCode).containsExactly(225, 420);
+        assertThat(store.findByCountryStartingWithAfter("", "Côte d'Ivoire", 225, 10)).extracting(Country::getCountryCode)
+                .containsExactly(36, 420);
+        assertThat(store.findByCityStartingWithAfter("", "", Integer.MIN_VALUE, 2)).extracting(Country::getCountryCode)
+                .containsExactly(36, 420);
+    }
+
+    @Test
+    void 件数と最終更新日時が書き込みで変わること() {
+        CountryVersion before = store.findVersion("", "");
+        store.update(new Country(43, "Austria", "Salzburg"));
+        CountryVersion after = store.findVersion("", "");
+
+        assertThat(before.getRowCount()).isEqualTo(4);
+        assertThat(after.getLastUpdatedAt()).isAfter(before.getLastUpdatedAt());
+        assertThat(store.findVersion("j", "")).isEqualTo(new CountryVersion(0, null));
+    }
+
+    @Test
+    void 初期容量を超えて登録しても開き直した後に全件を返すこと() throws Exception {
+        for (int countryCode = 1000; countryCode < 2500; countryCode++) {
+            store.insert(new Country(countryCode, "Country " + countryCode, "City " + countryCode));
+        }
+        store.close();
+        store = open(directory);
+
+        List<Country> streamed = new ArrayList<>();
+        try (Cursor<Country> cursor = store.streamAll()) {
+            cursor.forEach(streamed::add);
+        }
+        assertThat(streamed).hasSize(1504);
+        assertThat(streamed.get(1503)).isEqualTo(new Country(2499, "Country 2499", "City 2499"));
+        assertThat(Files.size(directory.resolve(CountryMappedFileStore.LOG_FILE))).isZero();
+    }
+
+    @Test
+    void クラッシュで失われた書き込みを書き込みログから復元すること(@TempDir Path crashed) throws Exception {
+        store.update(new Country(36, "Republic of Hungary", "Szentendre"));
+        store.delete(420);
+        // what survives a crash: the log was forced, the mapped pages were not
+        Files.copy(directory.resolve(CountryMappedFileStore.DATA_FILE), crashed.resolve(CountryMappedFileStore.DATA_FILE));
+        Files.copy(directory.resolve(CountryMappedFileStore.LOG_FILE), crashed.resolve(CountryMappedFileStore.LOG_FILE));
+        try (FileChannel data = FileChannel.open(crashed.resolve(CountryMappedFileStore.DATA_FILE), StandardOpenOption.WRITE);
+             FileChannel log = FileChannel.open(crashed.resolve(CountryMappedFileStore.LOG_FILE), StandardOpenOption.WRITE)) {
+            data.write(ByteBuffer.allocate(4 * CountryMappedFileStore.RECORD_SIZE), 16);
+            log.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 40, 1, 0, 0}), log.size());
+        }
+
+        CountryMappedFileStore recovered = open(crashed);
+        try {
+            assertThat(recovered.findAll()).containsExactly(
+                    new Country(36, "Republic of Hungary", "Szentendre"),
+                    new Country(43, "Austria", "Vienna"),
+                    new Country(225, "Côte d'Ivoire", "Yamoussoukro"));
+            assertThat(Files.size(crashed.resolve(CountryMappedFileStore.LOG_FILE))).isZero();
+        } finally {
+            recovered.close();
+        }
+    }
+
+    private static CountryMappedFileStore open(Path directory) throws Exception {
+        CountryMappedFileStore store = new CountryMappedFileStore(directory, true, 16, DataSize.ofMegabytes(16));
+        store.open();
+        return store;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.country;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+class CountryMapperMetricsInterceptorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final CountryMapperMetricsInterceptor interceptor = new CountryMapperMetricsInterceptor(meterRegistry);
+
+    private final Executor executor = mock(Executor.class);
+
+    private final MappedStatement mappedStatement = new MappedStatement.Builder(
+            new Configuration(), "com.example.country.CountryMapper.update", mock(SqlSource.class), SqlCommandType.UPDATE).build();
+
+    @Test
+    void ステートメントごとに実行時間を記録すること() throws Throwable {
+        doReturn(1).when(executor).update(any(), any());
+
+        Object actual = interceptor.intercept(invocation());
+        assertThat(actual).isEqualTo(1);
+
+        Timer timer = meterRegistry.get("country.mapper").tag("statement", "update").tag("outcome", "success").timer();
+        assertThat(timer.count()).isEqualTo(1);
+    }
+
+    @Test
+    void 繰り返し実行した場合は同じタイマーに記録すること() throws Throwable {
+        doReturn(1).when(executor).update(any(), any());
+
+        for (int i = 0; i < 3; i++) {
+            interceptor.intercept(invocation());
+        }
+
+        assertThat(meterRegistry.find("country.mapper").timers()).hasSize(1);
+        assertThat(meterRegistry.get("country.mapper").tag("statement", "update").tag("outcome", "success").timer().count()).isEqualTo(3);
+    }
+
+    @Test
+    void 例外が発生した場合はエラーとして記録すること() throws Throwable {
+        doThrow(new SQLException("connection lost")).when(executor).update(any(), any());
+
+        assertThatThrownBy(() -> interceptor.intercept(invocation()))
+                .isInstanceOf(InvocationTargetException.class)
+                .hasCauseInstanceOf(SQLException.class);
+
+        Timer timer = meterRegistry.get("country.mapper").tag("statement", "update").tag("outcome", "error").timer();
+        assertThat(timer.count()).isEqualTo(1);
+    }
+
+    private Invocation invocation() throws NoSuchMethodException {
+        return new Invocation(executor, Executor.class.getMethod("update", MappedStatement.class, Object.class),
+                new Object[]{mappedStatement, new Country(33, "France", "Paris")});
+    }
+}
@@ -3,16 +3,28 @@ package com.example.country;
 import com.github.database.rider.core.api.dataset.DataSet;
 import com.github.database.rider.core.api.dataset.ExpectedDataSet;
 import com.github.database.rider.spring.api.DBRider;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.junit.jupiter.api.Test;
 import org.mybatis.spring.boot.test.autoconfigure.MybatisTest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @DBRider
 @MybatisTest
@@ -22,6 +34,12 @@ class CountryMapperTest {
     @Autowired
     CountryMapper countryMapper;
 
+    @Autowired
+    SqlSessionFactory sqlSessionFactory;
+
+    @Autowired
+    DataSource dataSource;
+
     @Test
     @DataSet(value = "datasets/countries.yml")
     @Transactional
@@ -36,6 +54,22 @@ class CountryMapperTest {
                 );
     }
 
+    @Test
+    @DataSet(value = "datasets/countries.yml")
+    @Transactional
+    void 全ての国がカーソルで国番号順に取得できること() throws Exception {
+        List<Country> countries = new ArrayList<>();
+        try (Cursor<Country> cursor = countryMapper.streamAll()) {
+            cursor.forEach(countries::add);
+        }
+        assertThat(countries)
+                .containsExactly(
+                        new Country(36, "Hungary", "Budapest"),
+                        new Country(43, "Austria", "Vienna"),
+                        new Country(420, "The Czech Republic", "Prague")
+                );
+    }
+
     @Test
     @DataSet(value = "datasets/countries.yml")
     @Transactional
@@ -78,6 +112,60 @@ class CountryMapperTest {
                 .isEmpty();
     }
 
+    @Test
+    @DataSet(value = "datasets/countries.yml")
+    @Transactional
+    void 指定した国名と都市名の頭文字を両方含む国が取得できること() {
+        List<Country> countries = countryMapper.findByCountryAndCityStartingWith("h", "b");
+        assertThat(countries)
+                .hasSize(1)
+                .contains(
+                        new Country(36, "Hungary", "Budapest")
+                );
+    }
+
+    @Test
+    @DataSet(value = "datasets/countries.yml")
+    @Transactional
+    void 指定した国名の頭文字に一致しても都市名の頭文字が一致しない場合取得されるリストが空であること() {
+        List<Country> countries = countryMapper.findByCountryAndCityStartingWith("h", "v");
+        assertThat(countries)
+                .isEmpty();
+    }
+
+    @Test
+    @DataSet(value = "datasets/countries.yml")
+    @Transactional
+    void 指定した国番号より後の国が国番号順に指定件数まで取得できること() {
+        List<Country> countries = countryMapper.findAllAfter(36, 1);
+        assertThat(countries)
+                .containsExactly(
+                        new Country(43, "Austria", "Vienna")
+                );
+    }
+
+    @Test
+    @DataSet(value = "datasets/countries.yml")
+    @Transactional
+    void 指定した国名と国番号より後の国が国名順に取得できること() {
+        List<Country> countries = countryMapper.findByCountryStartingWithAfter("", "Austria", 43, 10);
+        assertThat(countries)
+                .containsExactly(
+                        new Country(36, "Hungary", "Budapest"),
+                        new Country(420, "The Czech Republic", "Prague")
+                );
+    }
+
+    @Test
+    void 頭文字検索がインデックスを利用できる実行計画であること() throws SQLException {
+        assertThat(possibleKeys("findByCountryStartingWith", "a"))
+                .contains("idx_countries_country_city");
+        assertThat(possibleKeys("findByCityStartingWith", "b"))
+                .contains("idx_countries_city");
+        assertThat(possibleKeys("findByCountryAndCityStartingWith", Map.of("countryPrefix", "h", "cityPrefix", "b")))
+                .contains("idx_countries_country_city");
+    }
+
     @Test
     @DataSet(value = "datasets/countries.yml")
     @Transactional
@@ -109,7 +197,8 @@ class CountryMapperTest {
     @Transactional
     void 国番号を指定して国名と都市名を更新できること() {
         Country existingCountry = new Country(36, "Republic of Hungary", "Szentendre");
-        countryMapper.update(existingCountry);
+        int updated = countryMapper.update(existingCountry);
+        assertThat(updated).isEqualTo(1);
 
         Optional<Country> updateCountries = countryMapper.findByCountryCode(36);
         assertThat(updateCountries)
@@ -124,12 +213,81 @@ class CountryMapperTest {
     @ExpectedDataSet(value = "datasets/delete-countries.yml")
     @Transactional
     void 国番号を指定して国を削除できること() {
-        Country existingCountry = new Country(420, "The Czech Republic", "Prague");
-        countryMapper.delete(existingCountry);
+        int deleted = countryMapper.delete(420);
+        assertThat(deleted).isEqualTo(1);
 
         Optional<Country> deleteCountries = countryMapper.findByCountryCode(420);
         assertThat(deleteCountries)
                 .isEmpty();
     }
 
+    @Test
+    @DataSet(value = "datasets/countries.yml")
+    @Transactional
+    void 既に存在する国番号を登録すると例外がスローされること() {
+        assertThatThrownBy(() -> countryMapper.insert(new Country(36, "Hungary", "Budapest")))
+                .isInstanceOf(DuplicateKeyException.class);
+    }
+
+    @Test
+    @DataSet(value = "datasets/countries.yml")
+    @Transactional
+    void 存在しない国番号を更新削除した場合は件数が0であること() {
+        assertThat(countryMapper.update(new Country(385, "Croatia", "Zagreb"))).isZero();
+        assertThat(countryMapper.delete(385)).isZero();
+    }
+
+    @Test
+    @DataSet(value = "datasets/countries.yml")
+    @Transactional
+    void 複数の国番号を指定して存在する国だけが取得できること() {
+        List<Country> countries = countryMapper.findByCountryCodes(List.of(420, 36, 999));
+        assertThat(countries).containsExactlyInAnyOrder(
+                new Country(36, "Hungary", "Budapest"),
+                new Country(420, "The Czech Republic", "Prague"));
+    }
+
+    @Test
+    @DataSet(value = "datasets/countries.yml")
+    @Transactional
+    void 条件に一致する国の件数と最終更新日時を取得できること() {
+        CountryVersion all = countryMapper.findVersion("", "");
+        assertThat(all.getRowCount()).isEqualTo(3);
+        assertThat(all.getLastUpdatedAt()).isNotNull();
+
+        assertThat(countryMapper.findVersion("h", "b").getRowCount()).isEqualTo(1);
+        assertThat(countryMapper.findVersion("", "z")).isEqualTo(new CountryVersion(0, null));
+    }
+
+    @Test
+    @DataSet(value = "datasets/countries.yml")
+    @Transactional
+    void 更新と削除で一覧のバージョンが変わること() {
+        CountryVersion initial = countryMapper.findVersion("", "");
+
+        countryMapper.update(new Country(36, "Republic of Hungary", "Szentendre"));
+        CountryVersion updated = countryMapper.findVersion("", "");
+        assertThat(updated.getLastUpdatedAt()).isAfter(initial.getLastUpdatedAt());
+        assertThat(updated.toETag()).isNotEqualTo(initial.toETag());
+
+        countryMapper.delete(43);
+        assertThat(countryMapper.findVersion("", "").toETag()).isNotEqualTo(updated.toETag());
+    }
+
+    private String possibleKeys(String statement, Object parameter) throws SQLException {
+        BoundSql boundSql = sqlSessionFactory.getConfiguration()
+                .getMappedStatement(CountryMapper.class.getName() + "." + statement)
+                .getBoundSql(parameter);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement explain = connection.prepareStatement("EXPLAIN " + boundSql.getSql())) {
+            for (int i = 0; i < boundSql.getParameterMappings().size(); i++) {
+                String property = boundSql.getParameterMappings().get(i).getProperty();
+                explain.setString(i + 1, parameter instanceof Map<?, ?> map ? (String) map.get(property) : (String) parameter);
+            }
+            try (ResultSet resultSet = explain.executeQuery()) {
+                assertThat(resultSet.next()).isTrue();
+                return String.valueOf(resultSet.getString("possible_keys"));
+            }
+        }
+    }
 }
@@ -0,0 +1,42 @@
+package com.example.country;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class CountryMetricsEndpointTests {
+
+	@Autowired
+	MockMvc mockMvc;
+
+	@Test
+	void Prometheus形式でメトリクスを公開すること() throws Exception {
+		mockMvc.perform(get("/unknown"));
+
+		mockMvc.perform(get("/actuator/prometheus"))
+				.andExpect(status().isOk())
+				.andExpect(content().string(containsString("http_server_requests_seconds_bucket")))
+				.andExpect(content().string(containsString("cache_gets_total")));
+	}
+
+	@Test
+	void 遅いSQLと直近のSQLの記録を公開すること() throws Exception {
+		mockMvc.perform(get("/actuator/sqltraces"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.slow").isArray())
+				.andExpect(jsonPath("$.recent").isArray());
+	}
+
+}
@@ -0,0 +1,29 @@
+package com.example.country;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CountryNdjsonWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void 国を1行に1件ずつ書き出すこと() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (CountryNdjsonWriter writer = new CountryNdjsonWriter(objectMapper, output)) {
+            writer.accept(new Country(33, "France", "Paris"));
+            writer.accept(new Country(49, "Germany", "Berlin"));
+        }
+
+        assertThat(output.toString(StandardCharsets.UTF_8)).isEqualTo(
+                """
+                {"countryCode":33,"country":"France","city":"Paris"}
+                {"countryCode":49,"country":"Germany","city":"Berlin"}
+                """);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.country;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+
+@ExtendWith(MockitoExtension.class)
+class CountryPrefixIndexTest {
+
+    @Mock
+    private CountryStore countryStore;
+
+    private CountryPrefixIndex countryPrefixIndex;
+
+    @BeforeEach
+    void setUp() {
+        doReturn(List.of(
+                new Country(36, "Hungary", "Budapest"),
+                new Country(43, "Austria", "Vienna"),
+                new Country(420, "The Czech Republic", "Prague"),
+                new Country(225, "Côte d'Ivoire", "Yamoussoukro"))).when(countryStore).findAll();
+        countryPrefixIndex = new CountryPrefixIndex(true, countryStore);
+        countryPrefixIndex.load();
+    }
+
+    @Test
+    void 国名の頭文字を大文字小文字を区別せずに検索できること() {
+        assertThat(countryPrefixIndex.findByCountryStartingWith("a")).containsExactly(new Country(43, "Austria", "Vienna"));
+        assertThat(countryPrefixIndex.findByCountryStartingWith("THE c")).containsExactly(new Country(420, "The Czech Republic", "Prague"));
+        assertThat(countryPrefixIndex.findByCountryStartingWith("j")).isEmpty();
+    }
+
+    @Test
+    void 都市名の頭文字で検索できること() {
+        assertThat(countryPrefixIndex.findByCityStartingWith("b")).containsExactly(new Country(36, "Hungary", "Budapest"));
+        assertThat(countryPrefixIndex.findByCityStartingWith("a")).isEmpty();
+    }
+
+    @Test
+    void 国名と都市名の頭文字を両方指定した場合両方に該当する国だけを返すこと() {
+        assertThat(countryPrefixIndex.findByCountryAndCityStartingWith("h", "b")).containsExactly(new Country(36, "Hungary", "Budapest"));
+        assertThat(countryPrefixIndex.findByCountryAndCityStartingWith("h", "v")).isEmpty();
+    }
+
+    @Test
+    void アクセント記号を区別せずに検索できること() {
+        assertThat(countryPrefixIndex.findByCountryStartingWith("cote")).containsExactly(new Country(225, "Côte d'Ivoire", "Yamoussoukro"));
+    }
+
+    @Test
+    void 空の頭文字では全ての国を返すこと() {
+        assertThat(countryPrefixIndex.findByCountryStartingWith("")).hasSize(4);
+    }
+
+    @Test
+    void 登録更新削除が索引に反映されること() {
+        countryPrefixIndex.put(new Country(385, "Croatia", "Zagreb"));
+        countryPrefixIndex.put(new Country(36, "Republic of Hungary", "Szentendre"));
+        countryPrefixIndex.remove(43);
+
+        assertThat(countryPrefixIndex.findByCountryStartingWith("c")).containsExactly(
+                new Country(225, "Côte d'Ivoire", "Yamoussoukro"),
+                new Country(385, "Croatia", "Zagreb"));
+        assertThat(countryPrefixIndex.findByCountryStartingWith("h")).isEmpty();
+        assertThat(countryPrefixIndex.findByCityStartingWith("s")).containsExactly(new Country(36, "Republic of Hungary", "Szentendre"));
+        assertThat(countryPrefixIndex.findByCountryStartingWith("a")).isEmpty();
+    }
+
+    @Test
+    void 検索条件ごとの件数と最後の変更で版を返すこと() {
+        CountryVersion hungary = countryPrefixIndex.version("h", "b");
+        assertThat(hungary.getRowCount()).isEqualTo(1);
+        assertThat(countryPrefixIndex.version("", "p").getRowCount()).isEqualTo(1);
+
+        countryPrefixIndex.put(new Country(36, "Hungary", "Debrecen"));
+        assertThat(countryPrefixIndex.version("h", "b").getRowCount()).isZero();
+        assertThat(countryPrefixIndex.version("h", "").toETag()).isNotEqualTo(hungary.toETag());
+    }
+}
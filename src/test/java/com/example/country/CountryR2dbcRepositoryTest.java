@@ -0,0 +1,90 @@
+package com.example.country;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs against an in-memory H2 database in MySQL mode through the r2dbc-h2 driver, created from the same
+ * sql/001-create-table-and-load-data.sql as the MySQL container.
+ */
+class CountryR2dbcRepositoryTest {
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private CountryR2dbcRepository countryRepository;
+
+    @BeforeEach
+    void setUp() {
+        ConnectionFactory connectionFactory = ConnectionFactories.get("r2dbc:h2:mem:///countries-r2dbc" + SEQUENCE.incrementAndGet()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;IGNORECASE=TRUE;DB_CLOSE_DELAY=-1");
+        new ResourceDatabasePopulator(new ClassPathResource("001-create-table-and-load-data.sql"))
+                .populate(connectionFactory)
+                .block();
+        countryRepository = new CountryR2dbcRepository(DatabaseClient.create(connectionFactory));
+    }
+
+    @Test
+    void 全ての国を取得すること() {
+        StepVerifier.create(countryRepository.findAll().count())
+                .expectNext(3L)
+                .verifyComplete();
+    }
+
+    @Test
+    void 国名と都市名の頭文字で検索すること() {
+        StepVerifier.create(countryRepository.findByCountryStartingWith("United"))
+                .expectNext(new Country(44, "United Kingdom", "London"))
+                .verifyComplete();
+        StepVerifier.create(countryRepository.findByCityStartingWith("Ber"))
+                .expectNext(new Country(49, "Germany", "Berlin"))
+                .verifyComplete();
+        StepVerifier.create(countryRepository.findByCountryAndCityStartingWith("United", "Lon"))
+                .expectNext(new Country(44, "United Kingdom", "London"))
+                .verifyComplete();
+        StepVerifier.create(countryRepository.findByCountryAndCityStartingWith("United", "Par"))
+                .verifyComplete();
+    }
+
+    @Test
+    void 国番号で取得し存在しない場合は空を返すこと() {
+        StepVerifier.create(countryRepository.findByCountryCode(33))
+                .expectNext(new Country(33, "France", "Paris"))
+                .verifyComplete();
+        StepVerifier.create(countryRepository.findByCountryCode(999))
+                .verifyComplete();
+    }
+
+    @Test
+    void 登録更新削除で変更した件数を返すこと() {
+        StepVerifier.create(countryRepository.insert(new Country(31, "Netherlands", "Amsterdam")))
+                .expectNext(1L)
+                .verifyComplete();
+        StepVerifier.create(countryRepository.update(new Country(31, "Holland", "Rotterdam")))
+                .expectNext(1L)
+                .verifyComplete();
+        StepVerifier.create(countryRepository.findByCountryCode(31))
+                .expectNext(new Country(31, "Holland", "Rotterdam"))
+                .verifyComplete();
+        StepVerifier.create(countryRepository.delete(31))
+                .expectNext(1L)
+                .verifyComplete();
+        StepVerifier.create(countryRepository.update(new Country(31, "Holland", "Rotterdam")))
+                .expectNext(0L)
+                .verifyComplete();
+    }
+
+    @Test
+    void 登録済みの国番号を登録した場合はDuplicateKeyExceptionになること() {
+        StepVerifier.create(countryRepository.insert(new Country(33, "France", "Lyon")))
+                .expectError(DuplicateKeyException.class)
+                .verify();
+    }
+}
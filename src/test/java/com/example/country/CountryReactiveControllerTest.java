@@ -0,0 +1,151 @@
+package com.example.country;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(CountryReactiveController.class)
+class CountryReactiveControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockBean
+    CountryReactiveService countryReactiveService;
+
+    @Test
+    void 頭文字で検索した国をJSON配列で返すこと() throws Exception {
+        when(countryReactiveService.getCountries("", "P")).thenReturn(Flux.just(
+                new Country(33, "France", "Paris"),
+                new Country(595, "Paraguay", "Paraguarí")));
+
+        MvcResult result = mockMvc.perform(get("/v2/countries").param("cityStartsWith", "P"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().json(
+                        """
+                        [
+                            {"countryCode":33,"country":"France","city":"Paris"},
+                            {"countryCode":595,"country":"Paraguay","city":"Paraguarí"}
+                        ]
+                        """
+                ));
+    }
+
+    @Test
+    void NDJSONを求められた場合は国を1行ずつ返すこと() throws Exception {
+        when(countryReactiveService.getCountries("", "")).thenReturn(Flux.just(
+                new Country(31, "Netherlands", "Amsterdam"),
+                new Country(33, "France", "Paris")));
+
+        MvcResult result = mockMvc.perform(get("/v2/countries").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                        """
+                        {"countryCode":31,"country":"Netherlands","city":"Amsterdam"}
+                        {"countryCode":33,"country":"France","city":"Paris"}
+                        """
+                ));
+    }
+
+    @Test
+    void 存在しない国番号を指定した場合は404を返すこと() throws Exception {
+        when(countryReactiveService.findByCountryCode(999)).thenReturn(Mono.error(new CountryNotFoundException(999)));
+
+        MvcResult result = mockMvc.perform(get("/v2/countries/{country_code}", 999))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isNotFound())
+                .andExpect(content().json(
+                        """
+                        {
+                            "message":"Country with code 999 not found",
+                            "path":"/v2/countries/999"
+                        }
+                        """
+                ));
+    }
+
+    @Test
+    void 登録した国の場所を返し重複の場合は409を返すこと() throws Exception {
+        when(countryReactiveService.insert(31, "Netherlands", "Amsterdam")).thenReturn(Mono.just(new Country(31, "Netherlands", "Amsterdam")));
+        when(countryReactiveService.insert(33, "France", "Paris")).thenReturn(Mono.error(new CountryDuplicatedException(33)));
+
+        MvcResult created = mockMvc.perform(post("/v2/countries").contentType(MediaType.APPLICATION_JSON).content(
+                        """
+                        {"countryCode":31,"country":"Netherlands","city":"Amsterdam"}
+                        """))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(created))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Location", "http://localhost/v2/countries/31"))
+                .andExpect(content().json("{\"message\":\"country created\"}"));
+
+        MvcResult duplicated = mockMvc.perform(post("/v2/countries").contentType(MediaType.APPLICATION_JSON).content(
+                        """
+                        {"countryCode":33,"country":"France","city":"Paris"}
+                        """))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(duplicated))
+                .andExpect(status().isConflict())
+                .andExpect(content().json("{\"message\":\"Country with code 33 duplicated\"}"));
+    }
+
+    @Test
+    void 削除した場合はメッセージを返すこと() throws Exception {
+        when(countryReactiveService.delete(49)).thenReturn(Mono.empty());
+
+        MvcResult result = mockMvc.perform(delete("/v2/countries/{country_code}", 49))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"message\":\"country deleted\"}"));
+    }
+
+    @Test
+    void 更新する値が空の場合は400を返すこと() throws Exception {
+        when(countryReactiveService.update(31, "Netherlands", null)).thenReturn(Mono.error(new InvalidCountryException("city is required")));
+
+        MvcResult result = mockMvc.perform(patch("/v2/countries/{country_code}", 31).contentType(MediaType.APPLICATION_JSON).content(
+                        """
+                        {"country":"Netherlands"}
+                        """))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("{\"message\":\"city is required\"}"));
+    }
+}
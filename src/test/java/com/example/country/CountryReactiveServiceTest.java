@@ -0,0 +1,152 @@
+package com.example.country;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class CountryReactiveServiceTest {
+
+    @InjectMocks
+    private CountryReactiveService countryReactiveService;
+
+    @Mock
+    private CountryR2dbcRepository countryRepository;
+
+    @Mock
+    private CountryService countryService;
+
+    @Spy
+    private CountryWriteLocks countryWriteLocks = new CountryWriteLocks();
+
+    @Test
+    void 頭文字の指定に応じて検索方法を選ぶこと() {
+        doReturn(Flux.just(new Country(33, "France", "Paris"))).when(countryRepository).findAll();
+        doReturn(Flux.just(new Country(34, "Spain", "Madrid"))).when(countryRepository).findByCountryStartingWith("S");
+        doReturn(Flux.just(new Country(49, "Germany", "Berlin"))).when(countryRepository).findByCityStartingWith("B");
+        doReturn(Flux.empty()).when(countryRepository).findByCountryAndCityStartingWith("S", "B");
+
+        StepVerifier.create(countryReactiveService.getCountries("", "")).expectNext(new Country(33, "France", "Paris")).verifyComplete();
+        StepVerifier.create(countryReactiveService.getCountries("S", "")).expectNext(new Country(34, "Spain", "Madrid")).verifyComplete();
+        StepVerifier.create(countryReactiveService.getCountries("", "B")).expectNext(new Country(49, "Germany", "Berlin")).verifyComplete();
+        StepVerifier.create(countryReactiveService.getCountries("S", "B")).verifyComplete();
+    }
+
+    @Test
+    void 存在しない国番号を指定した場合はCountryNotFoundExceptionになること() {
+        doReturn(Mono.empty()).when(countryRepository).findByCountryCode(999);
+
+        StepVerifier.create(countryReactiveService.findByCountryCode(999))
+                .expectErrorSatisfies(e -> assertThat(e)
+                        .isInstanceOf(CountryNotFoundException.class)
+                        .hasMessage("Country with code 999 not found"))
+                .verify();
+    }
+
+    @Test
+    void 登録した国をCountryServiceに通知すること() {
+        Country country = new Country(31, "Netherlands", "Amsterdam");
+        doReturn(Mono.just(1L)).when(countryRepository).insert(country);
+        doReturn(country).when(countryService).recordWrite(CountryChangeEvent.INSERT, country);
+
+        StepVerifier.create(countryReactiveService.insert(31, "Netherlands", "Amsterdam"))
+                .expectNext(country)
+                .verifyComplete();
+
+        verify(countryService).recordWrite(CountryChangeEvent.INSERT, country);
+    }
+
+    @Test
+    void 書き込む前に保留中の更新を破棄しCountryServiceへの通知はイベントループ以外で行うこと() {
+        Country country = new Country(31, "Holland", "Rotterdam");
+        List<String> events = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> events.add("discard on " + Thread.currentThread().getName())).when(countryService).discardPending(31);
+        doReturn(Mono.fromCallable(() -> events.add("update")).thenReturn(1L)).when(countryRepository).update(country);
+        doAnswer(invocation -> {
+            events.add("record on " + Thread.currentThread().getName());
+            return country;
+        }).when(countryService).recordWrite(CountryChangeEvent.UPDATE, country);
+
+        StepVerifier.create(countryReactiveService.update(31, "Holland", "Rotterdam"))
+                .expectNext(country)
+                .verifyComplete();
+
+        assertThat(events).hasSize(3);
+        assertThat(events.get(0)).startsWith("discard on boundedElastic");
+        assertThat(events.get(1)).isEqualTo("update");
+        assertThat(events.get(2)).startsWith("record on boundedElastic");
+    }
+
+    @Test
+    void 登録済みの国番号を登録した場合はCountryDuplicatedExceptionになること() {
+        doReturn(Mono.error(new DuplicateKeyException("Duplicate entry '33'"))).when(countryRepository).insert(any());
+
+        StepVerifier.create(countryReactiveService.insert(33, "France", "Paris"))
+                .expectError(CountryDuplicatedException.class)
+                .verify();
+
+        verify(countryService, never()).recordWrite(any(), any());
+    }
+
+    @Test
+    void 存在しない国番号を更新削除した場合はCountryNotFoundExceptionになること() {
+        doReturn(Mono.just(0L)).when(countryRepository).update(any());
+        doReturn(Mono.just(0L)).when(countryRepository).delete(47);
+
+        StepVerifier.create(countryReactiveService.update(47, "Norway", "Oslo"))
+                .expectError(CountryNotFoundException.class)
+                .verify();
+        StepVerifier.create(countryReactiveService.delete(47))
+                .expectError(CountryNotFoundException.class)
+                .verify();
+
+        verify(countryService, never()).recordWrite(any(), any());
+        verify(countryService, never()).recordDelete(anyInt());
+    }
+
+    @Test
+    void 削除した国をCountryServiceに通知すること() {
+        doReturn(Mono.just(1L)).when(countryRepository).delete(49);
+
+        StepVerifier.create(countryReactiveService.delete(49)).verifyComplete();
+
+        verify(countryService).discardPending(49);
+        verify(countryService).recordDelete(49);
+    }
+
+    @Test
+    void 登録や更新する値が空や長すぎる場合は保留中の更新を破棄せずInvalidCountryExceptionになること() {
+        StepVerifier.create(countryReactiveService.insert(31, null, "Amsterdam"))
+                .expectErrorSatisfies(e -> assertThat(e)
+                        .isInstanceOf(InvalidCountryException.class)
+                        .hasMessage("country is required"))
+                .verify();
+        StepVerifier.create(countryReactiveService.update(31, "Netherlands", "A".repeat(101)))
+                .expectErrorSatisfies(e -> assertThat(e)
+                        .isInstanceOf(InvalidCountryException.class)
+                        .hasMessage("city must be at most 100 characters"))
+                .verify();
+
+        verify(countryService, never()).discardPending(anyInt());
+        verify(countryRepository, never()).insert(any());
+        verify(countryRepository, never()).update(any());
+    }
+}
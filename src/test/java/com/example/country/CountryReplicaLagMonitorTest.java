@@ -0,0 +1,99 @@
+package com.example.country;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CountryReplicaLagMonitorTest {
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource replica;
+
+    @Mock
+    private ResultSet status;
+
+    private Connection primaryConnection;
+
+    private Connection replicaConnection;
+
+    private CountryRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        primaryConnection = mock(Connection.class);
+        lenient().when(primary.getConnection()).thenReturn(primaryConnection);
+        replicaConnection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        lenient().when(replica.getConnection()).thenReturn(replicaConnection);
+        lenient().when(replicaConnection.createStatement()).thenReturn(statement);
+        lenient().when(statement.executeQuery("SHOW REPLICA STATUS")).thenReturn(status);
+        routingDataSource = new CountryRoutingDataSource(primary, List.of(replica), new CountryDataSourceProperties.Routing(),
+                dataSource -> 0, System::currentTimeMillis);
+        CountryRoutingDataSource.markRead();
+    }
+
+    @AfterEach
+    void tearDown() {
+        CountryRoutingDataSource.clearRead();
+    }
+
+    @Test
+    void 遅延が許容値内のレプリカを使うこと() throws SQLException {
+        when(status.next()).thenReturn(true);
+        when(status.getLong("Seconds_Behind_Source")).thenReturn(1L);
+
+        new CountryReplicaLagMonitor(routingDataSource, false).checkReplicaLag();
+
+        assertThat(routingDataSource.getConnection()).isSameAs(replicaConnection);
+    }
+
+    @Test
+    void 状態を返さないレプリカは遅延が不明として使わないこと() throws SQLException {
+        when(status.next()).thenReturn(false);
+
+        new CountryReplicaLagMonitor(routingDataSource, false).checkReplicaLag();
+
+        assertThat(routingDataSource.getConnection()).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void 単独のインスタンスを許可した場合は状態を返さないレプリカを使うこと() throws SQLException {
+        when(status.next()).thenReturn(false);
+
+        new CountryReplicaLagMonitor(routingDataSource, true).checkReplicaLag();
+
+        assertThat(routingDataSource.getConnection()).isSameAs(replicaConnection);
+    }
+
+    @Test
+    void 複製が止まったレプリカは使わないこと() throws SQLException {
+        routingDataSource.updateReplicaLag(0, Duration.ZERO);
+        when(status.next()).thenReturn(true);
+        when(status.getLong("Seconds_Behind_Source")).thenReturn(0L);
+        when(status.wasNull()).thenReturn(true);
+
+        new CountryReplicaLagMonitor(routingDataSource, false).checkReplicaLag();
+
+        assertThat(routingDataSource.getConnection()).isSameAs(primaryConnection);
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.country;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+
+@ExtendWith(MockitoExtension.class)
+class CountryReplicaTest {
+
+    @Mock
+    private CountryStore countryStore;
+
+    private CountryReplica countryReplica;
+
+    @BeforeEach
+    void setUp() {
+        doReturn(List.of(
+                new Country(33, "France", "Paris"),
+                new Country(44, "United Kingdom", "London"),
+                new Country(49, "Germany", "Berlin"))).when(countryStore).findAll();
+        countryReplica = new CountryReplica(true, 99999, countryStore);
+        countryReplica.load();
+    }
+
+    @Test
+    void 起動時に読み込んだ国を国番号で取得できること() {
+        assertThat(countryReplica.isEnabled()).isTrue();
+        assertThat(countryReplica.findByCountryCode(44)).hasValue(new Country(44, "United Kingdom", "London"));
+        assertThat(countryReplica.findByCountryCode(50)).isEmpty();
+        assertThat(countryReplica.findByCountryCode(100000)).isEmpty();
+    }
+
+    @Test
+    void 全ての国を国番号順に返すこと() {
+        assertThat(countryReplica.findAll()).containsExactly(
+                new Country(33, "France", "Paris"),
+                new Country(44, "United Kingdom", "London"),
+                new Country(49, "Germany", "Berlin"));
+    }
+
+    @Test
+    void 登録更新削除が反映されること() {
+        countryReplica.put(new Country(420, "The Czech Republic", "Prague"));
+        countryReplica.put(new Country(33, "République française", "Lyon"));
+        countryReplica.remove(49);
+
+        assertThat(countryReplica.findAll()).containsExactly(
+                new Country(33, "République française", "Lyon"),
+                new Country(44, "United Kingdom", "London"),
+                new Country(420, "The Czech Republic", "Prague"));
+    }
+
+    @Test
+    void 変更のたびに版が変わること() {
+        CountryVersion loaded = countryReplica.version();
+        assertThat(loaded.getRowCount()).isEqualTo(3);
+
+        countryReplica.put(new Country(44, "United Kingdom", "Manchester"));
+        CountryVersion updated = countryReplica.version();
+        assertThat(updated.getRowCount()).isEqualTo(3);
+        assertThat(updated.toETag()).isNotEqualTo(loaded.toETag());
+
+        countryReplica.remove(49);
+        assertThat(countryReplica.version().getRowCount()).isEqualTo(2);
+        assertThat(countryReplica.version().toETag()).isNotEqualTo(updated.toETag());
+    }
+
+    @Test
+    void 繰り返し更新しても最新の値を保持すること() {
+        for (int i = 0; i < 10000; i++) {
+            countryReplica.put(new Country(44, "United Kingdom " + i, "London"));
+        }
+
+        assertThat(countryReplica.findByCountryCode(44)).hasValue(new Country(44, "United Kingdom 9999", "London"));
+        assertThat(countryReplica.findAll()).hasSize(3);
+    }
+
+    @Test
+    void 範囲外の国番号は複製せずデータベースから読むこと() {
+        doReturn(List.of(
+                new Country(-1, "Nowhere", "Nowhere"),
+                new Country(44, "United Kingdom", "London"),
+                new Country(2_000_000_000, "Atlantis", "Poseidonis"))).when(countryStore).findAll();
+        countryReplica.load();
+        doReturn(Optional.of(new Country(2_000_000_000, "Atlantis", "Poseidonis"))).when(countryStore).findByCountryCode(2_000_000_000);
+        doReturn(List.of(new Country(2_000_000_000, "Atlantis", "Poseidonis"), new Country(-1, "Nowhere", "Nowhere")))
+                .when(countryStore).findByCountryCodes(List.of(-1, 2_000_000_000));
+
+        assertThat(countryReplica.findByCountryCode(2_000_000_000)).hasValue(new Country(2_000_000_000, "Atlantis", "Poseidonis"));
+        assertThat(countryReplica.findByCountryCode(1_000_000)).isEmpty();
+        assertThat(countryReplica.holds(44)).isTrue();
+        assertThat(countryReplica.holds(45)).isTrue();
+        assertThat(countryReplica.holds(1_000_000)).isTrue();
+        assertThat(countryReplica.holds(2_000_000_000)).isFalse();
+        assertThat(countryReplica.findAll()).extracting(Country::getCountryCode).containsExactly(-1, 44, 2_000_000_000);
+        assertThat(countryReplica.offHeapBytesPerRow()).isLessThan(1000);
+
+        countryReplica.remove(-1);
+        countryReplica.put(new Country(-2, "Elsewhere", "Elsewhere"));
+        assertThat(countryReplica.findByCountryCode(-1)).isEmpty();
+    }
+
+    @Test
+    void 読み込み中に書き込まれた国を失わないこと() {
+        CountryReplica loading = new CountryReplica(true, 99999, countryStore);
+        AtomicReference<CompletableFuture<Void>> write = new AtomicReference<>();
+        doAnswer(invocation -> {
+            write.set(CompletableFuture.runAsync(() -> loading.put(new Country(420, "The Czech Republic", "Prague"))));
+            Thread.sleep(100);
+            return List.of(new Country(44, "United Kingdom", "London"));
+        }).when(countryStore).findAll();
+
+        loading.load();
+        write.get().join();
+
+        assertThat(loading.findAll()).containsExactly(
+                new Country(44, "United Kingdom", "London"),
+                new Country(420, "The Czech Republic", "Prague"));
+    }
+
+    @Test
+    void 無効の場合は読み込まないこと() {
+        CountryReplica disabled = new CountryReplica(false, 99999, countryStore);
+        disabled.load();
+
+        assertThat(disabled.isEnabled()).isFalse();
+    }
+}
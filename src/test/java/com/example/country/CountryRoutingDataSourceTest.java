@@ -0,0 +1,191 @@
+package com.example.country;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import jakarta.servlet.http.Cookie;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+
+@ExtendWith(MockitoExtension.class)
+class CountryRoutingDataSourceTest {
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource replica0;
+
+    @Mock
+    private DataSource replica1;
+
+    private final AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+
+    private final Map<DataSource, Integer> activeConnections = new HashMap<>();
+
+    private CountryDataSourceProperties.Routing routing;
+
+    private final Map<Connection, DataSource> connections = new HashMap<>();
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        for (DataSource dataSource : List.of(primary, replica0, replica1)) {
+            Connection connection = mock(Connection.class);
+            lenient().doReturn(connection).when(dataSource).getConnection();
+            connections.put(connection, dataSource);
+        }
+        routing = new CountryDataSourceProperties.Routing();
+        routing.setMaxReplicaLag(Duration.ofSeconds(5));
+        routing.setReadAfterWriteWindow(Duration.ofSeconds(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        CountryRoutingDataSource.clearRead();
+        TransactionSynchronizationManager.clear();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void 読み取りはレプリカに順番に振り分けること() throws SQLException {
+        CountryRoutingDataSource routingDataSource = newRoutingDataSource();
+        CountryRoutingDataSource.markRead();
+
+        assertThat(target(routingDataSource)).isSameAs(replica0);
+        assertThat(target(routingDataSource)).isSameAs(replica1);
+        assertThat(target(routingDataSource)).isSameAs(replica0);
+    }
+
+    @Test
+    void 書き込みはプライマリに送ること() throws SQLException {
+        CountryRoutingDataSource routingDataSource = newRoutingDataSource();
+
+        assertThat(target(routingDataSource)).isSameAs(primary);
+    }
+
+    @Test
+    void 読み取り専用トランザクションではレプリカを使い読み書きトランザクションではプライマリを使うこと() throws SQLException {
+        CountryRoutingDataSource routingDataSource = newRoutingDataSource();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertThat(target(routingDataSource)).isSameAs(replica0);
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        CountryRoutingDataSource.markRead();
+        assertThat(target(routingDataSource)).isSameAs(primary);
+    }
+
+    @Test
+    void 書き込んだクライアントの読み取りは一定時間プライマリに送ること() throws SQLException {
+        CountryRoutingDataSource routingDataSource = newRoutingDataSource();
+        CountryRoutingDataSource.markRead();
+
+        MockHttpServletResponse writeResponse = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest(), writeResponse));
+        routingDataSource.recordWrite();
+        assertThat(target(routingDataSource)).isSameAs(primary);
+        Cookie lastWrite = writeResponse.getCookie(CountryRoutingDataSource.LAST_WRITE_COOKIE);
+        assertThat(lastWrite).isNotNull();
+
+        clock.addAndGet(500);
+        MockHttpServletRequest nextRequest = new MockHttpServletRequest();
+        nextRequest.setCookies(lastWrite);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(nextRequest, new MockHttpServletResponse()));
+        assertThat(target(routingDataSource)).isSameAs(primary);
+
+        clock.addAndGet(600);
+        assertThat(target(routingDataSource)).isSameAs(replica0);
+    }
+
+    @Test
+    void 他のクライアントの書き込みでは読み取りをプライマリに送らないこと() throws SQLException {
+        CountryRoutingDataSource routingDataSource = newRoutingDataSource();
+        CountryRoutingDataSource.markRead();
+
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest(), new MockHttpServletResponse()));
+        routingDataSource.recordWrite();
+
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest(), new MockHttpServletResponse()));
+        assertThat(target(routingDataSource)).isSameAs(replica0);
+
+        RequestContextHolder.resetRequestAttributes();
+        routingDataSource.recordWrite();
+        assertThat(target(routingDataSource)).isSameAs(replica1);
+    }
+
+    @Test
+    void 遅延が許容値を超えたレプリカは使わないこと() throws SQLException {
+        CountryRoutingDataSource routingDataSource = newRoutingDataSource();
+        CountryRoutingDataSource.markRead();
+
+        routingDataSource.updateReplicaLag(0, Duration.ofSeconds(30));
+        assertThat(target(routingDataSource)).isSameAs(replica1);
+        assertThat(target(routingDataSource)).isSameAs(replica1);
+
+        routingDataSource.updateReplicaLag(1, null);
+        assertThat(target(routingDataSource)).isSameAs(primary);
+
+        routingDataSource.updateReplicaLag(0, Duration.ZERO);
+        assertThat(target(routingDataSource)).isSameAs(replica0);
+    }
+
+    @Test
+    void 遅延を確認する前のレプリカは使わないこと() throws SQLException {
+        CountryRoutingDataSource routingDataSource = new CountryRoutingDataSource(primary, List.of(replica0, replica1), routing,
+                dataSource -> 0, clock::get);
+        CountryRoutingDataSource.markRead();
+
+        assertThat(target(routingDataSource)).isSameAs(primary);
+
+        routingDataSource.updateReplicaLag(1, Duration.ZERO);
+        assertThat(target(routingDataSource)).isSameAs(replica1);
+    }
+
+    @Test
+    void 最小接続数の振り分けでは使用中の接続が最も少ないレプリカを選ぶこと() throws SQLException {
+        routing.setBalancing(CountryDataSourceProperties.Balancing.LEAST_BUSY);
+        CountryRoutingDataSource routingDataSource = newRoutingDataSource();
+        CountryRoutingDataSource.markRead();
+
+        activeConnections.put(replica0, 4);
+        activeConnections.put(replica1, 1);
+        assertThat(target(routingDataSource)).isSameAs(replica1);
+
+        activeConnections.put(replica1, 7);
+        assertThat(target(routingDataSource)).isSameAs(replica0);
+    }
+
+    private DataSource target(CountryRoutingDataSource routingDataSource) throws SQLException {
+        Connection connection = routingDataSource.getConnection();
+        return connections.get(connection);
+    }
+
+    private CountryRoutingDataSource newRoutingDataSource() {
+        CountryRoutingDataSource routingDataSource = new CountryRoutingDataSource(primary, List.of(replica0, replica1), routing,
+                dataSource -> activeConnections.getOrDefault(dataSource, 0), clock::get);
+        routingDataSource.updateReplicaLag(0, Duration.ZERO);
+        routingDataSource.updateReplicaLag(1, Duration.ZERO);
+        return routingDataSource;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.country;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringJUnitConfig
+class CountryServiceCacheTest {
+
+    @Configuration
+    @EnableCaching
+    @Import({CountryService.class, CountryWriteLocks.class})
+    static class CacheConfig {
+        @Bean
+        CacheManager cacheManager() {
+            CaffeineCacheManager cacheManager = new CaffeineCacheManager("countries");
+            cacheManager.setCaffeine(Caffeine.newBuilder().maximumSize(100));
+            return cacheManager;
+        }
+    }
+
+    @Autowired
+    CountryService countryService;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @MockBean
+    CountryStore countryStore;
+
+    @MockBean
+    CountryReplica countryReplica;
+
+    @MockBean
+    CountryPrefixIndex countryPrefixIndex;
+
+    @MockBean
+    CountryBulkWriter countryBulkWriter;
+
+    @MockBean
+    CountryWriteBehindBuffer countryWriteBehindBuffer;
+
+    @MockBean
+    CountryChangeStream countryChangeStream;
+
+    @MockBean
+    CountrySingleFlight countrySingleFlight;
+
+    @BeforeEach
+    void clearCache() {
+        cacheManager.getCache("countries").clear();
+    }
+
+    @Test
+    void 同じ国番号を2回取得した場合はマッパーを1回だけ呼ぶこと() {
+        doReturn(Optional.of(new Country(33, "France", "Paris"))).when(countryStore).findByCountryCode(33);
+
+        countryService.findByCountryCode(33);
+        Country actual = countryService.findByCountryCode(33);
+        assertThat(actual).isEqualTo(new Country(33, "France", "Paris"));
+
+        verify(countryStore, times(1)).findByCountryCode(33);
+    }
+
+    @Test
+    void 存在しない国番号はキャッシュしないこと() {
+        doReturn(Optional.empty()).when(countryStore).findByCountryCode(50);
+
+        assertThatThrownBy(() -> countryService.findByCountryCode(50)).isInstanceOf(CountryNotFoundException.class);
+        assertThatThrownBy(() -> countryService.findByCountryCode(50)).isInstanceOf(CountryNotFoundException.class);
+
+        verify(countryStore, times(2)).findByCountryCode(50);
+    }
+
+    @Test
+    void 更新した国はキャッシュから更新後の値を返すこと() {
+        doReturn(Optional.of(new Country(31, "Netherlands", "Amsterdam"))).when(countryStore).findByCountryCode(31);
+        doReturn(1).when(countryStore).update(new Country(31, "Holland", "Rotterdam"));
+        countryService.findByCountryCode(31);
+
+        countryService.update(31, "Holland", "Rotterdam");
+
+        Country actual = countryService.findByCountryCode(31);
+        assertThat(actual).isEqualTo(new Country(31, "Holland", "Rotterdam"));
+    }
+
+    @Test
+    void 削除した国はキャッシュから取り除かれること() {
+        doReturn(Optional.of(new Country(49, "Germany", "Berlin"))).when(countryStore).findByCountryCode(49);
+        doReturn(1).when(countryStore).delete(49);
+        countryService.findByCountryCode(49);
+
+        countryService.delete(49);
+
+        assertThat(cacheManager.getCache("countries").get(49)).isNull();
+    }
+
+    @Test
+    void v2で書き込んだ国はキャッシュに反映されること() {
+        doReturn(Optional.of(new Country(31, "Netherlands", "Amsterdam"))).when(countryStore).findByCountryCode(31);
+        countryService.findByCountryCode(31);
+
+        countryService.recordWrite(CountryChangeEvent.UPDATE, new Country(31, "Holland", "Rotterdam"));
+        assertThat(countryService.findByCountryCode(31)).isEqualTo(new Country(31, "Holland", "Rotterdam"));
+
+        countryService.recordDelete(31);
+        assertThat(cacheManager.getCache("countries").get(31)).isNull();
+    }
+}
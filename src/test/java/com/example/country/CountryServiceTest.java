@@ -1,18 +1,35 @@
 package com.example.country;
 
+import org.apache.ibatis.cursor.Cursor;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -23,7 +40,31 @@ class CountryServiceTest {
     private CountryService countryService;
 
     @Mock
-    private CountryMapper countryMapper;
+    private CountryStore countryStore;
+
+    @Mock
+    private CountryReplica countryReplica;
+
+    @Mock
+    private CountryPrefixIndex countryPrefixIndex;
+
+    @Mock
+    private CountryBulkWriter countryBulkWriter;
+
+    @Mock
+    private CountryWriteBehindBuffer countryWriteBehindBuffer;
+
+    @Mock
+    private CountryChangeStream countryChangeStream;
+
+    @Mock
+    private CountrySingleFlight countrySingleFlight;
+
+    @Spy
+    private CountryWriteLocks countryWriteLocks = new CountryWriteLocks();
+
+    @Mock
+    private Cursor<Country> cursor;
 
     @Test
     public void 存在する国番号と国名と都市名を全て返すこと() {
@@ -33,91 +74,117 @@ class CountryServiceTest {
                 new Country(34, "Spain", "Madrid"),
                 new Country(44, "the United Kingdom of Great Britain and Northern Ireland", "London"),
                 new Country(49, "Germany", "Berlin"));
-        doReturn(countryList).when(countryMapper).findAll();
+        doReturn(countryList).when(countryStore).findAll();
 
         List<Country> actual = countryService.findAll();
         assertThat(actual).isEqualTo(countryList);
 
-        verify(countryMapper, times(1)).findAll();
+        verify(countryStore, times(1)).findAll();
+    }
+
+    @Test
+    public void 全ての国をカーソルから1件ずつ渡すこと() throws Exception {
+        List<Country> countryList = List.of(
+                new Country(33, "France", "Paris"),
+                new Country(49, "Germany", "Berlin"));
+        doReturn(countryList.iterator()).when(cursor).iterator();
+        doCallRealMethod().when(cursor).forEach(any());
+        doReturn(cursor).when(countryStore).streamAll();
+
+        List<Country> actual = new ArrayList<>();
+        countryService.exportAll(actual::add);
+        assertThat(actual).isEqualTo(countryList);
+
+        verify(cursor, times(1)).close();
     }
 
     @Test
     public void 指定した国番号が存在する場合はその国番号と国名と都市名を返すこと() {
-        doReturn(Optional.of(new Country(44, "the United Kingdom of Great Britain and Northern Ireland", "London"))).when(countryMapper).findByCountryCode(44);
+        doReturn(Optional.of(new Country(44, "the United Kingdom of Great Britain and Northern Ireland", "London"))).when(countryStore).findByCountryCode(44);
 
         Country actual = countryService.findByCountryCode(44);
         assertThat(actual).isEqualTo(new Country(44, "the United Kingdom of Great Britain and Northern Ireland", "London"));
 
-        verify(countryMapper, times(1)).findByCountryCode(44);
+        verify(countryStore, times(1)).findByCountryCode(44);
     }
 
     @Test
     public void 指定した国番号が存在しない場合は例外をスローすること() {
-        doReturn(Optional.empty()).when(countryMapper).findByCountryCode(50);
+        doReturn(Optional.empty()).when(countryStore).findByCountryCode(50);
 
         assertThatThrownBy(() -> countryService.findByCountryCode(50)).isInstanceOf(CountryNotFoundException.class);
 
-        verify(countryMapper, times(1)).findByCountryCode(50);
+        verify(countryStore, times(1)).findByCountryCode(50);
     }
 
     @Test
     public void 指定した国名の頭文字で存在する国番号と国名と都市名を返すこと() {
-        doReturn(List.of(new Country(49, "Germany", "Berlin"))).when(countryMapper).findByCountryStartingWith("g");
+        doReturn(List.of(new Country(49, "Germany", "Berlin"))).when(countryStore).findByCountryStartingWith("g");
 
         List<Country> actual = countryService.findByCountry("g");
         assertThat(actual).isEqualTo(List.of(new Country(49, "Germany", "Berlin")));
 
-        verify(countryMapper, times(1)).findByCountryStartingWith("g");
+        verify(countryStore, times(1)).findByCountryStartingWith("g");
     }
 
     @Test
     public void 指定した国名の頭文字で存在しない国名を検索し何も返さないこと() {
-        doReturn(Collections.emptyList()).when(countryMapper).findByCountryStartingWith("k");
+        doReturn(Collections.emptyList()).when(countryStore).findByCountryStartingWith("k");
 
         List<Country> actual = countryService.findByCountry("k");
         assertThat(actual).isEmpty();
 
-        verify(countryMapper, times(1)).findByCountryStartingWith("k");
+        verify(countryStore, times(1)).findByCountryStartingWith("k");
     }
 
     @Test
     public void 指定した都市名の頭文字で存在する国番号と国名と都市名を返すこと() {
-        doReturn(List.of(new Country(34, "Spain", "Madrid"))).when(countryMapper).findByCityStartingWith("m");
+        doReturn(List.of(new Country(34, "Spain", "Madrid"))).when(countryStore).findByCityStartingWith("m");
 
         List<Country> actual = countryService.findByCity("m");
         assertThat(actual).isEqualTo(List.of(new Country(34, "Spain", "Madrid")));
 
-        verify(countryMapper, times(1)).findByCityStartingWith("m");
+        verify(countryStore, times(1)).findByCityStartingWith("m");
     }
 
     @Test
     public void 指定した都市名の頭文字で存在しない都市名を検索し何も返さないこと() {
-        doReturn(Collections.emptyList()).when(countryMapper).findByCityStartingWith("y");
+        doReturn(Collections.emptyList()).when(countryStore).findByCityStartingWith("y");
 
         List<Country> actual = countryService.findByCity("y");
         assertThat(actual).isEmpty();
 
-        verify(countryMapper, times(1)).findByCityStartingWith("y");
+        verify(countryStore, times(1)).findByCityStartingWith("y");
     }
 
     @Test
     public void 国名の頭文字のみ指定した場合それに該当する国番号と国名と都市名を返すこと() {
-        doReturn(List.of(new Country(49, "Germany", "Berlin"))).when(countryMapper).findByCountryStartingWith("g");
+        doReturn(List.of(new Country(49, "Germany", "Berlin"))).when(countryStore).findByCountryStartingWith("g");
 
         List<Country> actual = countryService.getCountries("g","");
         assertThat(actual).isEqualTo(List.of(new Country(49, "Germany", "Berlin")));
 
-        verify(countryMapper, times(1)).findByCountryStartingWith("g");
+        verify(countryStore, times(1)).findByCountryStartingWith("g");
     }
 
     @Test
     public void 都市名の頭文字のみ指定した場合それに該当する国番号と国名と都市名を返すこと() {
-        doReturn(List.of(new Country(34, "Spain", "Madrid"))).when(countryMapper).findByCityStartingWith("m");
+        doReturn(List.of(new Country(34, "Spain", "Madrid"))).when(countryStore).findByCityStartingWith("m");
 
         List<Country> actual = countryService.getCountries("","m");
         assertThat(actual).isEqualTo(List.of(new Country(34, "Spain", "Madrid")));
 
-        verify(countryMapper, times(1)).findByCityStartingWith("m");
+        verify(countryStore, times(1)).findByCityStartingWith("m");
+    }
+
+    @Test
+    public void 国名と都市名の頭文字を両方指定した場合両方に該当する国番号と国名と都市名を返すこと() {
+        doReturn(List.of(new Country(31, "Netherlands", "Amsterdam"))).when(countryStore).findByCountryAndCityStartingWith("n", "a");
+
+        List<Country> actual = countryService.getCountries("n","a");
+        assertThat(actual).isEqualTo(List.of(new Country(31, "Netherlands", "Amsterdam")));
+
+        verify(countryStore, times(1)).findByCountryAndCityStartingWith("n", "a");
     }
 
     @Test
@@ -128,71 +195,391 @@ class CountryServiceTest {
                 new Country(34, "Spain", "Madrid"),
                 new Country(44, "the United Kingdom of Great Britain and Northern Ireland", "London"),
                 new Country(49, "Germany", "Berlin"));
-        doReturn(countryList).when(countryMapper).findAll();
+        doReturn(countryList).when(countryStore).findAll();
 
         List<Country> actual = countryService.getCountries("","");
         assertThat(actual).isEqualTo(countryList);
 
-        verify(countryMapper, times(1)).findAll();
+        verify(countryStore, times(1)).findAll();
     }
 
     @Test
-    public void 新たな国番号と国名と都市名を登録すること() {
-        doReturn(Optional.empty()).when(countryMapper).findByCountryCode(32);
+    public void レプリカやインデックスが有効な場合は版をデータベースに問い合わせないこと() {
+        CountryVersion replicaVersion = new CountryVersion(3, LocalDateTime.of(2024, 5, 1, 12, 0));
+        CountryVersion indexVersion = new CountryVersion(1, LocalDateTime.of(2024, 5, 1, 12, 1));
+        doReturn(true).when(countryReplica).isEnabled();
+        doReturn(replicaVersion).when(countryReplica).version();
+        doReturn(true).when(countryPrefixIndex).isEnabled();
+        doReturn(indexVersion).when(countryPrefixIndex).version("h", "");
+
+        assertThat(countryService.getCountriesVersion("", "")).isEqualTo(replicaVersion);
+        assertThat(countryService.getCountriesVersion("h", "")).isEqualTo(indexVersion);
+
+        verify(countryStore, never()).findVersion(any(), any());
+    }
+
+    @Test
+    public void 遅延書き込みの保留中の更新があれば版を変えること() {
+        CountryVersion stored = new CountryVersion(3, LocalDateTime.of(2024, 5, 1, 12, 0));
+        doReturn(stored).when(countryStore).findVersion("", "");
+        doReturn(true).when(countryWriteBehindBuffer).isEnabled();
+        doReturn(null, LocalDateTime.of(2024, 5, 1, 3, 0, 0, 1_000), LocalDateTime.of(2024, 5, 1, 3, 0, 0, 2_000))
+                .when(countryWriteBehindBuffer).getPendingChangedAt();
+
+        CountryVersion nothingPending = countryService.getCountriesVersion("", "");
+        CountryVersion pending = countryService.getCountriesVersion("", "");
+        CountryVersion pendingAgain = countryService.getCountriesVersion("", "");
+
+        assertThat(nothingPending.toETag()).isEqualTo(stored.toETag());
+        assertThat(pending.toETag()).isNotEqualTo(stored.toETag());
+        assertThat(pendingAgain.toETag()).isNotIn(stored.toETag(), pending.toETag());
+    }
+
+    @Test
+    public void ページには遅延書き込みの保留中の更新を反映すること() {
+        Country suomi = new Country(358, "Suomi", "Helsinki");
+        Country fiji = new Country(33, "Fiji", "Suva");
+        doReturn(List.of(
+                new Country(298, "Faroe Islands", "Torshavn"),
+                new Country(358, "Finland", "Helsinki"),
+                new Country(33, "France", "Paris"))).when(countryStore).findByCountryStartingWithAfter("F", "", Integer.MIN_VALUE, 3);
+        doReturn(List.of()).when(countryStore).findByCountryStartingWithAfter("F", "France", 33, 3);
+        doReturn(true).when(countryWriteBehindBuffer).isEnabled();
+        doReturn(2).when(countryWriteBehindBuffer).size();
+        doReturn(Optional.empty()).when(countryWriteBehindBuffer).find(298);
+        doReturn(Optional.of(suomi)).when(countryWriteBehindBuffer).find(358);
+        doReturn(Optional.of(fiji)).when(countryWriteBehindBuffer).find(33);
+        doAnswer(invocation -> Stream.of(suomi, fiji).filter(invocation.getArgument(0)).toList())
+                .when(countryWriteBehindBuffer).findAll(any());
+
+        CountryPage actual = countryService.getCountryPage("F", "", null, 2);
+        assertThat(actual).isEqualTo(new CountryPage(List.of(new Country(298, "Faroe Islands", "Torshavn"), fiji), null));
+    }
+
+    @Test
+    public void 件数より多くの国が存在する場合は次のページのカーソルを返すこと() {
+        doReturn(List.of(
+                new Country(33, "France", "Paris"),
+                new Country(34, "Spain", "Madrid"),
+                new Country(44, "United Kingdom", "London"))).when(countryStore).findAllAfter(Integer.MIN_VALUE, 3);
+
+        CountryPage actual = countryService.getCountryPage("", "", null, 2);
+        assertThat(actual).isEqualTo(new CountryPage(
+                List.of(new Country(33, "France", "Paris"), new Country(34, "Spain", "Madrid")),
+                new CountryCursor(34, null)));
+
+        verify(countryStore, times(1)).findAllAfter(Integer.MIN_VALUE, 3);
+    }
+
+    @Test
+    public void 国名の頭文字で検索したページのカーソルは国名と国番号を持つこと() {
+        doReturn(List.of(
+                new Country(358, "Finland", "Helsinki"),
+                new Country(33, "France", "Paris"))).when(countryStore).findByCountryStartingWithAfter("f", "", Integer.MIN_VALUE, 2);
+
+        CountryPage actual = countryService.getCountryPage("f", "", null, 1);
+        assertThat(actual).isEqualTo(new CountryPage(List.of(new Country(358, "Finland", "Helsinki")), new CountryCursor(358, "Finland")));
+    }
+
+    @Test
+    public void 最後のページではカーソルを返さないこと() {
+        doReturn(List.of(new Country(36, "Hungary", "Budapest"))).when(countryStore).findByCityStartingWithAfter("b", "Berlin", 49, 3);
+
+        CountryPage actual = countryService.getCountryPage("", "b", new CountryCursor(49, "Berlin"), 2);
+        assertThat(actual).isEqualTo(new CountryPage(List.of(new Country(36, "Hungary", "Budapest")), null));
+    }
+
+    @Test
+    public void 複数の国番号をまとめて取得し存在しない国番号を返すこと() {
+        doReturn(List.of(new Country(49, "Germany", "Berlin"), new Country(33, "France", "Paris")))
+                .when(countryStore).findByCountryCodes(List.of(33, 999, 49));
+
+        CountryMultiGetResult actual = countryService.findByCountryCodes(List.of(33, 999, 49, 33));
+        assertThat(actual.getCountries()).containsExactly(new Country(33, "France", "Paris"), new Country(49, "Germany", "Berlin"));
+        assertThat(actual.getMissing()).containsExactly(999);
+    }
+
+    @Test
+    public void 多数の国番号はIN句の上限件数ごとに分けて問い合わせること() {
+        List<Integer> countryCodes = new ArrayList<>();
+        for (int countryCode = 1; countryCode <= CountryService.MULTI_GET_CHUNK_SIZE * 2 + 1; countryCode++) {
+            countryCodes.add(countryCode);
+        }
+        doReturn(List.of(new Country(1, "A", "A"))).when(countryStore).findByCountryCodes(countryCodes.subList(0, CountryService.MULTI_GET_CHUNK_SIZE));
+        doReturn(Collections.emptyList()).when(countryStore).findByCountryCodes(countryCodes.subList(CountryService.MULTI_GET_CHUNK_SIZE, CountryService.MULTI_GET_CHUNK_SIZE * 2));
+        doReturn(List.of(new Country(CountryService.MULTI_GET_CHUNK_SIZE * 2 + 1, "B", "B")))
+                .when(countryStore).findByCountryCodes(List.of(CountryService.MULTI_GET_CHUNK_SIZE * 2 + 1));
+
+        CountryMultiGetResult actual = countryService.findByCountryCodes(countryCodes);
+        assertThat(actual.getCountries()).extracting(Country::getCountryCode).containsExactly(1, CountryService.MULTI_GET_CHUNK_SIZE * 2 + 1);
+        assertThat(actual.getMissing()).hasSize(CountryService.MULTI_GET_CHUNK_SIZE * 2 - 1);
+
+        verify(countryStore, times(3)).findByCountryCodes(any());
+    }
+
+    @Test
+    public void レプリカにない国番号だけをまとめてデータベースに問い合わせること() {
+        doReturn(true).when(countryReplica).isEnabled();
+        doReturn(true).when(countryReplica).holds(33);
+        doReturn(true).when(countryReplica).holds(999);
+        doReturn(false).when(countryReplica).holds(-1);
+        doReturn(false).when(countryReplica).holds(2_000_000_000);
+        doReturn(Optional.of(new Country(33, "France", "Paris"))).when(countryReplica).findByCountryCode(33);
+        doReturn(List.of(new Country(2_000_000_000, "Atlantis", "Poseidonis")))
+                .when(countryStore).findByCountryCodes(List.of(-1, 2_000_000_000));
+
+        CountryMultiGetResult actual = countryService.findByCountryCodes(List.of(33, -1, 999, 2_000_000_000));
+        assertThat(actual.getCountries()).containsExactly(new Country(33, "France", "Paris"), new Country(2_000_000_000, "Atlantis", "Poseidonis"));
+        assertThat(actual.getMissing()).containsExactly(-1, 999);
+
+        verify(countryStore, times(1)).findByCountryCodes(any());
+        verify(countryReplica, never()).findByCountryCode(-1);
+        verify(countryReplica, never()).findByCountryCode(2_000_000_000);
+    }
 
+    @Test
+    public void 新たな国番号と国名と都市名を登録すること() {
         Country actual = countryService.insert(32, "Belgium", "Brussels");
         assertThat(actual).isEqualTo(new Country(32, "Belgium", "Brussels"));
 
-        verify(countryMapper, times(1)).insert(new Country (32, "Belgium", "Brussels"));
+        verify(countryStore, times(1)).insert(new Country (32, "Belgium", "Brussels"));
+        verify(countryStore, never()).findByCountryCode(32);
     }
 
     @Test
     public void 登録しようとした国番号が既に存在する場合は例外をスローすること() {
-        doReturn(Optional.of(new Country(33, "France", "Paris"))).when(countryMapper).findByCountryCode(33);
+        doThrow(new DuplicateKeyException("Duplicate entry '33' for key 'countries.PRIMARY'")).when(countryStore).insert(new Country(33, "France", "Paris"));
 
         assertThatThrownBy(() -> countryService.insert(33, "France", "Paris")).isInstanceOf(CountryDuplicatedException.class);
 
-        verify(countryMapper, times(1)).findByCountryCode(33);
+        verify(countryStore, times(1)).insert(new Country(33, "France", "Paris"));
+        verify(countryStore, never()).findByCountryCode(33);
     }
 
     @Test
     public void 国名と都市名を更新しようと指定した国番号が存在する場合は国名と都市名を更新すること() {
-        Country existingCountry = new Country(31, "Netherlands", "Amsterdam");
-        doReturn(Optional.of(existingCountry)).when(countryMapper).findByCountryCode(31);
-
         Country updatedCountry = new Country(31, "Holland", "Rotterdam");
+        doReturn(1).when(countryStore).update(updatedCountry);
+
         Country actual = countryService.update(31, "Holland", "Rotterdam");
         assertThat(actual).isEqualTo(updatedCountry);
 
-        verify(countryMapper, times(1)).update(updatedCountry);
+        verify(countryStore, times(1)).update(updatedCountry);
+        verify(countryStore, never()).findByCountryCode(31);
+        verify(countryChangeStream, times(1)).publish(CountryChangeEvent.UPDATE, 31, "Holland", "Rotterdam");
     }
 
     @Test
     public void 国名と都市名を更新しようと指定した国番号が存在しない場合は例外をスローすること() {
-        doReturn(Optional.empty()).when(countryMapper).findByCountryCode(351);
+        doReturn(0).when(countryStore).update(new Country(351, "Portugal", "Lisbon"));
 
         assertThatThrownBy(() -> countryService.update(351, "Portugal", "Lisbon")).isInstanceOf(CountryNotFoundException.class);
 
-        verify(countryMapper, times(1)).findByCountryCode(351);
+        verify(countryStore, times(1)).update(new Country(351, "Portugal", "Lisbon"));
+        verify(countryStore, never()).findByCountryCode(351);
+    }
+
+    @Test
+    public void 書き込み遅延が有効な場合は更新をバッファに積みUPDATEを発行しないこと() {
+        doReturn(true).when(countryWriteBehindBuffer).isEnabled();
+        doReturn(Optional.empty()).when(countryWriteBehindBuffer).find(31);
+        doReturn(Optional.of(new Country(31, "Netherlands", "Amsterdam"))).when(countryStore).findByCountryCode(31);
+
+        Country actual = countryService.update(31, "Holland", "Rotterdam");
+        assertThat(actual).isEqualTo(new Country(31, "Holland", "Rotterdam"));
+
+        verify(countryWriteBehindBuffer, times(1)).put(new Country(31, "Holland", "Rotterdam"));
+        verify(countryStore, never()).update(any());
+    }
+
+    @Test
+    public void 書き込み遅延が有効な場合も存在しない国番号の更新は例外をスローすること() {
+        doReturn(true).when(countryWriteBehindBuffer).isEnabled();
+        doReturn(Optional.empty()).when(countryWriteBehindBuffer).find(351);
+        doReturn(Optional.empty()).when(countryStore).findByCountryCode(351);
+
+        assertThatThrownBy(() -> countryService.update(351, "Portugal", "Lisbon")).isInstanceOf(CountryNotFoundException.class);
+
+        verify(countryWriteBehindBuffer, never()).put(any());
+    }
+
+    @Test
+    public void 書き込み遅延が有効な場合は一覧に未反映の更新を重ねること() {
+        doReturn(true).when(countryWriteBehindBuffer).isEnabled();
+        List<Country> countries = List.of(new Country(31, "Netherlands", "Amsterdam"));
+        doReturn(countries).when(countryStore).findByCountryStartingWith("n");
+        doReturn(List.of(new Country(31, "Holland", "Rotterdam"))).when(countryWriteBehindBuffer).overlay(any(), any());
+
+        List<Country> actual = countryService.getCountries("n", "");
+        assertThat(actual).containsExactly(new Country(31, "Holland", "Rotterdam"));
+
+        verify(countryWriteBehindBuffer, times(1)).overlay(any(), any());
     }
 
     @Test
     public void 削除しようと指定した国番号が存在する場合は削除すること() {
-        Country existingCountry = new Country(49, "Germany", "Berlin");
-        doReturn(Optional.of(existingCountry)).when(countryMapper).findByCountryCode(49);
+        doReturn(1).when(countryStore).delete(49);
 
-        Country actual = countryService.delete(49);
-        assertThat(actual).isEqualTo(existingCountry);
+        countryService.delete(49);
 
-        verify(countryMapper, times(1)).delete(existingCountry);
+        verify(countryWriteBehindBuffer, times(1)).discard(49);
+        verify(countryStore, times(1)).delete(49);
+        verify(countryStore, never()).findByCountryCode(49);
     }
 
     @Test
     public void 削除しようと指定した国番号が存在しない場合は例外をスローすること() {
-        doReturn(Optional.empty()).when(countryMapper).findByCountryCode(352);
+        doReturn(0).when(countryStore).delete(352);
 
         assertThatThrownBy(() -> countryService.delete(352)).isInstanceOf(CountryNotFoundException.class);
 
-        verify(countryMapper, times(1)).findByCountryCode(352);
+        verify(countryStore, times(1)).delete(352);
+        verify(countryStore, never()).findByCountryCode(352);
+        verify(countryChangeStream, never()).publish(any(), anyInt(), any(), any());
+    }
+
+    @Test
+    public void 更新する値が空や長すぎる場合は書き込まずに例外をスローすること() {
+        assertThatThrownBy(() -> countryService.update(31, "Netherlands", null))
+                .isInstanceOf(InvalidCountryException.class)
+                .hasMessage("city is required");
+        assertThatThrownBy(() -> countryService.update(31, "N".repeat(101), "Amsterdam"))
+                .isInstanceOf(InvalidCountryException.class)
+                .hasMessage("country must be at most 100 characters");
+
+        verify(countryWriteBehindBuffer, never()).put(any());
+        verify(countryStore, never()).update(any());
+    }
+
+    @Test
+    public void 登録する値が空や長すぎる場合は書き込まずに例外をスローすること() {
+        assertThatThrownBy(() -> countryService.insert(31, null, "Amsterdam"))
+                .isInstanceOf(InvalidCountryException.class)
+                .hasMessage("country is required");
+        assertThatThrownBy(() -> countryService.insert(31, "Netherlands", "A".repeat(101)))
+                .isInstanceOf(InvalidCountryException.class)
+                .hasMessage("city must be at most 100 characters");
+
+        verify(countryStore, never()).insert(any());
+        verify(countryReplica, never()).put(any());
+    }
+
+    @Test
+    public void 書き込めずに捨てられた更新はデータベースの値に戻すこと() {
+        doReturn(Optional.empty()).when(countryWriteBehindBuffer).find(44);
+        doReturn(Optional.of(new Country(44, "United Kingdom", "London"))).when(countryStore).findByCountryCode(44);
+        doReturn(Optional.empty()).when(countryWriteBehindBuffer).find(49);
+        doReturn(Optional.empty()).when(countryStore).findByCountryCode(49);
+
+        countryService.onUpdateDropped(new CountryUpdateDroppedEvent(44));
+        countryService.onUpdateDropped(new CountryUpdateDroppedEvent(49));
+
+        verify(countryReplica, times(1)).put(new Country(44, "United Kingdom", "London"));
+        verify(countryChangeStream, times(1)).publish(CountryChangeEvent.UPDATE, 44, "United Kingdom", "London");
+        verify(countryReplica, times(1)).remove(49);
+        verify(countryChangeStream, times(1)).publish(CountryChangeEvent.DELETE, 49, null, null);
+    }
+
+    @Test
+    public void 遅延書き込みが有効な場合はまとめた書き込みを保留中の更新と調整して実行すること() {
+        List<CountryBulkItem> items = List.of(new CountryBulkItem(CountryBulkItem.Operation.UPDATE, 44, "United Kingdom", "London"));
+        List<CountryBulkResult> results = List.of(new CountryBulkResult(CountryBulkItem.Operation.UPDATE, 44, 200, "country updated"));
+        doReturn(true).when(countryWriteBehindBuffer).isEnabled();
+        doReturn(results).when(countryWriteBehindBuffer).writeThrough(items);
+
+        assertThat(countryService.bulk(items)).isEqualTo(results);
+
+        verify(countryBulkWriter, never()).write(any());
+        verify(countryWriteBehindBuffer, never()).discard(anyInt());
+    }
+
+    @Test
+    public void まとめて実行した結果のうち成功したものだけをレプリカに反映すること() {
+        List<CountryBulkItem> items = List.of(
+                new CountryBulkItem(CountryBulkItem.Operation.INSERT, 32, "Belgium", "Brussels"),
+                new CountryBulkItem(CountryBulkItem.Operation.DELETE, 49, null, null),
+                new CountryBulkItem(CountryBulkItem.Operation.UPDATE, 351, "Portugal", "Lisbon"));
+        List<CountryBulkResult> results = List.of(
+                new CountryBulkResult(CountryBulkItem.Operation.INSERT, 32, 201, "country created"),
+                new CountryBulkResult(CountryBulkItem.Operation.DELETE, 49, 200, "country deleted"),
+                new CountryBulkResult(CountryBulkItem.Operation.UPDATE, 351, 404, "Country with code 351 not found"));
+        doReturn(results).when(countryBulkWriter).write(items);
+
+        List<CountryBulkResult> actual = countryService.bulk(items);
+        assertThat(actual).isEqualTo(results);
+
+        verify(countryReplica, times(1)).put(new Country(32, "Belgium", "Brussels"));
+        verify(countryReplica, times(1)).remove(49);
+        verify(countryReplica, never()).put(new Country(351, "Portugal", "Lisbon"));
+    }
+
+    @Test
+    public void 同じ国への書き込みはデータベースへの書き込みからレプリカへの反映までを一つずつ行うこと() throws Exception {
+        CountDownLatch firstWriting = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        List<String> events = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            Country country = invocation.getArgument(0);
+            events.add("update " + country.getCity());
+            if (country.getCity().equals("Amsterdam")) {
+                firstWriting.countDown();
+                releaseFirst.await();
+            }
+            return 1;
+        }).when(countryStore).update(any());
+        doAnswer(invocation -> events.add("replica " + invocation.<Country>getArgument(0).getCity())).when(countryReplica).put(any());
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Country> first = executor.submit(() -> countryService.update(31, "Netherlands", "Amsterdam"));
+            firstWriting.await();
+            Future<Country> second = executor.submit(() -> countryService.update(31, "Netherlands", "Rotterdam"));
+            Thread.sleep(100);
+            assertThat(events).containsExactly("update Amsterdam");
+
+            releaseFirst.countDown();
+            first.get();
+            second.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(events).containsExactly("update Amsterdam", "replica Amsterdam", "update Rotterdam", "replica Rotterdam");
+    }
+
+    @Test
+    public void 同じ国の更新と削除は前方一致検索の索引にデータベースと同じ順序で反映すること() throws Exception {
+        CountDownLatch updating = new CountDownLatch(1);
+        CountDownLatch releaseUpdate = new CountDownLatch(1);
+        List<String> events = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            events.add("update");
+            updating.countDown();
+            releaseUpdate.await();
+            return 1;
+        }).when(countryStore).update(any());
+        doAnswer(invocation -> {
+            events.add("delete");
+            return 1;
+        }).when(countryStore).delete(31);
+        doAnswer(invocation -> events.add("index put")).when(countryPrefixIndex).put(any());
+        doAnswer(invocation -> events.add("index remove")).when(countryPrefixIndex).remove(31);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Country> update = executor.submit(() -> countryService.update(31, "Netherlands", "Amsterdam"));
+            updating.await();
+            Future<?> delete = executor.submit(() -> countryService.delete(31));
+            Thread.sleep(100);
+            assertThat(events).containsExactly("update");
+
+            releaseUpdate.countDown();
+            update.get();
+            delete.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(events).containsExactly("update", "index put", "delete", "index remove");
     }
 }
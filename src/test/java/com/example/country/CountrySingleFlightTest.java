@@ -0,0 +1,216 @@
+package com.example.country;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import jakarta.servlet.http.Cookie;
+
+import javax.sql.DataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+@ExtendWith(MockitoExtension.class)
+class CountrySingleFlightTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final CountrySingleFlight countrySingleFlight = new CountrySingleFlight(true, meterRegistry,
+            new StaticListableBeanFactory().getBeanProvider(CountryRoutingDataSource.class));
+
+    @Mock
+    private CountryStore countryStore;
+
+    @Test
+    void 実行中の同じ呼び出しは1回の問い合わせ結果を共有すること() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger queries = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = executor.submit(() -> countrySingleFlight.execute("findByCountryCode", List.of(44), () -> {
+                queries.incrementAndGet();
+                started.countDown();
+                await(release);
+                return "United Kingdom";
+            }));
+            started.await();
+            Future<String> follower = executor.submit(() -> countrySingleFlight.execute("findByCountryCode", List.of(44), () -> {
+                queries.incrementAndGet();
+                return "other";
+            }));
+            while (count("coalesced") == 0) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("United Kingdom");
+            assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("United Kingdom");
+            assertThat(queries).hasValue(1);
+            assertThat(count("leader")).isEqualTo(1);
+            assertThat(count("coalesced")).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void 引数が異なる呼び出しと終了後の呼び出しはそれぞれ問い合わせること() {
+        assertThat(countrySingleFlight.execute("findByCountryCode", List.of(44), () -> "United Kingdom")).isEqualTo("United Kingdom");
+        assertThat(countrySingleFlight.execute("findByCountryCode", List.of(33), () -> "France")).isEqualTo("France");
+        assertThat(countrySingleFlight.execute("findByCountryCode", List.of(44), () -> "Great Britain")).isEqualTo("Great Britain");
+
+        assertThat(count("leader")).isEqualTo(3);
+        assertThat(count("coalesced")).isZero();
+    }
+
+    @Test
+    void 問い合わせの例外はそのまま呼び出し元に伝えること() {
+        assertThatThrownBy(() -> countrySingleFlight.execute("findByCountryCode", List.of(50), () -> {
+            throw new CountryNotFoundException("Country with code 50 not found");
+        })).isInstanceOf(CountryNotFoundException.class);
+
+        assertThat(countrySingleFlight.execute("findByCountryCode", List.of(50), () -> "recovered")).isEqualTo("recovered");
+    }
+
+    @Test
+    void 問い合わせがErrorで終わった場合も待っている呼び出しに伝えて次の呼び出しは問い合わせ直すこと() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Object> leader = executor.submit(() -> countrySingleFlight.execute("findAll", List.of(), () -> {
+                started.countDown();
+                await(release);
+                throw new StackOverflowError();
+            }));
+            await(started);
+            CompletableFuture<Object> follower = CompletableFuture.supplyAsync(
+                    () -> countrySingleFlight.execute("findAll", List.of(), () -> "not joined"));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (count("coalesced") == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            assertThatThrownBy(leader::get).hasCauseInstanceOf(StackOverflowError.class);
+            assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(StackOverflowError.class);
+            assertThat(countrySingleFlight.execute("findAll", List.of(), () -> "recovered")).isEqualTo("recovered");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void 同じ文の呼び出しは同じカウンターに記録すること() {
+        countrySingleFlight.execute("findAll", List.of(), () -> "first");
+        countrySingleFlight.execute("findAll", List.of(), () -> "second");
+
+        assertThat(meterRegistry.find(CountrySingleFlight.METRIC_NAME).tag("result", "leader").counters()).hasSize(1);
+        assertThat(meterRegistry.get(CountrySingleFlight.METRIC_NAME).tag("result", "leader").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void 同じ国番号への集中アクセスでDBへの問い合わせ数が減ること() throws Exception {
+        int callers = 200;
+        AtomicInteger queries = new AtomicInteger();
+        doAnswer(invocation -> {
+            queries.incrementAndGet();
+            Thread.sleep(20);
+            return Optional.of(new Country(44, "United Kingdom", "London"));
+        }).when(countryStore).findByCountryCode(44);
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Optional<Country>>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return countrySingleFlight.execute("findByCountryCode", List.of(44), () -> countryStore.findByCountryCode(44));
+                }));
+            }
+            start.countDown();
+            for (Future<Optional<Country>> result : results) {
+                assertThat(result.get(10, TimeUnit.SECONDS)).hasValue(new Country(44, "United Kingdom", "London"));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(queries.get()).isLessThan(callers / 4);
+        assertThat(count("leader") + count("coalesced")).isEqualTo(callers);
+    }
+
+    @Test
+    void 書き込み直後でプライマリから読む呼び出しはレプリカへの問い合わせに相乗りしないこと() throws Exception {
+        CountryDataSourceProperties.Routing routing = new CountryDataSourceProperties.Routing();
+        CountryRoutingDataSource routingDataSource = new CountryRoutingDataSource(mock(DataSource.class), List.of(mock(DataSource.class)),
+                routing, dataSource -> 0, System::currentTimeMillis);
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("countryRoutingDataSource", routingDataSource);
+        CountrySingleFlight routedSingleFlight = new CountrySingleFlight(true, meterRegistry,
+                beanFactory.getBeanProvider(CountryRoutingDataSource.class));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> replicaBound = executor.submit(() -> routedSingleFlight.execute("findByCountryCode", List.of(44), () -> {
+                started.countDown();
+                await(release);
+                return "before the write";
+            }));
+            started.await();
+            Future<String> primaryBound = executor.submit(() -> {
+                MockHttpServletRequest request = new MockHttpServletRequest();
+                request.setCookies(new Cookie(CountryRoutingDataSource.LAST_WRITE_COOKIE, Long.toString(System.currentTimeMillis())));
+                RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, new MockHttpServletResponse()));
+                try {
+                    return routedSingleFlight.execute("findByCountryCode", List.of(44), () -> "after the write");
+                } finally {
+                    RequestContextHolder.resetRequestAttributes();
+                }
+            });
+
+            assertThat(primaryBound.get(5, TimeUnit.SECONDS)).isEqualTo("after the write");
+            release.countDown();
+            assertThat(replicaBound.get(5, TimeUnit.SECONDS)).isEqualTo("before the write");
+            assertThat(count("coalesced")).isZero();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private double count(String result) {
+        return meterRegistry.find(CountrySingleFlight.METRIC_NAME).tag("result", result).counters().stream()
+                .mapToDouble(counter -> counter.count()).sum();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.country;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CountrySnapshotImporterTest {
+
+    @InjectMocks
+    private CountrySnapshotImporter countrySnapshotImporter;
+
+    @Mock
+    private CountryService countryService;
+
+    @Test
+    void スナップショットをブロックごとに登録し登録済みの国は飛ばすこと() throws Exception {
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        try (CountrySnapshotWriter writer = new CountrySnapshotWriter(snapshot, true)) {
+            for (int countryCode = 1; countryCode <= 5000; countryCode++) {
+                writer.accept(new Country(countryCode, "Country " + countryCode, "City " + countryCode));
+            }
+        }
+        when(countryService.bulk(anyList())).thenAnswer(invocation -> {
+            List<CountryBulkItem> items = invocation.getArgument(0);
+            return items.stream()
+                    .map(item -> item.getCountryCode() == 44
+                            ? new CountryBulkResult(item.getOperation(), 44, 409, "Country with code 44 duplicated")
+                            : new CountryBulkResult(item.getOperation(), item.getCountryCode(), 201, "country created"))
+                    .toList();
+        });
+
+        CountrySnapshotResult result = countrySnapshotImporter.load(new ByteArrayInputStream(snapshot.toByteArray()));
+
+        assertThat(result).isEqualTo(new CountrySnapshotResult(5000, 4999, 1));
+        verify(countryService, times(2)).bulk(anyList());
+    }
+
+    @Test
+    void 途中で切れたスナップショットは一件も登録しないこと() throws Exception {
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        try (CountrySnapshotWriter writer = new CountrySnapshotWriter(snapshot, true)) {
+            for (int countryCode = 1; countryCode <= 5000; countryCode++) {
+                writer.accept(new Country(countryCode, "Country " + countryCode, "City " + countryCode));
+            }
+        }
+        byte[] truncated = Arrays.copyOf(snapshot.toByteArray(), snapshot.size() - 100);
+
+        assertThatThrownBy(() -> countrySnapshotImporter.load(new ByteArrayInputStream(truncated)))
+                .isInstanceOf(InvalidCountrySnapshotException.class);
+        verify(countryService, never()).bulk(anyList());
+    }
+
+    @Test
+    void 保存できない行を含むスナップショットは一件も登録しないこと() throws Exception {
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        try (CountrySnapshotWriter writer = new CountrySnapshotWriter(snapshot, true)) {
+            for (int countryCode = 1; countryCode <= 5000; countryCode++) {
+                String city = countryCode == 4500 ? "C".repeat(101) : "City " + countryCode;
+                writer.accept(new Country(countryCode, "Country " + countryCode, city));
+            }
+        }
+
+        assertThatThrownBy(() -> countrySnapshotImporter.load(new ByteArrayInputStream(snapshot.toByteArray())))
+                .isInstanceOf(InvalidCountrySnapshotException.class)
+                .hasMessageContaining("country 4500");
+        verify(countryService, never()).bulk(anyList());
+    }
+}
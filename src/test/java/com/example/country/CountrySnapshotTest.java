@@ -0,0 +1,108 @@
+package com.example.country;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CountrySnapshotTest {
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void 書き出した国をブロックごとに同じ順序で読み込めること(boolean compressed) throws Exception {
+        byte[] snapshot = write(10_000, compressed);
+
+        List<Integer> blockSizes = new ArrayList<>();
+        List<Country> countries = new ArrayList<>();
+        try (CountrySnapshotReader reader = new CountrySnapshotReader(new ByteArrayInputStream(snapshot))) {
+            List<Country> block;
+            while ((block = reader.nextBlock()) != null) {
+                blockSizes.add(block.size());
+                countries.addAll(block);
+            }
+            assertThat(reader.getRead()).isEqualTo(10_000);
+        }
+
+        assertThat(blockSizes).containsExactly(4096, 4096, 1808);
+        assertThat(countries.get(0)).isEqualTo(new Country(0, "Côte d'Ivoire 0", "Yamoussoukro"));
+        assertThat(countries.get(9_999)).isEqualTo(new Country(9_999, "Côte d'Ivoire 9999", "Yamoussoukro"));
+    }
+
+    @Test
+    void 圧縮したスナップショットは圧縮しないものより小さいこと() throws Exception {
+        assertThat(write(10_000, true).length).isLessThan(write(10_000, false).length / 3);
+    }
+
+    @Test
+    void 空のスナップショットを読み込めること() throws Exception {
+        try (CountrySnapshotReader reader = new CountrySnapshotReader(new ByteArrayInputStream(write(0, true)))) {
+            assertThat(reader.nextBlock()).isNull();
+        }
+    }
+
+    @Test
+    void 壊れたスナップショットは読み込まないこと() throws Exception {
+        byte[] snapshot = write(10, false);
+
+        byte[] corrupted = snapshot.clone();
+        corrupted[30] ^= 1;
+        assertThatThrownBy(() -> readAll(corrupted))
+                .isInstanceOf(InvalidCountrySnapshotException.class)
+                .hasMessageContaining("checksum");
+
+        byte[] truncated = Arrays.copyOf(snapshot, snapshot.length - 8);
+        assertThatThrownBy(() -> readAll(truncated))
+                .isInstanceOf(InvalidCountrySnapshotException.class)
+                .hasMessageContaining("truncated");
+
+        assertThatThrownBy(() -> readAll("country_code,country,city".getBytes()))
+                .isInstanceOf(InvalidCountrySnapshotException.class)
+                .hasMessage("not a country snapshot");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {2_000_000_000, CountrySnapshotWriter.BLOCK_ROWS + 1, 10})
+    void 長さに収まらない行数のブロックは読み込まないこと(int rows) throws Exception {
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(snapshot);
+        output.writeInt(CountrySnapshotWriter.MAGIC);
+        output.writeShort(CountrySnapshotWriter.FORMAT_VERSION);
+        output.writeShort(0);
+        // empty raw bytes, whose CRC32C is 0
+        output.writeInt(rows);
+        output.writeInt(0);
+        output.writeInt(0);
+        output.writeInt(0);
+
+        assertThatThrownBy(() -> readAll(snapshot.toByteArray()))
+                .isInstanceOf(InvalidCountrySnapshotException.class)
+                .hasMessageContaining("corrupted");
+    }
+
+    private static byte[] write(int rows, boolean compressed) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (CountrySnapshotWriter writer = new CountrySnapshotWriter(output, compressed)) {
+            for (int i = 0; i < rows; i++) {
+                writer.accept(new Country(i, "Côte d'Ivoire " + i, "Yamoussoukro"));
+            }
+        }
+        return output.toByteArray();
+    }
+
+    private static void readAll(byte[] snapshot) throws Exception {
+        try (CountrySnapshotReader reader = new CountrySnapshotReader(new ByteArrayInputStream(snapshot))) {
+            while (reader.nextBlock() != null) {
+                // read to the end block
+            }
+        }
+    }
+}
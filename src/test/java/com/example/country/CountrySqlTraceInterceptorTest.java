@@ -0,0 +1,141 @@
+package com.example.country;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+class CountrySqlTraceInterceptorTest {
+
+    private final Configuration configuration = new Configuration();
+
+    private final Executor executor = mock(Executor.class);
+
+    private final MappedStatement update = new MappedStatement.Builder(configuration, "com.example.country.CountryMapper.update",
+            new StaticSqlSource(configuration, "UPDATE countries SET country = ?, city = ? WHERE country_code = ?", List.of(
+                    new ParameterMapping.Builder(configuration, "country", String.class).build(),
+                    new ParameterMapping.Builder(configuration, "city", String.class).build(),
+                    new ParameterMapping.Builder(configuration, "countryCode", Integer.class).build())),
+            SqlCommandType.UPDATE).build();
+
+    private final MappedStatement findByCountryCode = new MappedStatement.Builder(configuration, "com.example.country.CountryMapper.findByCountryCode",
+            new StaticSqlSource(configuration, "SELECT country_code, country, city FROM countries WHERE country_code = ?", List.of(
+                    new ParameterMapping.Builder(configuration, "countryCode", Integer.class).build())),
+            SqlCommandType.SELECT).build();
+
+    @Test
+    void 閾値を超えた実行は常にパラメータと件数と共に記録すること() throws Throwable {
+        CountrySqlTraceInterceptor interceptor = new CountrySqlTraceInterceptor(true, 0, Duration.ZERO, 16, 16);
+        doReturn(1).when(executor).update(any(), any());
+
+        Object actual = interceptor.intercept(update(new Country(33, "France", "Paris")));
+        assertThat(actual).isEqualTo(1);
+
+        assertThat(interceptor.slowTraces(10)).singleElement().satisfies(trace -> {
+            assertThat(trace.getStatement()).isEqualTo("update");
+            assertThat(trace.getParameters()).containsExactly("France", "Paris", "33");
+            assertThat(trace.getRows()).isEqualTo(1);
+            assertThat(trace.isSlow()).isTrue();
+        });
+        assertThat(interceptor.recentTraces(10)).hasSize(1);
+    }
+
+    @Test
+    void 閾値未満の実行はサンプリング率に従って記録すること() throws Throwable {
+        CountrySqlTraceInterceptor never = new CountrySqlTraceInterceptor(true, 0, Duration.ofMinutes(1), 16, 16);
+        CountrySqlTraceInterceptor always = new CountrySqlTraceInterceptor(true, 1, Duration.ofMinutes(1), 16, 16);
+        doReturn(List.of(new Country(33, "France", "Paris"))).when(executor).query(any(), any(), any(), any());
+
+        never.intercept(query(33));
+        always.intercept(query(33));
+
+        assertThat(never.recentTraces(10)).isEmpty();
+        assertThat(always.slowTraces(10)).isEmpty();
+        assertThat(always.recentTraces(10)).singleElement().satisfies(trace -> {
+            assertThat(trace.getStatement()).isEqualTo("findByCountryCode");
+            assertThat(trace.getParameters()).containsExactly("33");
+            assertThat(trace.getRows()).isEqualTo(1);
+            assertThat(trace.isSlow()).isFalse();
+        });
+    }
+
+    @Test
+    void 容量を超えた場合は新しい順に直近の記録だけを残すこと() throws Throwable {
+        CountrySqlTraceInterceptor interceptor = new CountrySqlTraceInterceptor(true, 1, Duration.ofMinutes(1), 4, 4);
+        doReturn(List.of()).when(executor).query(any(), any(), any(), any());
+
+        for (int countryCode = 1; countryCode <= 10; countryCode++) {
+            interceptor.intercept(query(countryCode));
+        }
+
+        assertThat(interceptor.recentTraces(10)).extracting(trace -> trace.getParameters().get(0))
+                .containsExactly("10", "9", "8", "7");
+        assertThat(interceptor.recentTraces(2)).hasSize(2);
+    }
+
+    @Test
+    void 複数スレッドから同時に記録しても欠けや重複なく直近の記録を返すこと() throws Exception {
+        CountrySqlTraceBuffer buffer = new CountrySqlTraceBuffer(1000);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int thread = 0; thread < 8; thread++) {
+            int offset = thread * 10000;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                IntStream.range(0, 10000).forEach(i -> buffer.add(
+                        new CountrySqlTrace(null, String.valueOf(offset + i), List.of(), 0, 0, false)));
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        List<CountrySqlTrace> traces = buffer.snapshot(Integer.MAX_VALUE);
+        assertThat(traces).hasSize(1024);
+        assertThat(traces).extracting(CountrySqlTrace::getStatement).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void 無効の場合は記録しないこと() throws Throwable {
+        CountrySqlTraceInterceptor interceptor = new CountrySqlTraceInterceptor(false, 1, Duration.ZERO, 16, 16);
+        doReturn(1).when(executor).update(any(), any());
+
+        interceptor.intercept(update(new Country(33, "France", "Paris")));
+
+        assertThat(interceptor.recentTraces(10)).isEmpty();
+        assertThat(interceptor.slowTraces(10)).isEmpty();
+    }
+
+    private Invocation update(Country country) throws NoSuchMethodException {
+        return new Invocation(executor, Executor.class.getMethod("update", MappedStatement.class, Object.class),
+                new Object[]{update, country});
+    }
+
+    private Invocation query(int countryCode) throws NoSuchMethodException {
+        return new Invocation(executor, Executor.class.getMethod("query", MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class),
+                new Object[]{findByCountryCode, countryCode, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER});
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.country;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class CountryWriteBehindBufferTest {
+
+    @Mock
+    private CountryBulkWriter countryBulkWriter;
+
+    private final List<Object> events = new ArrayList<>();
+
+    @Test
+    void 同じ国番号の更新は最後の値だけを書き込むこと() {
+        CountryWriteBehindBuffer buffer = newBuffer(10, 2);
+        buffer.put(new Country(44, "United Kingdom", "London"));
+        buffer.put(new Country(44, "United Kingdom", "Manchester"));
+        buffer.put(new Country(44, "United Kingdom", "Leeds"));
+        buffer.put(new Country(33, "France", "Lyon"));
+        assertThat(buffer.find(44)).hasValue(new Country(44, "United Kingdom", "Leeds"));
+        doReturn(List.of(
+                new CountryBulkResult(CountryBulkItem.Operation.UPDATE, 33, 200, "country updated"),
+                new CountryBulkResult(CountryBulkItem.Operation.UPDATE, 44, 200, "country updated")))
+                .when(countryBulkWriter).write(any());
+
+        buffer.flush();
+
+        verify(countryBulkWriter, times(1)).write(argThat(items -> items.contains(
+                new CountryBulkItem(CountryBulkItem.Operation.UPDATE, 44, "United Kingdom", "Leeds")) && items.size() == 2));
+        assertThat(buffer.size()).isZero();
+        assertThat(buffer.find(44)).isEmpty();
+    }
+
+    @Test
+    void バッチの件数ごとに分けて書き込むこと() {
+        CountryWriteBehindBuffer buffer = newBuffer(10, 2);
+        for (int countryCode = 1; countryCode <= 5; countryCode++) {
+            buffer.put(new Country(countryCode, "Country " + countryCode, "City " + countryCode));
+        }
+        doReturn(List.of(updated(1), updated(2)), List.of(updated(3), updated(4)), List.of(updated(5)))
+                .when(countryBulkWriter).write(any());
+
+        buffer.flush();
+
+        verify(countryBulkWriter, times(3)).write(any());
+        assertThat(buffer.size()).isZero();
+    }
+
+    @Test
+    void データベースに接続できない場合は更新を次の書き込みまで保持すること() {
+        CountryWriteBehindBuffer buffer = newBuffer(10, 10);
+        buffer.put(new Country(44, "United Kingdom", "Leeds"));
+        doThrow(new CannotGetJdbcConnectionException("connection refused")).when(countryBulkWriter).write(any());
+
+        buffer.flush();
+
+        assertThat(buffer.find(44)).hasValue(new Country(44, "United Kingdom", "Leeds"));
+        assertThat(events).isEmpty();
+    }
+
+    @Test
+    void バッチの書き込みに失敗した場合は一件ずつ書き込み失敗した更新だけを捨てること() {
+        CountryWriteBehindBuffer buffer = newBuffer(10, 10);
+        buffer.put(new Country(33, "France", "Lyon"));
+        buffer.put(new Country(44, "United Kingdom", "Leeds"));
+        doThrow(new RuntimeException("Data too long for column 'city'")).when(countryBulkWriter).write(argThat(items -> items.size() == 2));
+        doThrow(new RuntimeException("Data too long for column 'city'")).when(countryBulkWriter).write(List.of(
+                new CountryBulkItem(CountryBulkItem.Operation.UPDATE, 44, "United Kingdom", "Leeds")));
+        doReturn(List.of(updated(33))).when(countryBulkWriter).write(List.of(
+                new CountryBulkItem(CountryBulkItem.Operation.UPDATE, 33, "France", "Lyon")));
+
+        buffer.flush();
+
+        assertThat(buffer.size()).isZero();
+        assertThat(events).singleElement()
+                .isInstanceOfSatisfying(CountryUpdateDroppedEvent.class, event -> assertThat(event.getCountryCode()).isEqualTo(44));
+
+        buffer.put(new Country(49, "Germany", "Munich"));
+        assertThat(buffer.size()).isEqualTo(1);
+    }
+
+    @Test
+    void 行が無くなった国の更新は捨てて通知すること() {
+        CountryWriteBehindBuffer buffer = newBuffer(10, 10);
+        buffer.put(new Country(44, "United Kingdom", "Leeds"));
+        doReturn(List.of(new CountryBulkResult(CountryBulkItem.Operation.UPDATE, 44, 404, "Country with code 44 not found")))
+                .when(countryBulkWriter).write(any());
+
+        buffer.flush();
+
+        assertThat(buffer.find(44)).isEmpty();
+        assertThat(events).singleElement()
+                .isInstanceOfSatisfying(CountryUpdateDroppedEvent.class, event -> assertThat(event.getCountryCode()).isEqualTo(44));
+    }
+
+    @Test
+    void まとめて書き込んだ場合は成功した項目の保留中の更新だけを破棄すること() {
+        CountryWriteBehindBuffer buffer = newBuffer(10, 10);
+        buffer.put(new Country(44, "United Kingdom", "Leeds"));
+        buffer.put(new Country(33, "France", "Lyon"));
+        List<CountryBulkItem> items = List.of(
+                new CountryBulkItem(CountryBulkItem.Operation.UPDATE, 44, "United Kingdom", "London"),
+                new CountryBulkItem(CountryBulkItem.Operation.INSERT, 33, "France", "Paris"));
+        doReturn(List.of(updated(44), new CountryBulkResult(CountryBulkItem.Operation.INSERT, 33, 409, "Country with code 33 duplicated")))
+                .when(countryBulkWriter).write(items);
+
+        buffer.writeThrough(items);
+
+        assertThat(buffer.find(44)).isEmpty();
+        assertThat(buffer.find(33)).hasValue(new Country(33, "France", "Lyon"));
+    }
+
+    @Test
+    void 保留件数が上限に達すると新しい国番号の更新を拒否すること() {
+        CountryWriteBehindBuffer buffer = newBuffer(2, 10);
+        buffer.put(new Country(1, "A", "A"));
+        buffer.put(new Country(2, "B", "B"));
+        buffer.put(new Country(2, "B", "C"));
+
+        assertThatThrownBy(() -> buffer.put(new Country(3, "C", "C"))).isInstanceOf(CountryWriteBehindFullException.class);
+
+        buffer.discard(1);
+        buffer.put(new Country(3, "C", "C"));
+        assertThat(buffer.size()).isEqualTo(2);
+        verify(countryBulkWriter, never()).write(any());
+    }
+
+    @Test
+    void 読み取り結果に保留中の更新を重ねること() {
+        CountryWriteBehindBuffer buffer = newBuffer(10, 10);
+        buffer.put(new Country(31, "Holland", "Rotterdam"));
+        buffer.put(new Country(32, "Belgium", "Brussels"));
+        buffer.put(new Country(33, "Netherlands Antilles", "Willemstad"));
+
+        List<Country> actual = buffer.overlay(
+                List.of(new Country(31, "Netherlands", "Amsterdam"), new Country(34, "Norway", "Oslo"), new Country(32, "Nepal", "Kathmandu")),
+                country -> country.getCountry().startsWith("N"));
+
+        assertThat(actual).containsExactly(
+                new Country(34, "Norway", "Oslo"),
+                new Country(33, "Netherlands Antilles", "Willemstad"));
+    }
+
+    @Test
+    void 保留中の更新が変わるたびに変更時刻を進め保留が無くなれば返さないこと() {
+        CountryWriteBehindBuffer buffer = newBuffer(10, 10);
+        assertThat(buffer.getPendingChangedAt()).isNull();
+
+        buffer.put(new Country(31, "Holland", "Rotterdam"));
+        LocalDateTime first = buffer.getPendingChangedAt();
+        buffer.put(new Country(31, "Netherlands", "Amsterdam"));
+        LocalDateTime second = buffer.getPendingChangedAt();
+        assertThat(first).isNotNull();
+        assertThat(second).isAfter(first);
+
+        buffer.discard(31);
+        assertThat(buffer.getPendingChangedAt()).isNull();
+    }
+
+    private CountryWriteBehindBuffer newBuffer(int capacity, int batchSize) {
+        return new CountryWriteBehindBuffer(true, capacity, batchSize, Duration.ofSeconds(1), Duration.ofMillis(10), countryBulkWriter, events::add);
+    }
+
+    private static CountryBulkResult updated(int countryCode) {
+        return new CountryBulkResult(CountryBulkItem.Operation.UPDATE, countryCode, 200, "country updated");
+    }
+}
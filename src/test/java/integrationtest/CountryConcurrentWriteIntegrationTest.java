@@ -0,0 +1,80 @@
+package integrationtest;
+
+import com.example.country.CountryApplication;
+import com.example.country.CountryDuplicatedException;
+import com.example.country.CountryNotFoundException;
+import com.example.country.CountryService;
+import com.github.database.rider.core.api.dataset.DataSet;
+import com.github.database.rider.spring.api.DBRider;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(classes = CountryApplication.class)
+@DBRider
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class CountryConcurrentWriteIntegrationTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    CountryService countryService;
+
+    @Test
+    @DataSet(value = "datasets/countries.yml", cleanAfter = true)
+    void 同じ国番号を同時に登録した場合は1件だけ成功し残りは重複例外になること() throws Exception {
+        List<Throwable> failures = runConcurrently(() -> countryService.insert(385, "Croatia", "Zagreb"));
+
+        assertThat(failures)
+                .hasSize(THREADS - 1)
+                .allMatch(CountryDuplicatedException.class::isInstance);
+    }
+
+    @Test
+    @DataSet(value = "datasets/countries.yml", cleanAfter = true)
+    void 同じ国番号を同時に削除した場合は1件だけ成功し残りは存在しない例外になること() throws Exception {
+        List<Throwable> failures = runConcurrently(() -> {
+            countryService.delete(420);
+            return null;
+        });
+
+        assertThat(failures)
+                .hasSize(THREADS - 1)
+                .allMatch(CountryNotFoundException.class::isInstance);
+    }
+
+    private static List<Throwable> runConcurrently(Callable<?> task) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return task.call();
+            }));
+        }
+        start.countDown();
+        List<Throwable> failures = new ArrayList<>();
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                failures.add(e.getCause());
+            }
+        }
+        executor.shutdown();
+        return failures;
+    }
+}
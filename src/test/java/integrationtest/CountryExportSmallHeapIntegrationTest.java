@@ -0,0 +1,96 @@
+package integrationtest;
+
+import com.example.country.CountryApplication;
+import com.example.country.CountryNdjsonWriter;
+import com.example.country.CountryService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.sql.DataSource;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs in the smallHeapTest task, whose heap is smaller than the exported data: the export only passes if the mapper's
+ * cursor streams rows inside the service's read-only transaction instead of reading the whole result set.
+ */
+@Tag("small-heap")
+@SpringBootTest(classes = CountryApplication.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class CountryExportSmallHeapIntegrationTest {
+
+    private static final int FIRST_COUNTRY_CODE = 1_000_000;
+
+    private static final int ROWS = 2_500_000;
+
+    @Autowired
+    CountryService countryService;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    DataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("SET SESSION cte_max_recursion_depth = " + ROWS);
+            statement.execute("INSERT INTO countries (country_code, country, city) "
+                    + "WITH RECURSIVE seq (n) AS (SELECT " + FIRST_COUNTRY_CODE + " UNION ALL SELECT n + 1 FROM seq WHERE n < "
+                    + (FIRST_COUNTRY_CODE + ROWS - 1) + ") "
+                    + "SELECT n, CONCAT('Country ', n), CONCAT('City ', n) FROM seq");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DELETE FROM countries WHERE country_code >= " + FIRST_COUNTRY_CODE);
+        }
+    }
+
+    @Test
+    void ヒープより大きい全件をカーソルから書き出すこと() throws Exception {
+        CountingOutputStream output = new CountingOutputStream();
+        long written;
+        try (CountryNdjsonWriter writer = new CountryNdjsonWriter(objectMapper, output)) {
+            countryService.exportAll(writer);
+            written = writer.getWritten();
+        }
+
+        assertThat(written).isGreaterThanOrEqualTo(ROWS);
+        assertThat(output.lines).isEqualTo(written);
+        assertThat(output.bytes).isGreaterThan(Runtime.getRuntime().maxMemory());
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long bytes;
+
+        private long lines;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+            if (b == '\n') {
+                lines++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                write(b[i]);
+            }
+        }
+    }
+}
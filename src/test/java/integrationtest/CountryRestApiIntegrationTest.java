@@ -22,6 +22,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest(classes = CountryApplication.class)
@@ -104,6 +105,49 @@ class CountryRestApiIntegrationTest {
                 response, JSONCompareMode.STRICT);
     }
 
+    @Test
+    @DataSet(value = "datasets/countries.yml")
+    @Transactional
+    void 件数とカーソルを指定してページごとに国を取得すること() throws Exception {
+        String link = mockMvc.perform(get("/countries").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(
+                        """
+                        [
+                            {
+                                "countryCode":36,
+                                "country":"Hungary",
+                                "city":"Budapest"
+                            },
+                            {
+                                "countryCode":43,
+                                "country":"Austria",
+                                "city":"Vienna"
+                            }
+                        ]
+                        """
+                ))
+                .andReturn().getResponse().getHeader("Link");
+
+        String next = link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+        String response = mockMvc.perform(get(next))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Link"))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        JSONAssert.assertEquals(
+                """
+                [
+                    {
+                        "countryCode":420,
+                        "country":"The Czech Republic",
+                        "city":"Prague"
+                    }
+                ]
+                """,
+                response, JSONCompareMode.STRICT);
+    }
+
     @Test
     @DataSet(value = "datasets/countries.yml")
     @Transactional